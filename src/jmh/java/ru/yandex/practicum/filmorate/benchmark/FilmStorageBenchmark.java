@@ -0,0 +1,86 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilmStorageBenchmark {
+
+    private static final FilmFilter FIRST_PAGE = new FilmFilter();
+
+    static {
+        FIRST_PAGE.setLimit(100);
+    }
+
+    /**
+     * Each thread likes films as a user of its own, who has no likes in the dataset, so a like can always
+     * be added and taken back.
+     */
+    @State(Scope.Thread)
+    public static class Liker {
+        private static final AtomicInteger LIKERS = new AtomicInteger();
+
+        long userId;
+
+        @Setup(Level.Trial)
+        public void setUp(FilmorateState state) {
+            User liker = new User();
+            int number = LIKERS.incrementAndGet();
+            liker.setEmail("liker" + number + "@filmorate.ru");
+            liker.setLogin("liker" + number);
+            liker.setBirthday(LocalDate.of(2000, 1, 1));
+            userId = state.userStorage.create(liker).getId();
+        }
+    }
+
+    @Benchmark
+    public Film findById(FilmorateState state) {
+        return state.filmStorage.findById(state.randomFilmId());
+    }
+
+    @Benchmark
+    public Collection<Film> findAllFirstPage(FilmorateState state) {
+        return state.filmStorage.findAll(FIRST_PAGE);
+    }
+
+    @Benchmark
+    public Collection<Film> getMostPopular(FilmorateState state) {
+        return state.filmStorage.getMostPopular(10, null, null);
+    }
+
+    @Benchmark
+    public Collection<Film> getMostPopularByGenre(FilmorateState state) {
+        return state.filmStorage.getMostPopular(10, 2, null);
+    }
+
+    /**
+     * Adds a like and removes it again, leaving the dataset as it was.
+     */
+    @Benchmark
+    public void addAndRemoveLike(FilmorateState state, Liker liker) {
+        long filmId = state.randomFilmId();
+        state.filmStorage.addLike(filmId, liker.userId);
+        state.filmStorage.removeLike(filmId, liker.userId);
+    }
+}
@@ -0,0 +1,91 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.dataset.DatasetGenerator;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetProvider;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The application on an embedded H2 database holding the {@link DatasetGenerator} dataset of {@code users}
+ * users and as many films, so each run measures the same data. The dataset is generated before the
+ * application starts, which then loads its in-process indexes from it as usual.
+ */
+@State(Scope.Benchmark)
+public class FilmorateState {
+    private static final String URL = "jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1";
+
+    @Param({"1000", "10000"})
+    public int users;
+
+    FilmDbStorage filmStorage;
+    UserDbStorage userStorage;
+    JdbcTemplate jdbcTemplate;
+    ObjectMapper objectMapper;
+    private ConfigurableApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void start() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(URL, "sa", "password");
+        new DatasetGenerator(dataSource, DatasetGenerator.Spec.of(users, users)).generate();
+        context = new SpringApplicationBuilder(FilmorateApplication.class)
+                .web(WebApplicationType.NONE)
+                // arguments rather than default properties, which application.yml would override
+                .run("--spring.main.banner-mode=off",
+                        "--spring.datasource.url=" + URL,
+                        "--filmorate.storage.type=db",
+                        "--filmorate.storage.repair-likes-count=false",
+                        "--logging.level.root=WARN");
+        filmStorage = context.getBean(FilmDbStorage.class);
+        userStorage = context.getBean(UserDbStorage.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        objectMapper = context.getBean(ObjectMapper.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    /**
+     * A bean of the running application, for benchmarks that live next to package-private code.
+     */
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    /**
+     * The rows of {@code sql} read once into memory, so a benchmark can replay them without querying.
+     */
+    public CachedRowSet materialize(String sql) {
+        return jdbcTemplate.query(sql, (ResultSetExtractor<CachedRowSet>) rs -> {
+            CachedRowSet rows = RowSetProvider.newFactory().createCachedRowSet();
+            rows.populate(rs);
+            return rows;
+        });
+    }
+
+    long randomUserId() {
+        return ThreadLocalRandom.current().nextLong(users) + 1;
+    }
+
+    long randomFilmId() {
+        return randomUserId();
+    }
+}
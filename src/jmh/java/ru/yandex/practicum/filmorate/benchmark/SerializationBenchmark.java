@@ -0,0 +1,61 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/**
+ * Jackson serialization of entities as the controllers return them, with the application's own
+ * {@code ObjectMapper}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Payload {
+        Film film;
+        User user;
+        List<Film> films;
+
+        @Setup(Level.Trial)
+        public void setUp(FilmorateState state) {
+            film = state.filmStorage.findById(1L);
+            user = state.userStorage.findById(1L);
+            films = state.filmStorage.findByIds(LongStream.rangeClosed(1, 100).boxed().toList());
+        }
+    }
+
+    @Benchmark
+    public byte[] writeFilm(FilmorateState state, Payload payload) throws JsonProcessingException {
+        return state.objectMapper.writeValueAsBytes(payload.film);
+    }
+
+    @Benchmark
+    public byte[] writeUser(FilmorateState state, Payload payload) throws JsonProcessingException {
+        return state.objectMapper.writeValueAsBytes(payload.user);
+    }
+
+    @Benchmark
+    public byte[] writeFilmPage(FilmorateState state, Payload payload) throws JsonProcessingException {
+        return state.objectMapper.writeValueAsBytes(payload.films);
+    }
+}
@@ -0,0 +1,79 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.jdbc.core.RowMapper;
+import ru.yandex.practicum.filmorate.benchmark.FilmorateState;
+import ru.yandex.practicum.filmorate.storage.ReferenceDataRegistry;
+
+import javax.sql.rowset.CachedRowSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the film row mappers over a page of {@value PAGE_SIZE} rows of the storage's own queries, read once
+ * into memory, so no query or cursor round trip is measured. {@code readFilmRows} walks the same rows reading
+ * only the id; the difference is the cost of mapping.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilmRowMappingBenchmark {
+    private static final int PAGE_SIZE = 100;
+    private static final String PAGE = " WHERE f.film_id BETWEEN 1 AND " + PAGE_SIZE + " ORDER BY f.film_id";
+
+    @State(Scope.Benchmark)
+    public static class Rows {
+        CachedRowSet filmRows;
+        CachedRowSet hydratedFilmRows;
+        FilmDbStorage.FilmRowMapper filmRowMapper;
+        FilmDbStorage.HydratedFilmRowMapper hydratedFilmRowMapper;
+
+        @Setup(Level.Trial)
+        public void load(FilmorateState state) {
+            ReferenceDataRegistry referenceData = state.bean(ReferenceDataRegistry.class);
+            filmRows = state.materialize(FilmDbStorage.BASE_SELECT + PAGE);
+            hydratedFilmRows = state.materialize(FilmDbStorage.HYDRATED_SELECT + PAGE);
+            filmRowMapper = new FilmDbStorage.FilmRowMapper(referenceData);
+            hydratedFilmRowMapper = new FilmDbStorage.HydratedFilmRowMapper(referenceData);
+        }
+    }
+
+    @Benchmark
+    public void mapFilms(Rows rows, Blackhole blackhole) throws SQLException {
+        map(rows.filmRows, rows.filmRowMapper, blackhole);
+    }
+
+    @Benchmark
+    public void mapHydratedFilms(Rows rows, Blackhole blackhole) throws SQLException {
+        map(rows.hydratedFilmRows, rows.hydratedFilmRowMapper, blackhole);
+    }
+
+    @Benchmark
+    public void readFilmRows(Rows rows, Blackhole blackhole) throws SQLException {
+        rows.filmRows.beforeFirst();
+        while (rows.filmRows.next()) {
+            blackhole.consume(rows.filmRows.getLong(1));
+        }
+    }
+
+    private static void map(CachedRowSet rows, RowMapper<?> rowMapper, Blackhole blackhole) throws SQLException {
+        rows.beforeFirst();
+        int rowNum = 0;
+        while (rows.next()) {
+            blackhole.consume(rowMapper.mapRow(rows, rowNum++));
+        }
+    }
+}
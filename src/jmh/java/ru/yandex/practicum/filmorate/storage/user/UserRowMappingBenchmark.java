@@ -0,0 +1,61 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.yandex.practicum.filmorate.benchmark.FilmorateState;
+
+import javax.sql.rowset.CachedRowSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the user row mapper over a page of {@value PAGE_SIZE} rows of the storage's own query, read once
+ * into memory; {@code readUserRows} walks the same rows reading only the id.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserRowMappingBenchmark {
+    private static final int PAGE_SIZE = 100;
+
+    @State(Scope.Benchmark)
+    public static class Rows {
+        CachedRowSet userRows;
+        final UserDbStorage.UserRowMapper userRowMapper = new UserDbStorage.UserRowMapper();
+
+        @Setup(Level.Trial)
+        public void load(FilmorateState state) {
+            userRows = state.materialize(UserDbStorage.SELECT_ALL_USERS +
+                    " WHERE user_id BETWEEN 1 AND " + PAGE_SIZE + " ORDER BY user_id");
+        }
+    }
+
+    @Benchmark
+    public void mapUsers(Rows rows, Blackhole blackhole) throws SQLException {
+        rows.userRows.beforeFirst();
+        int rowNum = 0;
+        while (rows.userRows.next()) {
+            blackhole.consume(rows.userRowMapper.mapRow(rows.userRows, rowNum++));
+        }
+    }
+
+    @Benchmark
+    public void readUserRows(Rows rows, Blackhole blackhole) throws SQLException {
+        rows.userRows.beforeFirst();
+        while (rows.userRows.next()) {
+            blackhole.consume(rows.userRows.getLong(1));
+        }
+    }
+}
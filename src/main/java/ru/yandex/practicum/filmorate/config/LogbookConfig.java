@@ -0,0 +1,25 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.zalando.logbook.HttpRequest;
+import org.zalando.logbook.core.Conditions;
+
+import java.util.function.Predicate;
+
+/**
+ * Keeps logbook away from bulk uploads, NDJSON streams and snapshot exports: logging them would buffer
+ * the entire body in memory, which is exactly what those endpoints are built to avoid. Actuator scrapes
+ * are left out too, as they would drown the request log.
+ */
+@Configuration
+public class LogbookConfig {
+    @Bean
+    public Predicate<HttpRequest> requestCondition() {
+        return Conditions.exclude(
+                Conditions.requestTo("/films/bulk"),
+                Conditions.requestTo("/snapshot"),
+                Conditions.requestTo("/actuator/**"),
+                Conditions.header("Accept", value -> value.contains("application/x-ndjson")));
+    }
+}
@@ -0,0 +1,111 @@
+package ru.yandex.practicum.filmorate.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every public method of the storages and services, labelled by operation such as
+ * {@code film.getMostPopular}: a latency histogram per operation, a summary of how many entities it
+ * returned and a counter of the exceptions it threw. The meters are published at
+ * {@code /actuator/prometheus}.
+ */
+@Aspect
+@Component
+@ConditionalOnProperty(name = "filmorate.metrics.enabled", havingValue = "true", matchIfMissing = true)
+public class MetricsAspect {
+    private static final Duration MAX_EXPECTED_LATENCY = Duration.ofSeconds(10);
+
+    private final MeterRegistry registry;
+    private final Map<Key, Meters> meters = new ConcurrentHashMap<>();
+
+    public MetricsAspect(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Around("execution(public * ru.yandex.practicum.filmorate.storage..*Storage.*(..))")
+    public Object timeStorage(ProceedingJoinPoint call) throws Throwable {
+        return time(call, "filmorate.storage");
+    }
+
+    @Around("execution(public * ru.yandex.practicum.filmorate.service..*Service.*(..))")
+    public Object timeService(ProceedingJoinPoint call) throws Throwable {
+        return time(call, "filmorate.service");
+    }
+
+    private Object time(ProceedingJoinPoint call, String layer) throws Throwable {
+        Method method = ((MethodSignature) call.getSignature()).getMethod();
+        Key key = new Key(ClassUtils.getUserClass(call.getTarget()), method);
+        Meters methodMeters = meters.computeIfAbsent(key, k -> new Meters(layer, operation(k.type(), k.method())));
+        long started = System.nanoTime();
+        Object result;
+        try {
+            result = call.proceed();
+        } catch (Throwable e) {
+            methodMeters.timer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            Counter.builder(layer + ".errors")
+                    .description("Exceptions thrown, by operation and exception type")
+                    .tag("operation", methodMeters.operation)
+                    .tag("exception", e.getClass().getSimpleName())
+                    .register(registry)
+                    .increment();
+            throw e;
+        }
+        methodMeters.timer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        if (result instanceof Collection<?> entities) {
+            methodMeters.rows.record(entities.size());
+        } else if (result != null && !(result instanceof Boolean) && !(result instanceof Number)) {
+            methodMeters.rows.record(1);
+        }
+        return result;
+    }
+
+    /**
+     * {@code film.getMostPopular} for {@code FilmDbStorage.getMostPopular}: the entity the class serves,
+     * without storage kind and layer, and the method name.
+     */
+    static String operation(Class<?> type, Method method) {
+        String name = type.getSimpleName();
+        name = name.replaceFirst("^InMemory", "").replaceFirst("(Db)?(Storage|Service)$", "");
+        return StringUtils.uncapitalize(name) + "." + method.getName();
+    }
+
+    private record Key(Class<?> type, Method method) {
+    }
+
+    private class Meters {
+        private final String operation;
+        private final Timer timer;
+        private final DistributionSummary rows;
+
+        Meters(String layer, String operation) {
+            this.operation = operation;
+            this.timer = Timer.builder(layer)
+                    .description("Latency of calls, by operation")
+                    .tag("operation", operation)
+                    .publishPercentileHistogram()
+                    .maximumExpectedValue(MAX_EXPECTED_LATENCY)
+                    .register(registry);
+            this.rows = DistributionSummary.builder(layer + ".rows")
+                    .description("Entities returned per call, by operation")
+                    .tag("operation", operation)
+                    .register(registry);
+        }
+    }
+}
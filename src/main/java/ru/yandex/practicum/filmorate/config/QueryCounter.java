@@ -0,0 +1,57 @@
+package ru.yandex.practicum.filmorate.config;
+
+/**
+ * Scopes in which the statements run through a {@link QueryCountingDataSource} on the current thread are
+ * counted. Scopes nest: an inner one counts only its own statements and adds them to the outer one when
+ * closed. Statements run on other threads, such as index rebuilds on their own pools, are not counted.
+ */
+public final class QueryCounter {
+    private static final ThreadLocal<QueryStats> CURRENT = new ThreadLocal<>();
+
+    private QueryCounter() {
+    }
+
+    public static Scope open() {
+        Scope scope = new Scope(CURRENT.get());
+        CURRENT.set(scope.stats);
+        return scope;
+    }
+
+    /**
+     * Runs {@code code} in a scope of its own and returns what it ran, for instance to assert in a test
+     * that a service call stays within its query budget.
+     */
+    public static QueryStats count(Runnable code) {
+        try (Scope scope = open()) {
+            code.run();
+            return scope.stats();
+        }
+    }
+
+    static QueryStats current() {
+        return CURRENT.get();
+    }
+
+    public static final class Scope implements AutoCloseable {
+        private final QueryStats parent;
+        private final QueryStats stats = new QueryStats();
+
+        private Scope(QueryStats parent) {
+            this.parent = parent;
+        }
+
+        public QueryStats stats() {
+            return stats;
+        }
+
+        @Override
+        public void close() {
+            if (parent == null) {
+                CURRENT.remove();
+            } else {
+                parent.add(stats);
+                CURRENT.set(parent);
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package ru.yandex.practicum.filmorate.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Puts the data source behind a {@link QueryCountingDataSource} and counts the statements of every request
+ * with a {@link QueryCountingFilter}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "filmorate.queries.enabled", havingValue = "true", matchIfMissing = true)
+public class QueryCountingConfig {
+
+    @Bean
+    public static BeanPostProcessor queryCountingPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof QueryCountingDataSource)) {
+                    return new QueryCountingDataSource(dataSource);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public QueryCountingFilter queryCountingFilter(MeterRegistry registry,
+                                                   @Value("${filmorate.queries.budget:10}") int budget,
+                                                   @Value("${filmorate.queries.repeat-threshold:5}")
+                                                   int repeatThreshold) {
+        return new QueryCountingFilter(registry, budget, repeatThreshold);
+    }
+}
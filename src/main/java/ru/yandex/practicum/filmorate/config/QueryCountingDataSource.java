@@ -0,0 +1,104 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Counts the statements, fetched rows and JDBC time of connections taken inside a {@link QueryCounter}
+ * scope. Connections taken outside one, at startup or by scheduled jobs, are handed out unwrapped and
+ * cost nothing extra.
+ */
+public class QueryCountingDataSource extends DelegatingDataSource {
+
+    public QueryCountingDataSource(DataSource target) {
+        super(target);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Connection connection = obtainTargetDataSource().getConnection();
+        return QueryCounter.current() == null ? connection : counting(connection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        Connection connection = obtainTargetDataSource().getConnection(username, password);
+        return QueryCounter.current() == null ? connection : counting(connection);
+    }
+
+    /**
+     * Wraps the statements the connection creates, remembering the SQL they were prepared with.
+     */
+    private static Connection counting(Connection connection) {
+        return proxy(Connection.class, (proxy, method, args) -> {
+            Object result = invoke(connection, method, args);
+            if (result instanceof Statement statement) {
+                String sql = method.getName().startsWith("prepare") ? (String) args[0] : null;
+                return counting(statement, method.getReturnType(), sql);
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Records every {@code execute*} call into the scope current when it runs, so a connection shared by
+     * nested scopes charges each statement to the innermost one.
+     */
+    private static Object counting(Statement statement, Class<?> type, String preparedSql) {
+        return proxy(type, (proxy, method, args) -> {
+            if (!method.getName().startsWith("execute")) {
+                return counting(invoke(statement, method, args));
+            }
+            QueryStats stats = QueryCounter.current();
+            long started = System.nanoTime();
+            try {
+                return counting(invoke(statement, method, args));
+            } finally {
+                if (stats != null) {
+                    String sql = preparedSql != null || args == null ? preparedSql : (String) args[0];
+                    stats.recordStatement(sql, System.nanoTime() - started);
+                }
+            }
+        });
+    }
+
+    private static Object counting(Object result) {
+        if (!(result instanceof ResultSet resultSet)) {
+            return result;
+        }
+        return proxy(ResultSet.class, (proxy, method, args) -> {
+            if (!"next".equals(method.getName())) {
+                return invoke(resultSet, method, args);
+            }
+            QueryStats stats = QueryCounter.current();
+            long started = System.nanoTime();
+            boolean row = resultSet.next();
+            if (stats != null) {
+                stats.recordFetch(row, System.nanoTime() - started);
+            }
+            return row;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
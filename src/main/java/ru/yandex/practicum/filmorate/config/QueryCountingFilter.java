@@ -0,0 +1,129 @@
+package ru.yandex.practicum.filmorate.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Counts the statements each request runs. The totals go out as {@code X-Query-Count}, {@code X-Query-Rows}
+ * and {@code X-Query-Time} (milliseconds) headers, which are set as the body starts and again at the end if
+ * the response is not committed yet, and into meters by route. Requests running more than {@code budget}
+ * statements, or one statement {@code repeatThreshold} times, are logged with their SQL.
+ * <p>
+ * Streaming responses that query after the handler has returned, such as snapshot exports, are counted
+ * only up to that point.
+ */
+@Slf4j
+public class QueryCountingFilter extends OncePerRequestFilter {
+    public static final String COUNT_HEADER = "X-Query-Count";
+    public static final String ROWS_HEADER = "X-Query-Rows";
+    public static final String TIME_HEADER = "X-Query-Time";
+
+    private final MeterRegistry registry;
+    private final int budget;
+    private final int repeatThreshold;
+
+    public QueryCountingFilter(MeterRegistry registry, int budget, int repeatThreshold) {
+        this.registry = registry;
+        this.budget = budget;
+        this.repeatThreshold = repeatThreshold;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        QueryCounter.Scope scope = QueryCounter.open();
+        QueryHeadersResponse counted = new QueryHeadersResponse(response, scope.stats());
+        try {
+            chain.doFilter(request, counted);
+        } finally {
+            scope.close();
+        }
+        counted.writeHeaders();
+        record(request, scope.stats());
+    }
+
+    private void record(HttpServletRequest request, QueryStats stats) {
+        String method = request.getMethod();
+        String uri = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE) instanceof String pattern
+                ? pattern : "UNKNOWN";
+        DistributionSummary.builder("filmorate.http.queries")
+                .description("Statements run per request, by route")
+                .tags("method", method, "uri", uri)
+                .register(registry)
+                .record(stats.statements());
+        DistributionSummary.builder("filmorate.http.query.rows")
+                .description("Rows fetched per request, by route")
+                .tags("method", method, "uri", uri)
+                .register(registry)
+                .record(stats.rows());
+        Timer.builder("filmorate.http.query.time")
+                .description("Time spent in JDBC per request, by route")
+                .tags("method", method, "uri", uri)
+                .register(registry)
+                .record(stats.time());
+
+        if (stats.statements() > budget) {
+            log.warn("{} {} ran {}, over the budget of {} statements: {}", method, request.getRequestURI(), stats,
+                    budget, stats.executions());
+        }
+        Map.Entry<String, Integer> repeated = stats.mostRepeated();
+        if (repeated != null && repeated.getValue() >= repeatThreshold) {
+            log.warn("{} {} ran the same statement {} times, likely an N+1 query: {}", method,
+                    request.getRequestURI(), repeated.getValue(), repeated.getKey());
+        }
+    }
+
+    /**
+     * Sets the query headers when the body is about to be written, since they cannot be added once it is.
+     */
+    private static class QueryHeadersResponse extends HttpServletResponseWrapper {
+        private final QueryStats stats;
+
+        QueryHeadersResponse(HttpServletResponse response, QueryStats stats) {
+            super(response);
+            this.stats = stats;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            writeHeaders();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            writeHeaders();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            writeHeaders();
+            super.flushBuffer();
+        }
+
+        void writeHeaders() {
+            if (isCommitted()) {
+                return;
+            }
+            setIntHeader(COUNT_HEADER, stats.statements());
+            setHeader(ROWS_HEADER, Long.toString(stats.rows()));
+            setHeader(TIME_HEADER, String.format(Locale.ROOT, "%.3f", stats.time().toNanos() / 1_000_000.0));
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package ru.yandex.practicum.filmorate.config;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Statements run, rows fetched and time spent in JDBC within one {@link QueryCounter} scope, with how often
+ * each SQL string ran. A scope belongs to the thread that opened it, so nothing here is synchronized.
+ */
+public class QueryStats {
+    static final String UNKNOWN_SQL = "<batch>";
+
+    private final Map<String, Integer> executions = new HashMap<>();
+    private int statements;
+    private long rows;
+    private long nanos;
+
+    void recordStatement(String sql, long elapsedNanos) {
+        statements++;
+        nanos += elapsedNanos;
+        executions.merge(sql == null ? UNKNOWN_SQL : sql, 1, Integer::sum);
+    }
+
+    void recordFetch(boolean row, long elapsedNanos) {
+        if (row) {
+            rows++;
+        }
+        nanos += elapsedNanos;
+    }
+
+    void add(QueryStats other) {
+        statements += other.statements;
+        rows += other.rows;
+        nanos += other.nanos;
+        other.executions.forEach((sql, count) -> executions.merge(sql, count, Integer::sum));
+    }
+
+    public int statements() {
+        return statements;
+    }
+
+    public long rows() {
+        return rows;
+    }
+
+    /**
+     * Time spent executing statements and reading their result sets.
+     */
+    public Duration time() {
+        return Duration.ofNanos(nanos);
+    }
+
+    /**
+     * How many times each SQL string ran.
+     */
+    public Map<String, Integer> executions() {
+        return Collections.unmodifiableMap(executions);
+    }
+
+    /**
+     * The statement that ran most often, or {@code null} if none ran; one that ran once per entity of a
+     * list is the usual sign of an N+1 query.
+     */
+    public Map.Entry<String, Integer> mostRepeated() {
+        Map.Entry<String, Integer> most = null;
+        for (Map.Entry<String, Integer> entry : executions.entrySet()) {
+            if (most == null || entry.getValue() > most.getValue()) {
+                most = entry;
+            }
+        }
+        return most;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d statements, %d rows, %.2f ms", statements, rows, nanos / 1_000_000.0);
+    }
+}
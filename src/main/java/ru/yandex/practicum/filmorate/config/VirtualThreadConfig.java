@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Extra wiring for {@code spring.threads.virtual.enabled=true}, which Spring Boot applies to Tomcat, the
+ * task executors and the scheduler (see the {@code virtual-threads} profile). Requests then run
+ * {@code @Transactional} services on virtual threads, and the data source is put behind a
+ * {@link ConnectionLimitingDataSource} so that they queue for connections instead of stampeding the pool.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadConfig {
+
+    @Bean
+    public static BeanPostProcessor connectionLimitingPostProcessor(Environment environment) {
+        int maxConnections = environment.getProperty("filmorate.datasource.max-concurrent-connections",
+                Integer.class, environment.getProperty("spring.datasource.hikari.maximum-pool-size", Integer.class, 10));
+        Duration maxWait = environment.getProperty("filmorate.datasource.connection-wait", Duration.class,
+                Duration.ofSeconds(5));
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ConnectionLimitingDataSource)) {
+                    log.info("Limiting data source '{}' to {} concurrent connections", beanName, maxConnections);
+                    return new ConnectionLimitingDataSource(dataSource, maxConnections, maxWait);
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -1,8 +1,10 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -12,8 +14,11 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
 import ru.yandex.practicum.filmorate.service.FilmService;
 
 import java.time.LocalDate;
@@ -26,11 +31,13 @@ import java.util.List;
 public class FilmController {
 
     private final FilmService filmService;
+    private final ObjectMapper objectMapper;
     private static final LocalDate CINEMA_BIRTHDAY = LocalDate.of(1895, 12, 28);
 
     @Autowired
-    public FilmController(FilmService filmService) {
+    public FilmController(FilmService filmService, ObjectMapper objectMapper) {
         this.filmService = filmService;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping
@@ -50,12 +57,27 @@ public class FilmController {
     }
 
     @GetMapping
-    public Collection<Film> getAllFilms() {
-        return filmService.findAll();
+    public ResponseEntity<Collection<Film>> getAllFilms(@Valid FilmFilter filter, WebRequest request) {
+        if (filter.getLimit() == null) {
+            filter.setLimit(FilmFilter.DEFAULT_LIMIT);
+        }
+        if (request.checkNotModified(filmService.filmsTag())) {
+            return null;
+        }
+        return PageSupport.page(filmService.findAll(filter), filter.getLimit(), Film::getId, request);
+    }
+
+    @GetMapping(produces = NdjsonSupport.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllFilms(@Valid FilmFilter filter) {
+        return NdjsonSupport.stream(objectMapper, Film.class, action -> filmService.streamAll(filter, action));
     }
 
     @GetMapping("/{id}")
-    public Film getFilm(@PathVariable Long id) {
+    public Film getFilm(@PathVariable Long id, WebRequest request) {
+        String tag = filmService.filmTag(id);
+        if (tag != null && request.checkNotModified(tag)) {
+            return null;
+        }
         return filmService.findById(id);
     }
 
@@ -70,8 +92,24 @@ public class FilmController {
     }
 
     @GetMapping("/popular")
-    public List<Film> getPopular(@RequestParam(required = false, defaultValue = "10") Integer count) {
-        return filmService.getPopular(count);
+    public List<Film> getPopular(@RequestParam(required = false, defaultValue = "10") Integer count,
+                                 @RequestParam(required = false) Integer genreId,
+                                 @RequestParam(required = false) Integer year,
+                                 WebRequest request) {
+        if (request.checkNotModified(filmService.filmsTag())) {
+            return null;
+        }
+        return filmService.getPopular(count, genreId, year);
+    }
+
+    @GetMapping("/search")
+    public List<Film> search(@RequestParam String q,
+                             @RequestParam(required = false, defaultValue = "10") Integer limit,
+                             WebRequest request) {
+        if (request.checkNotModified(filmService.filmsTag())) {
+            return null;
+        }
+        return filmService.search(q, limit);
     }
 
     private void validateFilm(Film film) {
@@ -0,0 +1,37 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.model.BulkImportResult;
+import ru.yandex.practicum.filmorate.service.FilmImportService;
+
+import java.io.IOException;
+
+@Slf4j
+@RestController
+@RequestMapping("/films")
+public class FilmImportController {
+    private final FilmImportService filmImportService;
+
+    @Autowired
+    public FilmImportController(FilmImportService filmImportService) {
+        this.filmImportService = filmImportService;
+    }
+
+    /**
+     * Accepts a JSON array or newline-delimited JSON of films. The body is parsed as it arrives, so
+     * large uploads are never held in memory; the response lists the items that were rejected.
+     */
+    @PostMapping(path = "/bulk",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, NdjsonSupport.APPLICATION_NDJSON_VALUE})
+    public BulkImportResult importFilms(HttpServletRequest request) throws IOException {
+        BulkImportResult result = filmImportService.importFilms(request.getInputStream());
+        log.info("Bulk film import finished: {} imported, {} rejected", result.getImported(), result.getFailed());
+        return result;
+    }
+}
@@ -5,6 +5,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.service.GenreService;
 
@@ -22,12 +23,18 @@ public class GenreController {
     }
 
     @GetMapping
-    public List<Genre> getGenres() {
+    public List<Genre> getGenres(WebRequest request) {
+        if (request.checkNotModified(genreService.tag())) {
+            return null;
+        }
         return genreService.findAll();
     }
 
     @GetMapping("/{id}")
-    public Genre getGenre(@PathVariable int id) {
+    public Genre getGenre(@PathVariable int id, WebRequest request) {
+        if (request.checkNotModified(genreService.tag())) {
+            return null;
+        }
         return genreService.findById(id);
     }
 }
@@ -5,6 +5,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import ru.yandex.practicum.filmorate.model.MpaRating;
 import ru.yandex.practicum.filmorate.service.MpaService;
 
@@ -22,12 +23,18 @@ public class MpaController {
     }
 
     @GetMapping
-    public List<MpaRating> getRatings() {
+    public List<MpaRating> getRatings(WebRequest request) {
+        if (request.checkNotModified(mpaService.tag())) {
+            return null;
+        }
         return mpaService.findAll();
     }
 
     @GetMapping("/{id}")
-    public MpaRating getRating(@PathVariable int id) {
+    public MpaRating getRating(@PathVariable int id, WebRequest request) {
+        if (request.checkNotModified(mpaService.tag())) {
+            return null;
+        }
         return mpaService.findById(id);
     }
 }
@@ -0,0 +1,39 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Writes entities as newline-delimited JSON while they are produced, so a listing of any size is sent
+ * without being collected in memory first.
+ */
+final class NdjsonSupport {
+    static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+    static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType(APPLICATION_NDJSON_VALUE);
+
+    private NdjsonSupport() {
+    }
+
+    static <T> ResponseEntity<StreamingResponseBody> stream(ObjectMapper objectMapper, Class<T> type,
+                                                            Consumer<Consumer<T>> producer) {
+        ObjectWriter writer = objectMapper.writerFor(type);
+        StreamingResponseBody body = out -> producer.accept(value -> {
+            try {
+                out.write(writer.writeValueAsBytes(value));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok()
+                .contentType(APPLICATION_NDJSON)
+                .body(body);
+    }
+}
@@ -0,0 +1,42 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.util.Collection;
+import java.util.function.Function;
+
+/**
+ * Sends one keyset page of a JSON listing. A full page may be followed by more, so it carries a
+ * {@code Link: <...?after=<last id>&limit=<limit>>; rel="next"} header with the request's other parameters
+ * kept; a shorter page is the last one and has no such header.
+ */
+final class PageSupport {
+
+    private PageSupport() {
+    }
+
+    static <T> ResponseEntity<Collection<T>> page(Collection<T> page, int limit, Function<T, Long> id,
+                                                  WebRequest request) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        HttpServletRequest servletRequest = request instanceof NativeWebRequest nativeRequest
+                ? nativeRequest.getNativeRequest(HttpServletRequest.class)
+                : null;
+        if (page.size() >= limit && servletRequest != null) {
+            Long lastId = null;
+            for (T value : page) {
+                lastId = id.apply(value);
+            }
+            String next = ServletUriComponentsBuilder.fromRequest(servletRequest)
+                    .replaceQueryParam("after", lastId)
+                    .replaceQueryParam("limit", limit)
+                    .toUriString();
+            response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
+        return response.body(page);
+    }
+}
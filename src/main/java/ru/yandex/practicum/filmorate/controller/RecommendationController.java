@@ -0,0 +1,42 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Positive;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.RecommendationService;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/users")
+public class RecommendationController {
+    private static final int MAX_LIMIT = 1000;
+
+    private final RecommendationService recommendationService;
+
+    @Autowired
+    public RecommendationController(RecommendationService recommendationService) {
+        this.recommendationService = recommendationService;
+    }
+
+    @GetMapping("/{id}/recommendations")
+    public List<Film> getRecommendations(@PathVariable Long id,
+                                         @RequestParam(required = false, defaultValue = "10")
+                                         @Positive @Max(MAX_LIMIT) Integer limit) {
+        return recommendationService.recommend(id, limit);
+    }
+
+    @GetMapping("/{id}/friends/suggestions")
+    public List<User> getFriendSuggestions(@PathVariable Long id,
+                                           @RequestParam(required = false, defaultValue = "10")
+                                           @Positive @Max(MAX_LIMIT) Integer limit) {
+        return recommendationService.suggestFriends(id, limit);
+    }
+}
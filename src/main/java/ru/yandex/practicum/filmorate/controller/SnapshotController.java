@@ -0,0 +1,45 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.service.SnapshotService;
+
+/**
+ * Exports the whole dataset, emails included, so it is only mapped when
+ * {@code filmorate.snapshot.export-enabled} is set to {@code true}.
+ */
+@RestController
+@RequestMapping("/snapshot")
+@ConditionalOnProperty(name = "filmorate.snapshot.export-enabled", havingValue = "true")
+public class SnapshotController {
+    private static final String FILE_NAME = "filmorate.snapshot";
+
+    private final SnapshotService snapshotService;
+
+    @Autowired
+    public SnapshotController(SnapshotService snapshotService) {
+        this.snapshotService = snapshotService;
+    }
+
+    /**
+     * Streams a binary snapshot of the whole dataset as it is written; start the application with
+     * {@code filmorate.snapshot.restore-from} pointing at the file to load it into empty storages.
+     */
+    @GetMapping(produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportSnapshot() {
+        StreamingResponseBody body = snapshotService::export;
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(FILE_NAME).build().toString())
+                .body(body);
+    }
+}
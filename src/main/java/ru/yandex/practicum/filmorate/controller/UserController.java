@@ -1,8 +1,10 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -11,7 +13,10 @@ import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.UserFilter;
 import ru.yandex.practicum.filmorate.service.UserService;
 
 import java.util.Collection;
@@ -23,10 +28,12 @@ import java.util.List;
 public class UserController {
 
     private final UserService userService;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public UserController(UserService userService) {
+    public UserController(UserService userService, ObjectMapper objectMapper) {
         this.userService = userService;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping
@@ -46,12 +53,27 @@ public class UserController {
     }
 
     @GetMapping
-    public Collection<User> getAllUsers() {
-        return userService.findAll();
+    public ResponseEntity<Collection<User>> getAllUsers(@Valid UserFilter filter, WebRequest request) {
+        if (filter.getLimit() == null) {
+            filter.setLimit(UserFilter.DEFAULT_LIMIT);
+        }
+        if (request.checkNotModified(userService.usersTag())) {
+            return null;
+        }
+        return PageSupport.page(userService.findAll(filter), filter.getLimit(), User::getId, request);
+    }
+
+    @GetMapping(produces = NdjsonSupport.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllUsers(@Valid UserFilter filter) {
+        return NdjsonSupport.stream(objectMapper, User.class, action -> userService.streamAll(filter, action));
     }
 
     @GetMapping("/{id}")
-    public User getUser(@PathVariable Long id) {
+    public User getUser(@PathVariable Long id, WebRequest request) {
+        String tag = userService.userTag(id);
+        if (tag != null && request.checkNotModified(tag)) {
+            return null;
+        }
         return userService.findById(id);
     }
 
@@ -0,0 +1,27 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class BulkImportResult {
+    // only the first errors are listed so a bad input cannot blow up the response
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    private int imported;
+    private int failed;
+    private List<BulkImportError> errors = new ArrayList<>();
+
+    public void addImported(int count) {
+        imported += count;
+    }
+
+    public void addError(int index, String message) {
+        failed++;
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add(new BulkImportError(index, message));
+        }
+    }
+}
@@ -1,11 +1,14 @@
 package ru.yandex.practicum.filmorate.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.PastOrPresent;
 import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.Size;
+import lombok.AccessLevel;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import lombok.Setter;
 
 import java.time.LocalDate;
 import java.util.HashSet;
@@ -28,7 +31,25 @@ public class Film {
     // set of userIds who liked this film (ensures one like per user)
     private Set<Long> likes = new HashSet<>();
 
+    // set by setter; a request body without the field leaves it false
+    @JsonIgnore
+    @Setter(AccessLevel.NONE)
+    private boolean likesAssigned;
+
     private MpaRating mpa;
 
     private Set<Genre> genres = new LinkedHashSet<>();
+
+    public void setLikes(Set<Long> likes) {
+        this.likes = likes;
+        this.likesAssigned = likes != null;
+    }
+
+    /**
+     * Whether an update replaces the stored likes: the field was assigned or the default set was filled in.
+     * Otherwise, e.g. for a request body without the field, the stored likes are kept.
+     */
+    public boolean isLikesAssigned() {
+        return likesAssigned || (likes != null && !likes.isEmpty());
+    }
 }
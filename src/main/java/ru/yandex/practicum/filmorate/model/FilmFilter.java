@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate.model;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+
+/**
+ * Query parameters of {@code GET /films}. Films are returned ordered by id; {@code after} is the id of
+ * the last film of the previous page. A JSON page holds {@value DEFAULT_LIMIT} films unless {@code limit}
+ * says otherwise, and a full page links to the next one in a {@code Link} header with {@code rel="next"};
+ * an NDJSON stream has no limit by default.
+ */
+@Data
+public class FilmFilter {
+    public static final int DEFAULT_LIMIT = 100;
+
+    private Long after;
+    @Positive
+    @Max(1000)
+    private Integer limit;
+    private Integer mpaId;
+    private Integer genreId;
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate releaseFrom;
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate releaseTo;
+
+    public FilmFilter copy() {
+        FilmFilter copy = new FilmFilter();
+        copy.after = after;
+        copy.limit = limit;
+        copy.mpaId = mpaId;
+        copy.genreId = genreId;
+        copy.releaseFrom = releaseFrom;
+        copy.releaseTo = releaseTo;
+        return copy;
+    }
+}
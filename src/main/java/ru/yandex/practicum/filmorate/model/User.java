@@ -1,11 +1,14 @@
 package ru.yandex.practicum.filmorate.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.PastOrPresent;
 import jakarta.validation.constraints.Pattern;
+import lombok.AccessLevel;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import lombok.Setter;
 
 import java.time.LocalDate;
 import java.util.HashSet;
@@ -26,4 +29,22 @@ public class User {
     private LocalDate birthday;
 
     private Set<Long> friends = new HashSet<>();
+
+    // set by setter; a request body without the field leaves it false
+    @JsonIgnore
+    @Setter(AccessLevel.NONE)
+    private boolean friendsAssigned;
+
+    public void setFriends(Set<Long> friends) {
+        this.friends = friends;
+        this.friendsAssigned = friends != null;
+    }
+
+    /**
+     * Whether an update replaces the stored friendships: the field was assigned or the default set was filled in.
+     * Otherwise, e.g. for a request body without the field, the stored friendships are kept.
+     */
+    public boolean isFriendsAssigned() {
+        return friendsAssigned || (friends != null && !friends.isEmpty());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,37 @@
+package ru.yandex.practicum.filmorate.model;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+
+/**
+ * Query parameters of {@code GET /users}. Users are returned ordered by id; {@code after} is the id of
+ * the last user of the previous page. A JSON page holds {@value DEFAULT_LIMIT} users unless {@code limit}
+ * says otherwise, and a full page links to the next one in a {@code Link} header with {@code rel="next"};
+ * an NDJSON stream has no limit by default.
+ */
+@Data
+public class UserFilter {
+    public static final int DEFAULT_LIMIT = 100;
+
+    private Long after;
+    @Positive
+    @Max(1000)
+    private Integer limit;
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate birthdayFrom;
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate birthdayTo;
+
+    public UserFilter copy() {
+        UserFilter copy = new UserFilter();
+        copy.after = after;
+        copy.limit = limit;
+        copy.birthdayFrom = birthdayFrom;
+        copy.birthdayTo = birthdayTo;
+        return copy;
+    }
+}
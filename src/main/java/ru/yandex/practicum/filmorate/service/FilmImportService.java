@@ -0,0 +1,179 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.BulkImportResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.ReferenceDataRegistry;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Imports films from a JSON array or newline-delimited JSON without materialising the whole body.
+ * Films are written {@value BATCH_SIZE} at a time, each batch in its own transaction; invalid items are
+ * reported by position and skipped instead of failing the whole import.
+ */
+@Slf4j
+@Service
+public class FilmImportService {
+    private static final int BATCH_SIZE = 1000;
+    private static final LocalDate CINEMA_BIRTHDAY = LocalDate.of(1895, 12, 28);
+
+    private final FilmStorage filmStorage;
+    private final ReferenceDataRegistry referenceData;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+
+    public FilmImportService(FilmStorage filmStorage,
+                             ReferenceDataRegistry referenceData,
+                             ObjectMapper objectMapper,
+                             Validator validator,
+                             TransactionTemplate transactionTemplate) {
+        this.filmStorage = filmStorage;
+        this.referenceData = referenceData;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    public BulkImportResult importFilms(InputStream body) {
+        BulkImportResult result = new BulkImportResult();
+        List<Film> batch = new ArrayList<>(BATCH_SIZE);
+        List<Integer> positions = new ArrayList<>(BATCH_SIZE);
+        int index = 0;
+        try (MappingIterator<Film> films = objectMapper.readerFor(Film.class).readValues(body)) {
+            while (films.hasNextValue()) {
+                Film film;
+                try {
+                    film = films.nextValue();
+                } catch (JsonMappingException e) {
+                    // the iterator skips the rest of a malformed value, so the import can go on
+                    result.addError(index++, e.getOriginalMessage());
+                    continue;
+                }
+                String error = validate(film);
+                if (error != null) {
+                    result.addError(index, error);
+                } else {
+                    batch.add(film);
+                    positions.add(index);
+                }
+                index++;
+                if (batch.size() == BATCH_SIZE) {
+                    flush(batch, positions, result);
+                }
+            }
+        } catch (IOException e) {
+            // broken JSON syntax: nothing after this point can be read reliably
+            log.warn("Bulk film import stopped at item {}: {}", index, e.getMessage());
+            result.addError(index, "Malformed input: " + e.getMessage());
+        }
+        flush(batch, positions, result);
+        return result;
+    }
+
+    private void flush(List<Film> batch, List<Integer> positions, BulkImportResult result) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<Film> resolved = new ArrayList<>(batch.size());
+        List<Integer> resolvedPositions = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            String error = resolveReferences(batch.get(i));
+            if (error != null) {
+                result.addError(positions.get(i), error);
+            } else {
+                resolved.add(batch.get(i));
+                resolvedPositions.add(positions.get(i));
+            }
+        }
+        batch.clear();
+        positions.clear();
+        if (resolved.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> filmStorage.createAll(resolved));
+            result.addImported(resolved.size());
+        } catch (RuntimeException e) {
+            log.warn("Batch of {} films failed, retrying one by one: {}", resolved.size(), e.getMessage());
+            for (int i = 0; i < resolved.size(); i++) {
+                Film film = resolved.get(i);
+                film.setId(null);
+                try {
+                    transactionTemplate.executeWithoutResult(status -> filmStorage.create(film));
+                    result.addImported(1);
+                } catch (RuntimeException single) {
+                    result.addError(resolvedPositions.get(i), rootMessage(single));
+                }
+            }
+        }
+    }
+
+    private String validate(Film film) {
+        if (film == null) {
+            return "Film must not be null";
+        }
+        Set<ConstraintViolation<Film>> violations = validator.validate(film);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                    .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining("; "));
+        }
+        if (film.getReleaseDate() == null || film.getReleaseDate().isBefore(CINEMA_BIRTHDAY)) {
+            return "Film release date cannot be earlier than 28.12.1895";
+        }
+        return null;
+    }
+
+    private String resolveReferences(Film film) {
+        if (film.getMpa() == null || film.getMpa().getId() == 0) {
+            return "Film must have a valid MPA rating";
+        }
+        try {
+            film.setMpa(referenceData.mpa(film.getMpa().getId()));
+            LinkedHashSet<Genre> genres = new LinkedHashSet<>();
+            if (film.getGenres() != null) {
+                film.getGenres().stream()
+                        .filter(Objects::nonNull)
+                        .map(Genre::getId)
+                        .distinct()
+                        .sorted(Comparator.naturalOrder())
+                        .map(referenceData::genre)
+                        .forEach(genres::add);
+            }
+            film.setGenres(genres);
+            return null;
+        } catch (NotFoundException e) {
+            return e.getMessage();
+        }
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable cause = e;
+        while (cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause.getMessage();
+    }
+}
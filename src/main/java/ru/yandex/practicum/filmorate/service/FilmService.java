@@ -1,48 +1,61 @@
 package ru.yandex.practicum.filmorate.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.storage.EntityVersions;
+import ru.yandex.practicum.filmorate.storage.ReferenceDataRegistry;
+import ru.yandex.practicum.filmorate.storage.film.FilmSearchIndex;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.genre.GenreStorage;
 import ru.yandex.practicum.filmorate.storage.mpa.MpaStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
 @Transactional(readOnly = true)
 public class FilmService {
+    private static final int STREAM_CHUNK_SIZE = 500;
+
     private final FilmStorage filmStorage;
     private final UserStorage userStorage;
-    private final GenreStorage genreStorage;
-    private final MpaStorage mpaStorage;
+    private final ReferenceDataRegistry referenceData;
+    private final EntityVersions versions;
 
     @Autowired
-    public FilmService(@Qualifier("filmDbStorage") FilmStorage filmStorage,
-                       @Qualifier("userDbStorage") UserStorage userStorage,
-                       @Qualifier("genreDbStorage") GenreStorage genreStorage,
-                       @Qualifier("mpaDbStorage") MpaStorage mpaStorage) {
+    public FilmService(FilmStorage filmStorage,
+                       UserStorage userStorage,
+                       ReferenceDataRegistry referenceData,
+                       EntityVersions versions) {
         this.filmStorage = filmStorage;
         this.userStorage = userStorage;
-        this.genreStorage = genreStorage;
-        this.mpaStorage = mpaStorage;
+        this.referenceData = referenceData;
+        this.versions = versions;
     }
 
     // временный адаптер для тестов InMemory имплементации
     @Deprecated
     public FilmService(FilmStorage filmStorage, UserStorage userStorage) {
-        this(filmStorage, userStorage, new NoopGenreStorage(), new NoopMpaStorage());
+        this(filmStorage, userStorage,
+                new ReferenceDataRegistry(new NoopGenreStorage(), new NoopMpaStorage(), new EntityVersions(),
+                        Duration.ZERO),
+                new EntityVersions());
     }
 
     static final class NoopGenreStorage implements GenreStorage {
@@ -87,30 +100,85 @@ public class FilmService {
         return filmStorage.update(film);
     }
 
-    public List<Film> findAll() {
-        return new ArrayList<>(filmStorage.findAll());
+    public List<Film> findAll(FilmFilter filter) {
+        return new ArrayList<>(filmStorage.findAll(filter));
+    }
+
+    /**
+     * Feeds every film matching {@code filter} to {@code action}, reading and hydrating
+     * {@value STREAM_CHUNK_SIZE} films at a time by id cursor. Chunks run outside a shared transaction
+     * so a slow reader does not pin a connection.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void streamAll(FilmFilter filter, Consumer<Film> action) {
+        int remaining = filter.getLimit() == null ? Integer.MAX_VALUE : filter.getLimit();
+        // the copy serves as the cursor, so the caller's filter keeps its limit and position
+        FilmFilter page = filter.copy();
+        while (remaining > 0) {
+            int chunkSize = Math.min(STREAM_CHUNK_SIZE, remaining);
+            page.setLimit(chunkSize);
+            Collection<Film> chunk = filmStorage.findAll(page);
+            Long lastId = null;
+            for (Film film : chunk) {
+                action.accept(film);
+                lastId = film.getId();
+            }
+            if (chunk.size() < chunkSize) {
+                return;
+            }
+            remaining -= chunk.size();
+            page.setAfter(lastId);
+        }
     }
 
     public Film findById(Long id) {
         return filmStorage.findById(id);
     }
 
+    public String filmTag(Long id) {
+        return versions.filmTag(id, () -> filmStorage.exists(id));
+    }
+
+    public String filmsTag() {
+        return versions.filmsTag();
+    }
+
     @Transactional
     public void addLike(Long filmId, Long userId) {
-        findById(filmId);
-        userStorage.findById(userId);
+        requireFilmExists(filmId);
+        requireUserExists(userId);
         filmStorage.addLike(filmId, userId);
     }
 
     @Transactional
     public void removeLike(Long filmId, Long userId) {
-        findById(filmId);
-        userStorage.findById(userId);
+        requireFilmExists(filmId);
+        requireUserExists(userId);
         filmStorage.removeLike(filmId, userId);
     }
 
-    public List<Film> getPopular(int count) {
-        return new ArrayList<>(filmStorage.getMostPopular(count));
+    public List<Film> getPopular(int count, Integer genreId, Integer year) {
+        return new ArrayList<>(filmStorage.getMostPopular(count, genreId, year));
+    }
+
+    public List<Film> search(String query, int limit) {
+        if (query == null || query.strip().length() < FilmSearchIndex.MIN_QUERY_LENGTH) {
+            throw new ValidationException("Search query must contain at least "
+                    + FilmSearchIndex.MIN_QUERY_LENGTH + " characters");
+        }
+        return filmStorage.search(query, limit);
+    }
+
+    private void requireFilmExists(Long filmId) {
+        if (!filmStorage.exists(filmId)) {
+            throw new NotFoundException("Film with id " + filmId + " not found");
+        }
+    }
+
+    private void requireUserExists(Long userId) {
+        if (!userStorage.exists(userId)) {
+            throw new NotFoundException("User with id " + userId + " not found");
+        }
     }
 
     private void enrichFilmMetadata(Film film) {
@@ -122,7 +190,7 @@ public class FilmService {
         if (mpa == null || mpa.getId() == 0) {
             throw new ValidationException("Film must have a valid MPA rating");
         }
-        return mpaStorage.findById(mpa.getId());
+        return referenceData.mpa(mpa.getId());
     }
 
     private LinkedHashSet<Genre> resolveGenres(Set<Genre> genres) {
@@ -135,7 +203,7 @@ public class FilmService {
                 .map(Genre::getId)
                 .distinct()
                 .sorted()
-                .map(genreStorage::findById)
+                .map(referenceData::genre)
                 .collect(Collectors.toCollection(LinkedHashSet::new));
     }
 }
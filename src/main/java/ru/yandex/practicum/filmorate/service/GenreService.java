@@ -1,32 +1,36 @@
 package ru.yandex.practicum.filmorate.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.model.Genre;
-import ru.yandex.practicum.filmorate.storage.genre.GenreStorage;
+import ru.yandex.practicum.filmorate.storage.EntityVersions;
+import ru.yandex.practicum.filmorate.storage.ReferenceDataRegistry;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
 
 @Service
 @Transactional(readOnly = true)
 public class GenreService {
-    private final GenreStorage genreStorage;
+    private final ReferenceDataRegistry referenceData;
+    private final EntityVersions versions;
 
     @Autowired
-    public GenreService(@Qualifier("genreDbStorage") GenreStorage genreStorage) {
-        this.genreStorage = genreStorage;
+    public GenreService(ReferenceDataRegistry referenceData, EntityVersions versions) {
+        this.referenceData = referenceData;
+        this.versions = versions;
+    }
+
+    public String tag() {
+        return versions.referenceDataTag();
     }
 
     public List<Genre> findAll() {
-        Collection<Genre> genres = genreStorage.findAll();
-        return new ArrayList<>(genres);
+        return new ArrayList<>(referenceData.genres());
     }
 
     public Genre findById(int id) {
-        return genreStorage.findById(id);
+        return referenceData.genre(id);
     }
 }
@@ -1,32 +1,36 @@
 package ru.yandex.practicum.filmorate.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.model.MpaRating;
-import ru.yandex.practicum.filmorate.storage.mpa.MpaStorage;
+import ru.yandex.practicum.filmorate.storage.EntityVersions;
+import ru.yandex.practicum.filmorate.storage.ReferenceDataRegistry;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
 
 @Service
 @Transactional(readOnly = true)
 public class MpaService {
-    private final MpaStorage mpaStorage;
+    private final ReferenceDataRegistry referenceData;
+    private final EntityVersions versions;
 
     @Autowired
-    public MpaService(@Qualifier("mpaDbStorage") MpaStorage mpaStorage) {
-        this.mpaStorage = mpaStorage;
+    public MpaService(ReferenceDataRegistry referenceData, EntityVersions versions) {
+        this.referenceData = referenceData;
+        this.versions = versions;
+    }
+
+    public String tag() {
+        return versions.referenceDataTag();
     }
 
     public List<MpaRating> findAll() {
-        Collection<MpaRating> ratings = mpaStorage.findAll();
-        return new ArrayList<>(ratings);
+        return new ArrayList<>(referenceData.mpaRatings());
     }
 
     public MpaRating findById(int id) {
-        return mpaStorage.findById(id);
+        return referenceData.mpa(id);
     }
 }
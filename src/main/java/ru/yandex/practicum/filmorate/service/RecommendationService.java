@@ -0,0 +1,53 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmRecommendationIndex;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.FriendSuggestionIndex;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@Service
+@Transactional(readOnly = true)
+public class RecommendationService {
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final FilmRecommendationIndex recommendationIndex;
+    private final FriendSuggestionIndex friendSuggestions;
+
+    @Autowired
+    public RecommendationService(FilmStorage filmStorage,
+                                 UserStorage userStorage,
+                                 FilmRecommendationIndex recommendationIndex,
+                                 FriendSuggestionIndex friendSuggestions) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.recommendationIndex = recommendationIndex;
+        this.friendSuggestions = friendSuggestions;
+    }
+
+    public List<Film> recommend(Long userId, int limit) {
+        requireUserExists(userId);
+        return new ArrayList<>(filmStorage.findByIds(recommendationIndex.recommend(userId, limit)));
+    }
+
+    public List<User> suggestFriends(Long userId, int limit) {
+        requireUserExists(userId);
+        long[] suggested = friendSuggestions.suggest(userId, limit);
+        return userStorage.findByIds(Arrays.stream(suggested).boxed().toList());
+    }
+
+    private void requireUserExists(Long userId) {
+        if (!userStorage.exists(userId)) {
+            throw new NotFoundException("User with id " + userId + " not found");
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.storage.snapshot.SnapshotReader;
+import ru.yandex.practicum.filmorate.storage.snapshot.SnapshotStore;
+import ru.yandex.practicum.filmorate.storage.snapshot.SnapshotWriter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Exports the whole dataset as a binary snapshot and restores one into empty storages.
+ */
+@Slf4j
+@Service
+public class SnapshotService {
+    private final SnapshotStore store;
+
+    public SnapshotService(SnapshotStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Writes a snapshot to {@code out}. With the database storage every table is read in one
+     * repeatable-read transaction, so the snapshot is consistent.
+     */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public void export(OutputStream out) {
+        long started = System.nanoTime();
+        store.export(new SnapshotWriter(out));
+        log.info("Snapshot exported in {} ms", (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /**
+     * Loads the snapshot in {@code file} unless the storages already hold films or users. Rows are written
+     * in batches outside of a single transaction, so a restore that fails halfway leaves what was loaded.
+     *
+     * @return whether the snapshot was loaded
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public boolean restore(Path file) {
+        if (!store.isEmpty()) {
+            log.warn("Snapshot {} not restored: storage already holds data", file);
+            return false;
+        }
+        long started = System.nanoTime();
+        try (InputStream in = Files.newInputStream(file)) {
+            new SnapshotReader(in).read(store.loader());
+        } catch (IOException e) {
+            log.error("Failed to restore snapshot {}", file, e);
+            throw new RuntimeException("Failed to restore snapshot " + file, e);
+        }
+        log.info("Snapshot {} restored in {} ms", file, (System.nanoTime() - started) / 1_000_000);
+        return true;
+    }
+}
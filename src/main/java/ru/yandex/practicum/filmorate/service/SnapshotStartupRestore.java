@@ -0,0 +1,31 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+
+/**
+ * Restores the snapshot named by {@code filmorate.snapshot.restore-from} once all beans are initialised,
+ * before the web server starts accepting requests. Storages that already hold data are left alone, so the
+ * property can stay set across restarts.
+ */
+@Component
+@ConditionalOnProperty(name = "filmorate.snapshot.restore-from")
+public class SnapshotStartupRestore implements SmartInitializingSingleton {
+    private final SnapshotService snapshotService;
+    private final Path file;
+
+    public SnapshotStartupRestore(SnapshotService snapshotService,
+                                  @Value("${filmorate.snapshot.restore-from}") String file) {
+        this.snapshotService = snapshotService;
+        this.file = Path.of(file);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        snapshotService.restore(file);
+    }
+}
@@ -1,24 +1,32 @@
 package ru.yandex.practicum.filmorate.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.UserFilter;
+import ru.yandex.practicum.filmorate.storage.EntityVersions;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 @Service
 @Transactional(readOnly = true)
 public class UserService {
+    private static final int STREAM_CHUNK_SIZE = 500;
+
     private final UserStorage userStorage;
+    private final EntityVersions versions;
 
     @Autowired
-    public UserService(@Qualifier("userDbStorage") UserStorage userStorage) {
+    public UserService(UserStorage userStorage, EntityVersions versions) {
         this.userStorage = userStorage;
+        this.versions = versions;
     }
 
     @Transactional
@@ -31,36 +39,77 @@ public class UserService {
         return userStorage.update(user);
     }
 
-    public Collection<User> findAll() {
-        return userStorage.findAll();
+    public Collection<User> findAll(UserFilter filter) {
+        return userStorage.findAll(filter);
+    }
+
+    /**
+     * Feeds every user matching {@code filter} to {@code action}, reading and hydrating
+     * {@value STREAM_CHUNK_SIZE} users at a time by id cursor.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void streamAll(UserFilter filter, Consumer<User> action) {
+        int remaining = filter.getLimit() == null ? Integer.MAX_VALUE : filter.getLimit();
+        // the copy serves as the cursor, so the caller's filter keeps its limit and position
+        UserFilter page = filter.copy();
+        while (remaining > 0) {
+            int chunkSize = Math.min(STREAM_CHUNK_SIZE, remaining);
+            page.setLimit(chunkSize);
+            Collection<User> chunk = userStorage.findAll(page);
+            Long lastId = null;
+            for (User user : chunk) {
+                action.accept(user);
+                lastId = user.getId();
+            }
+            if (chunk.size() < chunkSize) {
+                return;
+            }
+            remaining -= chunk.size();
+            page.setAfter(lastId);
+        }
     }
 
     public User findById(Long id) {
         return userStorage.findById(id);
     }
 
+    public String userTag(Long id) {
+        return versions.userTag(id, () -> userStorage.exists(id));
+    }
+
+    public String usersTag() {
+        return versions.usersTag();
+    }
+
     @Transactional
     public void addFriend(Long userId, Long friendId) {
-        findById(userId);
-        findById(friendId);
+        requireExists(userId);
+        requireExists(friendId);
         userStorage.addFriend(userId, friendId);
     }
 
     @Transactional
     public void removeFriend(Long userId, Long friendId) {
-        findById(userId);
-        findById(friendId);
+        requireExists(userId);
+        requireExists(friendId);
         userStorage.removeFriend(userId, friendId);
     }
 
     public List<User> getFriends(Long userId) {
-        findById(userId);
+        requireExists(userId);
         return new ArrayList<>(userStorage.getFriends(userId));
     }
 
     public List<User> getCommonFriends(Long userId, Long otherId) {
-        findById(userId);
-        findById(otherId);
+        requireExists(userId);
+        requireExists(otherId);
         return new ArrayList<>(userStorage.getCommonFriends(userId, otherId));
     }
+
+    // validation paths only need the row to exist, not the user with all of its friendships
+    private void requireExists(Long userId) {
+        if (!userStorage.exists(userId)) {
+            throw new NotFoundException("User with id " + userId + " not found");
+        }
+    }
 }
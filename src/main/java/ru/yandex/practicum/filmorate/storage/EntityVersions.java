@@ -0,0 +1,126 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Version stamps behind the HTTP entity tags. Storages report every committed change; a tag is then the
+ * stamp of the last change that could affect the representation, so an unchanged tag means an unchanged
+ * response and a request carrying it can be answered with 304 before any query runs.
+ *
+ * <p>Stamps are taken from one clock and only published after commit. Tags carry the startup time as well,
+ * so tags issued before a restart never match again. Film tags also carry the reference data version,
+ * because a film shows the names of its genres and MPA rating.
+ *
+ * <p>No tag is issued for an entity that does not exist, otherwise a 304 could answer for it. Deleted ids
+ * are remembered; an entity not changed since startup has no stamp of its own, so its storage is asked.
+ */
+@Component
+public class EntityVersions {
+    private final String epoch = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+    private final AtomicLong clock = new AtomicLong();
+    private final Map<Long, Long> films = new ConcurrentHashMap<>();
+    private final Map<Long, Long> users = new ConcurrentHashMap<>();
+    private final Set<Long> deletedFilms = ConcurrentHashMap.newKeySet();
+    private final Set<Long> deletedUsers = ConcurrentHashMap.newKeySet();
+    private final AtomicLong filmsVersion = new AtomicLong();
+    private final AtomicLong usersVersion = new AtomicLong();
+    // raised when a change touches users that are too costly to enumerate, e.g. a deleted friend
+    private final AtomicLong usersBaseline = new AtomicLong();
+    private final AtomicLong referenceDataVersion = new AtomicLong();
+
+    public void filmChanged(Long filmId) {
+        TransactionHooks.afterCommit(() -> {
+            long stamp = clock.incrementAndGet();
+            films.merge(filmId, stamp, Math::max);
+            filmsVersion.accumulateAndGet(stamp, Math::max);
+        });
+    }
+
+    public void filmDeleted(Long filmId) {
+        TransactionHooks.afterCommit(() -> {
+            deletedFilms.add(filmId);
+            films.remove(filmId);
+            filmsVersion.accumulateAndGet(clock.incrementAndGet(), Math::max);
+        });
+    }
+
+    public void userChanged(Long userId) {
+        TransactionHooks.afterCommit(() -> {
+            long stamp = clock.incrementAndGet();
+            users.merge(userId, stamp, Math::max);
+            usersVersion.accumulateAndGet(stamp, Math::max);
+        });
+    }
+
+    public void userDeleted(Long userId) {
+        TransactionHooks.afterCommit(() -> {
+            deletedUsers.add(userId);
+            users.remove(userId);
+            usersVersion.accumulateAndGet(clock.incrementAndGet(), Math::max);
+        });
+    }
+
+    public void allUsersChanged() {
+        TransactionHooks.afterCommit(() -> {
+            long stamp = clock.incrementAndGet();
+            usersBaseline.accumulateAndGet(stamp, Math::max);
+            usersVersion.accumulateAndGet(stamp, Math::max);
+        });
+    }
+
+    public void referenceDataChanged() {
+        TransactionHooks.afterCommit(() -> referenceDataVersion.accumulateAndGet(clock.incrementAndGet(), Math::max));
+    }
+
+    /**
+     * The tag of a film, or {@code null} if it does not exist; {@code exists} is only called for a film
+     * without a stamp of its own.
+     */
+    public String filmTag(Long filmId, BooleanSupplier exists) {
+        if (!isKnown(filmId, films, deletedFilms, exists)) {
+            return null;
+        }
+        return tag("f" + filmId, Math.max(films.getOrDefault(filmId, 0L), referenceDataVersion.get()));
+    }
+
+    // the film list and the popular list both change whenever any film, like or genre or MPA name does
+    public String filmsTag() {
+        return tag("films", Math.max(filmsVersion.get(), referenceDataVersion.get()));
+    }
+
+    /**
+     * The tag of a user, or {@code null} if it does not exist; {@code exists} is only called for a user
+     * without a stamp of its own.
+     */
+    public String userTag(Long userId, BooleanSupplier exists) {
+        if (!isKnown(userId, users, deletedUsers, exists)) {
+            return null;
+        }
+        return tag("u" + userId, Math.max(users.getOrDefault(userId, 0L), usersBaseline.get()));
+    }
+
+    public String usersTag() {
+        return tag("users", usersVersion.get());
+    }
+
+    public String referenceDataTag() {
+        return tag("ref", referenceDataVersion.get());
+    }
+
+    private static boolean isKnown(Long id, Map<Long, Long> stamps, Set<Long> deleted, BooleanSupplier exists) {
+        if (deleted.contains(id)) {
+            return false;
+        }
+        return stamps.containsKey(id) || exists.getAsBoolean();
+    }
+
+    private String tag(String name, long version) {
+        return "\"" + name + "-" + epoch + "-" + version + "\"";
+    }
+}
@@ -0,0 +1,73 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Id-list queries shared by the DB storages. The ids are bound as a single {@code BIGINT} array and joined
+ * as the table {@link #ID_TABLE}, so a query keeps the same SQL text for any number of ids and H2 parses and
+ * plans it once per connection. H2 scans the array first and looks each id up in the joined table's index,
+ * so the cost grows with the rows returned; a {@code = ANY(?)} condition would instead test every scanned row
+ * against the whole array. An H2 array holds at most 65,536 elements, so longer lists are deduplicated and
+ * sent in chunks of {@value #MAX_IDS_PER_QUERY} ids.
+ */
+public final class HydrationSupport {
+    public static final String ID_TABLE = "TABLE(id BIGINT = ?) ids";
+    public static final int MAX_IDS_PER_QUERY = 10_000;
+
+    private HydrationSupport() {
+    }
+
+    public static void queryByIds(JdbcTemplate jdbcTemplate, String sql, Collection<Long> ids,
+                                  RowCallbackHandler handler) {
+        for (List<Long> chunk : chunks(ids)) {
+            jdbcTemplate.query(sql, idArray(chunk), handler);
+        }
+    }
+
+    public static <T> List<T> queryByIds(JdbcTemplate jdbcTemplate, String sql, Collection<Long> ids,
+                                         RowMapper<T> rowMapper) {
+        return queryInChunks(ids, args -> jdbcTemplate.query(sql, args, rowMapper));
+    }
+
+    /**
+     * Runs {@code query} once per chunk of {@code ids} with the chunk bound as its array parameter and
+     * concatenates the results; rows are ordered within a chunk only.
+     */
+    public static <T> List<T> queryInChunks(Collection<Long> ids, Function<PreparedStatementSetter, List<T>> query) {
+        List<T> results = new ArrayList<>();
+        for (List<Long> chunk : chunks(ids)) {
+            results.addAll(query.apply(idArray(chunk)));
+        }
+        return results;
+    }
+
+    public static <T> Map<Long, T> indexById(Collection<T> entities, Function<T, Long> idGetter) {
+        return entities.stream()
+                .collect(Collectors.toMap(idGetter, entity -> entity, (first, second) -> first));
+    }
+
+    public static PreparedStatementSetter idArray(Collection<Long> ids) {
+        return ps -> ps.setArray(1, ps.getConnection().createArrayOf("BIGINT", ids.toArray()));
+    }
+
+    private static List<List<Long>> chunks(Collection<Long> ids) {
+        // a repeated id would join its rows twice
+        List<Long> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int from = 0; from < distinct.size(); from += MAX_IDS_PER_QUERY) {
+            chunks.add(distinct.subList(from, Math.min(distinct.size(), from + MAX_IDS_PER_QUERY)));
+        }
+        return chunks;
+    }
+}
@@ -0,0 +1,177 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.storage.genre.GenreStorage;
+import ru.yandex.practicum.filmorate.storage.mpa.MpaStorage;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * Genres and MPA ratings loaded once and indexed by id in plain arrays, so resolving a reference costs
+ * neither a query nor an allocation. Every film shares the same {@link Genre} and {@link MpaRating}
+ * instances, so the registry hands out read-only subclasses whose setters throw. An unknown id triggers
+ * a reload before it is reported as missing, which picks up rows added to the tables after startup; such
+ * reloads happen at most once per {@code filmorate.reference-data.min-reload-interval}, so requests for
+ * ids that do not exist cannot turn every lookup into two queries.
+ */
+@Slf4j
+@Component
+public class ReferenceDataRegistry {
+    private final GenreStorage genreStorage;
+    private final MpaStorage mpaStorage;
+    private final EntityVersions versions;
+    private final long minReloadIntervalNanos;
+    // not a monitor: a virtual thread that blocks on JDBC while holding one pins its carrier thread
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile Snapshot snapshot;
+    private volatile long loadedAtNanos;
+
+    public ReferenceDataRegistry(@Qualifier("genreDbStorage") GenreStorage genreStorage,
+                                 @Qualifier("mpaDbStorage") MpaStorage mpaStorage,
+                                 EntityVersions versions,
+                                 @Value("${filmorate.reference-data.min-reload-interval:PT5S}")
+                                 Duration minReloadInterval) {
+        this.genreStorage = genreStorage;
+        this.mpaStorage = mpaStorage;
+        this.versions = versions;
+        this.minReloadIntervalNanos = minReloadInterval.toNanos();
+    }
+
+    @PostConstruct
+    public void refresh() {
+        lock.lock();
+        try {
+            List<Genre> genres = genreStorage.findAll().stream().<Genre>map(SharedGenre::new).toList();
+            List<MpaRating> ratings = mpaStorage.findAll().stream().<MpaRating>map(SharedMpaRating::new).toList();
+            Snapshot previous = snapshot;
+            snapshot = new Snapshot(genres, index(genres, Genre::getId, Genre[]::new),
+                    ratings, index(ratings, MpaRating::getId, MpaRating[]::new));
+            // the tag moves only after the new data is visible, and only if the data actually differs
+            if (previous != null && (!previous.genres().equals(genres) || !previous.ratings().equals(ratings))) {
+                versions.referenceDataChanged();
+            }
+            loadedAtNanos = System.nanoTime();
+            log.debug("Reference data loaded: {} genres, {} MPA ratings", genres.size(), ratings.size());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public List<Genre> genres() {
+        return snapshot().genres();
+    }
+
+    public List<MpaRating> mpaRatings() {
+        return snapshot().ratings();
+    }
+
+    public Genre genre(int id) {
+        Genre genre = lookup(snapshot().genresById(), id);
+        if (genre == null) {
+            genre = lookup(reloadOnMiss().genresById(), id);
+        }
+        if (genre == null) {
+            throw new NotFoundException("Genre with id " + id + " not found");
+        }
+        return genre;
+    }
+
+    public MpaRating mpa(int id) {
+        MpaRating rating = lookup(snapshot().ratingsById(), id);
+        if (rating == null) {
+            rating = lookup(reloadOnMiss().ratingsById(), id);
+        }
+        if (rating == null) {
+            throw new NotFoundException("MPA rating with id " + id + " not found");
+        }
+        return rating;
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        return current != null ? current : reload();
+    }
+
+    private Snapshot reload() {
+        refresh();
+        return snapshot;
+    }
+
+    /**
+     * Reloads for an id that is not in the snapshot, unless the last load is more recent than the minimum
+     * reload interval. The check is repeated under the lock, so a burst of misses reloads once.
+     */
+    private Snapshot reloadOnMiss() {
+        if (System.nanoTime() - loadedAtNanos < minReloadIntervalNanos) {
+            return snapshot();
+        }
+        lock.lock();
+        try {
+            if (System.nanoTime() - loadedAtNanos >= minReloadIntervalNanos) {
+                refresh();
+            }
+            return snapshot;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static <T> T lookup(T[] byId, int id) {
+        return id >= 0 && id < byId.length ? byId[id] : null;
+    }
+
+    private static <T> T[] index(List<T> values, ToIntFunction<T> id, IntFunction<T[]> arrayFactory) {
+        int maxId = values.stream().mapToInt(id).max().orElse(-1);
+        T[] byId = arrayFactory.apply(maxId + 1);
+        for (T value : values) {
+            byId[id.applyAsInt(value)] = value;
+        }
+        return byId;
+    }
+
+    private static final class SharedGenre extends Genre {
+        private SharedGenre(Genre genre) {
+            super(genre.getId(), genre.getName());
+        }
+
+        @Override
+        public void setId(int id) {
+            throw new UnsupportedOperationException("Shared genre " + getId() + " must not be modified");
+        }
+
+        @Override
+        public void setName(String name) {
+            throw new UnsupportedOperationException("Shared genre " + getId() + " must not be modified");
+        }
+    }
+
+    private static final class SharedMpaRating extends MpaRating {
+        private SharedMpaRating(MpaRating rating) {
+            super(rating.getId(), rating.getName());
+        }
+
+        @Override
+        public void setId(int id) {
+            throw new UnsupportedOperationException("Shared MPA rating " + getId() + " must not be modified");
+        }
+
+        @Override
+        public void setName(String name) {
+            throw new UnsupportedOperationException("Shared MPA rating " + getId() + " must not be modified");
+        }
+    }
+
+    private record Snapshot(List<Genre> genres, Genre[] genresById, List<MpaRating> ratings, MpaRating[] ratingsById) {
+    }
+}
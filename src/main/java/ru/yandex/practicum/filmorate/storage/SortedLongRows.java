@@ -0,0 +1,277 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A sparse adjacency structure: each key maps to a sorted row of {@code long} values. A row is immutable and
+ * split into chunks of at most {@value CHUNK_SIZE} values, so a writer copies one chunk and the chunk table
+ * instead of the whole row, and readers see a stable row without locking. Writers of one key are serialised
+ * by the map's per-bin lock. {@link #get(long)} flattens a row into one array on first read and keeps it,
+ * so repeated reads of an unchanged row cost nothing.
+ */
+public class SortedLongRows {
+    public static final long[] EMPTY = new long[0];
+    // beyond this size ratio an intersection binary-searches the larger row instead of merging
+    private static final int GALLOP_RATIO = 16;
+    // a chunk that grows past this size is split in two
+    private static final int CHUNK_SIZE = 512;
+
+    private final Map<Long, Row> rows = new ConcurrentHashMap<>();
+
+    public long[] get(long key) {
+        Row row = rows.get(key);
+        return row == null ? EMPTY : row.values();
+    }
+
+    public int rowSize(long key) {
+        Row row = rows.get(key);
+        return row == null ? 0 : row.size;
+    }
+
+    public boolean contains(long key, long value) {
+        Row row = rows.get(key);
+        return row != null && row.contains(value);
+    }
+
+    public boolean add(long key, long value) {
+        boolean[] changed = new boolean[1];
+        rows.compute(key, (k, row) -> {
+            Row updated = row == null ? Row.of(new long[]{value}) : row.add(value);
+            changed[0] = updated != row;
+            return updated;
+        });
+        return changed[0];
+    }
+
+    public boolean remove(long key, long value) {
+        boolean[] changed = new boolean[1];
+        rows.computeIfPresent(key, (k, row) -> {
+            Row updated = row.remove(value);
+            changed[0] = updated != row;
+            return updated;
+        });
+        return changed[0];
+    }
+
+    /**
+     * Replaces a whole row with {@code values}, which must be sorted and distinct.
+     */
+    public void putRow(long key, long[] values) {
+        if (values.length == 0) {
+            rows.remove(key);
+        } else {
+            rows.put(key, Row.of(values));
+        }
+    }
+
+    /**
+     * Drops a whole row and returns what it held.
+     */
+    public long[] removeRow(long key) {
+        Row row = rows.remove(key);
+        return row == null ? EMPTY : row.values();
+    }
+
+    public Set<Long> keys() {
+        return rows.keySet();
+    }
+
+    public int size() {
+        return rows.size();
+    }
+
+    /**
+     * Intersects two sorted arrays: a linear merge for rows of similar size, a binary search of the larger
+     * row for each element of the smaller one otherwise.
+     */
+    public static long[] intersect(long[] first, long[] second) {
+        long[] small = first.length <= second.length ? first : second;
+        long[] large = small == first ? second : first;
+        long[] result = new long[small.length];
+        int size = 0;
+        if (small.length == 0) {
+            return EMPTY;
+        }
+        if ((long) small.length * GALLOP_RATIO < large.length) {
+            int from = 0;
+            for (long value : small) {
+                int position = Arrays.binarySearch(large, from, large.length, value);
+                if (position >= 0) {
+                    result[size++] = value;
+                    from = position + 1;
+                } else {
+                    from = -position - 1;
+                }
+            }
+        } else {
+            int i = 0;
+            int j = 0;
+            while (i < small.length && j < large.length) {
+                if (small[i] < large[j]) {
+                    i++;
+                } else if (small[i] > large[j]) {
+                    j++;
+                } else {
+                    result[size++] = small[i];
+                    i++;
+                    j++;
+                }
+            }
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Collects values in any order and builds all rows in one pass, avoiding a row copy per value.
+     */
+    public static final class Builder {
+        private final Map<Long, GrowingRow> rows = new HashMap<>();
+
+        public void add(long key, long value) {
+            rows.computeIfAbsent(key, k -> new GrowingRow()).add(value);
+        }
+
+        public SortedLongRows build() {
+            SortedLongRows built = new SortedLongRows();
+            rows.forEach((key, row) -> built.rows.put(key, Row.of(row.toSortedArray())));
+            return built;
+        }
+    }
+
+    private static final class GrowingRow {
+        private long[] values = new long[4];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        long[] toSortedArray() {
+            long[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+
+    /**
+     * Sorted chunks, every value of a chunk below every value of the next one. Never empty.
+     */
+    private static final class Row {
+        private final long[][] chunks;
+        private final int size;
+        private volatile long[] flattened;
+
+        private Row(long[][] chunks, int size) {
+            this.chunks = chunks;
+            this.size = size;
+        }
+
+        static Row of(long[] sorted) {
+            long[][] chunks = new long[(sorted.length + CHUNK_SIZE - 1) / CHUNK_SIZE][];
+            for (int i = 0; i < chunks.length; i++) {
+                chunks[i] = Arrays.copyOfRange(sorted, i * CHUNK_SIZE, Math.min(sorted.length, (i + 1) * CHUNK_SIZE));
+            }
+            Row row = new Row(chunks, sorted.length);
+            row.flattened = sorted;
+            return row;
+        }
+
+        long[] values() {
+            long[] values = flattened;
+            if (values == null) {
+                values = new long[size];
+                int offset = 0;
+                for (long[] chunk : chunks) {
+                    System.arraycopy(chunk, 0, values, offset, chunk.length);
+                    offset += chunk.length;
+                }
+                flattened = values;
+            }
+            return values;
+        }
+
+        boolean contains(long value) {
+            return Arrays.binarySearch(chunks[chunkOf(value)], value) >= 0;
+        }
+
+        /**
+         * This row with {@code value} added, or this row itself if it already holds the value.
+         */
+        Row add(long value) {
+            int index = chunkOf(value);
+            long[] chunk = chunks[index];
+            int position = Arrays.binarySearch(chunk, value);
+            if (position >= 0) {
+                return this;
+            }
+            int insertAt = -position - 1;
+            long[] grown = new long[chunk.length + 1];
+            System.arraycopy(chunk, 0, grown, 0, insertAt);
+            grown[insertAt] = value;
+            System.arraycopy(chunk, insertAt, grown, insertAt + 1, chunk.length - insertAt);
+            if (grown.length <= CHUNK_SIZE) {
+                long[][] updated = chunks.clone();
+                updated[index] = grown;
+                return new Row(updated, size + 1);
+            }
+            long[][] updated = new long[chunks.length + 1][];
+            System.arraycopy(chunks, 0, updated, 0, index);
+            updated[index] = Arrays.copyOfRange(grown, 0, grown.length / 2);
+            updated[index + 1] = Arrays.copyOfRange(grown, grown.length / 2, grown.length);
+            System.arraycopy(chunks, index + 1, updated, index + 2, chunks.length - index - 1);
+            return new Row(updated, size + 1);
+        }
+
+        /**
+         * This row without {@code value}: this row itself if it does not hold the value, {@code null} if the
+         * value was the last one.
+         */
+        Row remove(long value) {
+            int index = chunkOf(value);
+            long[] chunk = chunks[index];
+            int position = Arrays.binarySearch(chunk, value);
+            if (position < 0) {
+                return this;
+            }
+            if (size == 1) {
+                return null;
+            }
+            if (chunk.length == 1) {
+                long[][] updated = new long[chunks.length - 1][];
+                System.arraycopy(chunks, 0, updated, 0, index);
+                System.arraycopy(chunks, index + 1, updated, index, chunks.length - index - 1);
+                return new Row(updated, size - 1);
+            }
+            long[] shrunk = new long[chunk.length - 1];
+            System.arraycopy(chunk, 0, shrunk, 0, position);
+            System.arraycopy(chunk, position + 1, shrunk, position, chunk.length - position - 1);
+            long[][] updated = chunks.clone();
+            updated[index] = shrunk;
+            return new Row(updated, size - 1);
+        }
+
+        // the last chunk whose first value is not above value, or the first chunk
+        private int chunkOf(long value) {
+            int low = 1;
+            int high = chunks.length - 1;
+            int found = 0;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if (chunks[middle][0] <= value) {
+                    found = middle;
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            return found;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Helpers for in-process structures that mirror database state: changes are applied right away so the
+ * current transaction reads its own writes, and undone if that transaction does not commit.
+ */
+@Slf4j
+public final class TransactionHooks {
+
+    private TransactionHooks() {
+    }
+
+    /**
+     * Runs {@code action} once the current transaction has committed, or right away outside a transaction.
+     * Meant for signals that must not be observed before the data they describe is visible to others.
+     */
+    public static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Registers {@code undo} to run if the current transaction does not commit; nothing happens outside a
+     * transaction. All undos of a transaction share one log and run newest first, so several changes to the
+     * same key are rolled back to the state before the first of them.
+     */
+    public static void onRollback(Runnable undo) {
+        UndoLog undoLog = undoLog();
+        if (undoLog != null) {
+            undoLog.undos.push(undo);
+        }
+    }
+
+    /**
+     * Runs {@code action} once the current transaction has finished either way, after its undos, or right
+     * away outside a transaction.
+     */
+    public static void afterCompletion(Runnable action) {
+        UndoLog undoLog = undoLog();
+        if (undoLog == null) {
+            action.run();
+        } else {
+            undoLog.completions.add(action);
+        }
+    }
+
+    /**
+     * The log of the current transaction, or {@code null} outside one. It is looked up among the registered
+     * synchronizations rather than bound as a resource, so a suspended outer transaction keeps its own log.
+     */
+    private static UndoLog undoLog() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof UndoLog undoLog) {
+                return undoLog;
+            }
+        }
+        UndoLog undoLog = new UndoLog();
+        TransactionSynchronizationManager.registerSynchronization(undoLog);
+        return undoLog;
+    }
+
+    private static final class UndoLog implements TransactionSynchronization {
+        private final Deque<Runnable> undos = new ArrayDeque<>();
+        private final List<Runnable> completions = new ArrayList<>();
+
+        @Override
+        public void afterCompletion(int status) {
+            if (status != STATUS_COMMITTED) {
+                while (!undos.isEmpty()) {
+                    run(undos.pop());
+                }
+            }
+            completions.forEach(UndoLog::run);
+        }
+
+        private static void run(Runnable action) {
+            try {
+                action.run();
+            } catch (RuntimeException e) {
+                log.error("Failed to finish transaction hook", e);
+            }
+        }
+    }
+}
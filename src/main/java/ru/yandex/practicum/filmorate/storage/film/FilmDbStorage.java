@@ -1,18 +1,32 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
 import ru.yandex.practicum.filmorate.model.Genre;
-import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.storage.EntityVersions;
+import ru.yandex.practicum.filmorate.storage.HydrationSupport;
+import ru.yandex.practicum.filmorate.storage.ReferenceDataRegistry;
 
+import java.sql.Array;
 import java.sql.Date;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDate;
@@ -20,6 +34,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -29,42 +44,88 @@ import java.util.stream.Collectors;
 
 @Slf4j
 @Repository
-@Qualifier("filmDbStorage")
+@ConditionalOnProperty(name = "filmorate.storage.type", havingValue = "db", matchIfMissing = true)
 public class FilmDbStorage implements FilmStorage {
-    private static final String BASE_SELECT = "SELECT f.film_id, f.name, f.description, f.release_date, f.duration, " +
-            "f.mpa_rating_id, m.name AS mpa_name FROM films f JOIN mpa_ratings m ON f.mpa_rating_id = m.mpa_rating_id";
-    private static final String SELECT_ALL_FILMS = BASE_SELECT;
-    private static final String SELECT_FILM_BY_ID = BASE_SELECT + " WHERE f.film_id = ?";
+    // MPA and genre names come from the reference data registry, so neither table is joined
+    static final String BASE_SELECT = "SELECT f.film_id, f.name, f.description, f.release_date, f.duration, " +
+            "f.mpa_rating_id FROM films f";
+    // film, genres and likes in one statement; the aggregates are NULL when a film has no rows
+    static final String HYDRATED_SELECT = "SELECT f.film_id, f.name, f.description, f.release_date, " +
+            "f.duration, f.mpa_rating_id, " +
+            "(SELECT ARRAY_AGG(fg.genre_id ORDER BY fg.genre_id) FROM film_genres fg " +
+            "WHERE fg.film_id = f.film_id) AS genre_ids, " +
+            "(SELECT ARRAY_AGG(fl.user_id) FROM film_likes fl WHERE fl.film_id = f.film_id) AS like_ids " +
+            "FROM films f";
+    private static final String WHERE_FILM_ID = " WHERE f.film_id = ?";
+    private static final String JOIN_FILM_IDS = " JOIN " + HydrationSupport.ID_TABLE + " ON ids.id = f.film_id";
+    private static final String FILM_EXISTS = "SELECT EXISTS (SELECT 1 FROM films WHERE film_id = ?)";
+    private static final String INSERT_FILM = "INSERT INTO films (name, description, release_date, duration, " +
+            "mpa_rating_id, likes_count) VALUES (?, ?, ?, ?, ?, ?)";
     private static final String UPDATE_FILM = "UPDATE films SET name = ?, description = ?, release_date = ?, duration = ?, " +
             "mpa_rating_id = ? WHERE film_id = ?";
     private static final String DELETE_FILM = "DELETE FROM films WHERE film_id = ?";
-    private static final String SELECT_GENRES_BY_FILM_IDS = "SELECT fg.film_id, g.genre_id, g.name FROM film_genres fg " +
-            "JOIN genres g ON fg.genre_id = g.genre_id WHERE fg.film_id IN (%s) ORDER BY g.genre_id";
-    private static final String DELETE_GENRES_BY_FILM_ID = "DELETE FROM film_genres WHERE film_id = ?";
+    private static final String SELECT_GENRES_BY_FILM_IDS = "SELECT fg.film_id, fg.genre_id FROM film_genres fg " +
+            "JOIN " + HydrationSupport.ID_TABLE + " ON ids.id = fg.film_id ORDER BY fg.genre_id";
+    private static final String SELECT_GENRE_IDS_BY_FILM_ID = "SELECT genre_id FROM film_genres WHERE film_id = ?";
     private static final String INSERT_GENRE = "INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)";
-    private static final String SELECT_LIKES_BY_FILM_IDS = "SELECT film_id, user_id FROM film_likes WHERE film_id IN (%s)";
-    private static final String DELETE_LIKES_BY_FILM_ID = "DELETE FROM film_likes WHERE film_id = ?";
-    private static final String MERGE_LIKE = "MERGE INTO film_likes (film_id, user_id) KEY (film_id, user_id) VALUES (?, ?)";
+    private static final String DELETE_GENRE = "DELETE FROM film_genres WHERE film_id = ? AND genre_id = ?";
+    private static final String SELECT_LIKES_BY_FILM_ID = "SELECT user_id FROM film_likes WHERE film_id = ?";
+    private static final String SELECT_LIKES_BY_FILM_IDS = "SELECT fl.film_id, fl.user_id FROM film_likes fl " +
+            "JOIN " + HydrationSupport.ID_TABLE + " ON ids.id = fl.film_id";
+    private static final String SELECT_REQUESTED_LIKES = "SELECT user_id FROM film_likes " +
+            "WHERE film_id = ? AND user_id = ANY(?)";
+    // deletes the likes that were not requested and returns their user ids
+    private static final String DELETE_UNREQUESTED_LIKES = "SELECT user_id FROM OLD TABLE " +
+            "(DELETE FROM film_likes WHERE film_id = ? AND NOT user_id = ANY(?))";
+    private static final String INSERT_LIKE_ROW = "INSERT INTO film_likes (film_id, user_id) VALUES (?, ?)";
+    private static final String INSERT_LIKE = "INSERT INTO film_likes (film_id, user_id) SELECT ?, ? " +
+            "WHERE NOT EXISTS (SELECT 1 FROM film_likes WHERE film_id = ? AND user_id = ?)";
     private static final String DELETE_LIKE = "DELETE FROM film_likes WHERE film_id = ? AND user_id = ?";
-    private static final String SELECT_POPULAR_FILMS = "SELECT f.film_id, f.name, f.description, f.release_date, f.duration, " +
-            "f.mpa_rating_id, m.name AS mpa_name FROM films f " +
-            "JOIN mpa_ratings m ON f.mpa_rating_id = m.mpa_rating_id " +
-            "LEFT JOIN film_likes fl ON f.film_id = fl.film_id " +
-            "GROUP BY f.film_id, f.name, f.description, f.release_date, f.duration, f.mpa_rating_id, m.name " +
-            "ORDER BY COUNT(fl.user_id) DESC, f.film_id " +
-            "LIMIT ?";
+    private static final String INCREMENT_LIKES_COUNT = "UPDATE films SET likes_count = likes_count + ? WHERE film_id = ?";
+    private static final String REPAIR_LIKES_COUNT = "UPDATE films f " +
+            "SET likes_count = (SELECT COUNT(*) FROM film_likes fl WHERE fl.film_id = f.film_id) " +
+            "WHERE f.likes_count <> (SELECT COUNT(*) FROM film_likes fl WHERE fl.film_id = f.film_id)";
 
     private final JdbcTemplate jdbcTemplate;
     private final SimpleJdbcInsert filmInsert;
-    private final RowMapper<Film> filmRowMapper = new FilmRowMapper();
+    private final RowMapper<Film> filmRowMapper;
+    private final RowMapper<Film> hydratedFilmRowMapper;
+    private final FilmPopularityIndex popularityIndex;
+    private final ReferenceDataRegistry referenceData;
+    private final EntityVersions versions;
+    private final FilmRecommendationIndex recommendationIndex;
+    private final FilmSearchIndex searchIndex;
+    private final boolean singleQueryHydration;
 
-    public FilmDbStorage(JdbcTemplate jdbcTemplate) {
+    public FilmDbStorage(JdbcTemplate jdbcTemplate, FilmPopularityIndex popularityIndex,
+                         ReferenceDataRegistry referenceData, EntityVersions versions,
+                         FilmRecommendationIndex recommendationIndex, FilmSearchIndex searchIndex,
+                         @Value("${filmorate.storage.single-query-hydration:true}") boolean singleQueryHydration) {
         this.jdbcTemplate = jdbcTemplate;
+        this.popularityIndex = popularityIndex;
+        this.referenceData = referenceData;
+        this.versions = versions;
+        this.recommendationIndex = recommendationIndex;
+        this.searchIndex = searchIndex;
+        this.singleQueryHydration = singleQueryHydration;
+        this.filmRowMapper = new FilmRowMapper(referenceData);
+        this.hydratedFilmRowMapper = new HydratedFilmRowMapper(referenceData);
         this.filmInsert = new SimpleJdbcInsert(jdbcTemplate)
                 .withTableName("films")
                 .usingGeneratedKeyColumns("film_id");
     }
 
+    /**
+     * Fills the in-process film indexes from the tables; only this storage does, so they stay empty
+     * and untouched by the database when films are kept in memory.
+     */
+    @PostConstruct
+    public void loadIndexes() {
+        popularityIndex.rebuild();
+        searchIndex.load();
+        recommendationIndex.load();
+    }
+
     @Override
     public Film create(Film film) {
         try {
@@ -75,19 +136,89 @@ public class FilmDbStorage implements FilmStorage {
             parameters.put("release_date", toDate(film.getReleaseDate()));
             parameters.put("duration", film.getDuration());
             parameters.put("mpa_rating_id", film.getMpa().getId());
+            parameters.put("likes_count", likesCount(film));
 
             Number generatedId = filmInsert.executeAndReturnKey(parameters);
             film.setId(generatedId.longValue());
 
-            updateGenres(film);
-            updateLikes(film);
-            return findById(film.getId());
+            updateGenres(film, false);
+            updateLikes(film, false);
+            resolveReferenceData(film);
+            popularityIndex.put(film, likesCount(film));
+            searchIndex.put(film.getId(), film.getName());
+            versions.filmChanged(film.getId());
+            return film;
         } catch (DataAccessException e) {
             log.error("Failed to create film {}", film, e);
             throw new RuntimeException("Failed to create film", e);
         }
     }
 
+    /**
+     * Inserts films, their genres and their likes with one JDBC batch per table and assigns the generated
+     * ids in input order.
+     */
+    @Override
+    public List<Film> createAll(List<Film> films) {
+        if (films.isEmpty()) {
+            return films;
+        }
+        try {
+            KeyHolder keyHolder = new GeneratedKeyHolder();
+            jdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_FILM, new String[]{"film_id"}),
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            Film film = films.get(i);
+                            Objects.requireNonNull(film.getMpa(), "Film MPA rating must not be null");
+                            ps.setString(1, film.getName());
+                            ps.setString(2, film.getDescription());
+                            ps.setDate(3, toDate(film.getReleaseDate()));
+                            ps.setInt(4, film.getDuration());
+                            ps.setInt(5, film.getMpa().getId());
+                            ps.setLong(6, likesCount(film));
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return films.size();
+                        }
+                    }, keyHolder);
+            List<Map<String, Object>> keys = keyHolder.getKeyList();
+            List<Object[]> genreArgs = new ArrayList<>();
+            List<Object[]> likeArgs = new ArrayList<>();
+            for (int i = 0; i < films.size(); i++) {
+                Film film = films.get(i);
+                film.setId(((Number) keys.get(i).values().iterator().next()).longValue());
+                if (film.getGenres() != null) {
+                    film.getGenres().stream()
+                            .map(Genre::getId)
+                            .distinct()
+                            .forEach(genreId -> genreArgs.add(new Object[]{film.getId(), genreId}));
+                }
+                if (film.getLikes() != null) {
+                    film.getLikes().forEach(userId -> likeArgs.add(new Object[]{film.getId(), userId}));
+                }
+            }
+            if (!genreArgs.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_GENRE, genreArgs);
+            }
+            if (!likeArgs.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_LIKE_ROW, likeArgs);
+                likeArgs.forEach(args -> recommendationIndex.likeAdded((Long) args[0], (Long) args[1]));
+            }
+            for (Film film : films) {
+                popularityIndex.put(film, likesCount(film));
+                searchIndex.put(film.getId(), film.getName());
+                versions.filmChanged(film.getId());
+            }
+            return films;
+        } catch (DataAccessException e) {
+            log.error("Failed to create {} films", films.size(), e);
+            throw new RuntimeException("Failed to create films", e);
+        }
+    }
+
     @Override
     public Film update(Film film) {
         Objects.requireNonNull(film.getId(), "Film id must not be null for update");
@@ -103,9 +234,18 @@ public class FilmDbStorage implements FilmStorage {
             if (updated == 0) {
                 throw new NotFoundException("Film with id " + film.getId() + " not found");
             }
-            updateGenres(film);
-            updateLikes(film);
-            return findById(film.getId());
+            updateGenres(film, true);
+            if (film.isLikesAssigned()) {
+                updateLikes(film, true);
+            } else {
+                film.setLikes(new HashSet<>(jdbcTemplate.queryForList(SELECT_LIKES_BY_FILM_ID, Long.class,
+                        film.getId())));
+            }
+            resolveReferenceData(film);
+            popularityIndex.put(film, likesCount(film));
+            searchIndex.put(film.getId(), film.getName());
+            versions.filmChanged(film.getId());
+            return film;
         } catch (DataAccessException e) {
             log.error("Failed to update film {}", film, e);
             throw new RuntimeException("Failed to update film", e);
@@ -114,11 +254,44 @@ public class FilmDbStorage implements FilmStorage {
 
     @Override
     public Collection<Film> findAll() {
+        return findAll(new FilmFilter());
+    }
+
+    @Override
+    public Collection<Film> findAll(FilmFilter filter) {
+        List<String> conditions = new ArrayList<>();
+        List<Object> args = new ArrayList<>();
+        if (filter.getAfter() != null) {
+            conditions.add("f.film_id > ?");
+            args.add(filter.getAfter());
+        }
+        if (filter.getMpaId() != null) {
+            conditions.add("f.mpa_rating_id = ?");
+            args.add(filter.getMpaId());
+        }
+        if (filter.getGenreId() != null) {
+            conditions.add("f.film_id IN (SELECT fg.film_id FROM film_genres fg WHERE fg.genre_id = ?)");
+            args.add(filter.getGenreId());
+        }
+        if (filter.getReleaseFrom() != null) {
+            conditions.add("f.release_date >= ?");
+            args.add(toDate(filter.getReleaseFrom()));
+        }
+        if (filter.getReleaseTo() != null) {
+            conditions.add("f.release_date <= ?");
+            args.add(toDate(filter.getReleaseTo()));
+        }
+        StringBuilder query = new StringBuilder();
+        if (!conditions.isEmpty()) {
+            query.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        query.append(" ORDER BY f.film_id");
+        if (filter.getLimit() != null) {
+            query.append(" LIMIT ?");
+            args.add(filter.getLimit());
+        }
         try {
-            List<Film> films = jdbcTemplate.query(SELECT_ALL_FILMS, filmRowMapper);
-            loadGenres(films);
-            loadLikes(films);
-            return films;
+            return queryFilms(query.toString(), new ArgumentPreparedStatementSetter(args.toArray()));
         } catch (DataAccessException e) {
             log.error("Failed to fetch films", e);
             throw new RuntimeException("Failed to fetch films", e);
@@ -128,20 +301,27 @@ public class FilmDbStorage implements FilmStorage {
     @Override
     public Film findById(Long id) {
         try {
-            List<Film> films = jdbcTemplate.query(SELECT_FILM_BY_ID, filmRowMapper, id);
+            List<Film> films = queryFilms(WHERE_FILM_ID, new ArgumentPreparedStatementSetter(new Object[]{id}));
             if (films.isEmpty()) {
                 throw new NotFoundException("Film with id " + id + " not found");
             }
-            Film film = films.get(0);
-            loadGenres(Collections.singletonList(film));
-            loadLikes(Collections.singletonList(film));
-            return film;
+            return films.get(0);
         } catch (DataAccessException e) {
             log.error("Failed to fetch film with id {}", id, e);
             throw new RuntimeException("Failed to fetch film", e);
         }
     }
 
+    @Override
+    public boolean exists(Long id) {
+        try {
+            return Boolean.TRUE.equals(jdbcTemplate.queryForObject(FILM_EXISTS, Boolean.class, id));
+        } catch (DataAccessException e) {
+            log.error("Failed to check film with id {}", id, e);
+            throw new RuntimeException("Failed to check film", e);
+        }
+    }
+
     @Override
     public void delete(Long id) {
         try {
@@ -149,6 +329,10 @@ public class FilmDbStorage implements FilmStorage {
             if (updated == 0) {
                 throw new NotFoundException("Film with id " + id + " not found");
             }
+            popularityIndex.remove(id);
+            recommendationIndex.filmRemoved(id);
+            searchIndex.remove(id);
+            versions.filmDeleted(id);
         } catch (DataAccessException e) {
             log.error("Failed to delete film with id {}", id, e);
             throw new RuntimeException("Failed to delete film", e);
@@ -158,7 +342,15 @@ public class FilmDbStorage implements FilmStorage {
     @Override
     public void addLike(Long filmId, Long userId) {
         try {
-            jdbcTemplate.update(MERGE_LIKE, filmId, userId);
+            int inserted = jdbcTemplate.update(INSERT_LIKE, filmId, userId, filmId, userId);
+            if (inserted > 0) {
+                jdbcTemplate.update(INCREMENT_LIKES_COUNT, 1, filmId);
+                popularityIndex.increment(filmId, 1);
+                recommendationIndex.likeAdded(filmId, userId);
+                versions.filmChanged(filmId);
+            }
+        } catch (DuplicateKeyException e) {
+            log.debug("Like for film {} by user {} already exists", filmId, userId);
         } catch (DataAccessException e) {
             log.error("Failed to add like for film {} by user {}", filmId, userId, e);
             throw new RuntimeException("Failed to add like", e);
@@ -172,6 +364,10 @@ public class FilmDbStorage implements FilmStorage {
             if (updated == 0) {
                 throw new NotFoundException("Like from user " + userId + " not found for film " + filmId);
             }
+            jdbcTemplate.update(INCREMENT_LIKES_COUNT, -1, filmId);
+            popularityIndex.increment(filmId, -1);
+            recommendationIndex.likeRemoved(filmId, userId);
+            versions.filmChanged(filmId);
         } catch (DataAccessException e) {
             log.error("Failed to remove like for film {} by user {}", filmId, userId, e);
             throw new RuntimeException("Failed to remove like", e);
@@ -179,80 +375,206 @@ public class FilmDbStorage implements FilmStorage {
     }
 
     @Override
-    public Collection<Film> getMostPopular(int count) {
+    public Collection<Film> getMostPopular(int count, Integer genreId, Integer year) {
         if (count <= 0) {
             return Collections.emptyList();
         }
         try {
-            List<Film> films = jdbcTemplate.query(SELECT_POPULAR_FILMS, filmRowMapper, count);
-            loadGenres(films);
-            loadLikes(films);
-            return films;
+            // films of transactions that have not committed yet are ranked but not visible here, so the
+            // ranking is read further until count visible films are found or it runs out
+            int wanted = count;
+            while (true) {
+                List<Long> ids = popularityIndex.top(wanted, genreId, year);
+                List<Film> films = findByIds(ids);
+                if (films.size() >= count || ids.size() < wanted) {
+                    return films.size() > count ? films.subList(0, count) : films;
+                }
+                wanted += count - films.size();
+            }
         } catch (DataAccessException e) {
             log.error("Failed to fetch popular films", e);
             throw new RuntimeException("Failed to fetch popular films", e);
         }
     }
 
-    private void updateGenres(Film film) {
+    @Override
+    public List<Film> search(String query, int limit) {
+        try {
+            return findByIds(searchIndex.search(query, limit));
+        } catch (DataAccessException e) {
+            log.error("Failed to search films by '{}'", query, e);
+            throw new RuntimeException("Failed to search films", e);
+        }
+    }
+
+    /**
+     * The in-memory popularity index is a copy of the database here, so it is checked against it
+     * periodically.
+     */
+    @Scheduled(fixedDelayString = "${filmorate.popularity.verify-interval:PT10M}",
+            initialDelayString = "${filmorate.popularity.verify-interval:PT10M}")
+    public int verifyPopularityIndex() {
+        return popularityIndex.verify();
+    }
+
+    /**
+     * Recalculates {@code films.likes_count} from {@code film_likes} for every film whose counter
+     * has drifted, e.g. a database created before the column existed.
+     *
+     * @return number of films whose counter was corrected
+     */
+    public int repairLikesCount() {
+        try {
+            return jdbcTemplate.update(REPAIR_LIKES_COUNT);
+        } catch (DataAccessException e) {
+            log.error("Failed to repair likes count", e);
+            throw new RuntimeException("Failed to repair likes count", e);
+        }
+    }
+
+    /**
+     * Loads films by id preserving the order of {@code ids}; ids without a matching film are skipped.
+     */
+    @Override
+    public List<Film> findByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        try {
+            List<Film> found = HydrationSupport.queryInChunks(ids, args -> queryFilms(JOIN_FILM_IDS, args));
+            Map<Long, Film> filmById = HydrationSupport.indexById(found, Film::getId);
+            return ids.stream()
+                    .map(filmById::get)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+        } catch (DataAccessException e) {
+            log.error("Failed to fetch films {}", ids, e);
+            throw new RuntimeException("Failed to fetch films", e);
+        }
+    }
+
+    /**
+     * Runs a film query with the given WHERE/ORDER BY/LIMIT suffix. With single-query hydration genres and
+     * likes come back as arrays in the same row; otherwise they are loaded by two follow-up queries.
+     */
+    private List<Film> queryFilms(String suffix, PreparedStatementSetter args) {
+        if (singleQueryHydration) {
+            return jdbcTemplate.query(HYDRATED_SELECT + suffix, args, hydratedFilmRowMapper);
+        }
+        List<Film> films = jdbcTemplate.query(BASE_SELECT + suffix, args, filmRowMapper);
+        loadGenres(films);
+        loadLikes(films);
+        return films;
+    }
+
+    /**
+     * Gives a film that was just written the MPA rating and genres of the reference data, genres in id
+     * order as a read returns them, without reading the film back.
+     */
+    private void resolveReferenceData(Film film) {
+        film.setMpa(referenceData.mpa(film.getMpa().getId()));
+        if (film.getGenres() != null) {
+            film.setGenres(film.getGenres().stream()
+                    .map(Genre::getId)
+                    .distinct()
+                    .sorted()
+                    .map(referenceData::genre)
+                    .collect(Collectors.toCollection(LinkedHashSet::new)));
+        }
+    }
+
+    private long likesCount(Film film) {
+        return film.getLikes() == null ? 0 : film.getLikes().size();
+    }
+
+    /**
+     * Brings {@code film_genres} in line with the film's genres, writing only the rows that differ from
+     * what is stored. A new film has nothing stored, so its current rows are not read.
+     */
+    private void updateGenres(Film film, boolean existing) {
         if (film.getId() == null) {
             return;
         }
         try {
-            jdbcTemplate.update(DELETE_GENRES_BY_FILM_ID, film.getId());
-            Set<Genre> genres = film.getGenres();
-            if (genres == null || genres.isEmpty()) {
-                return;
+            Set<Integer> requested = new LinkedHashSet<>();
+            if (film.getGenres() != null) {
+                film.getGenres().forEach(genre -> requested.add(genre.getId()));
             }
-            List<Object[]> batchArgs = new ArrayList<>();
-            for (Genre genre : genres) {
-                batchArgs.add(new Object[]{film.getId(), genre.getId()});
+            Set<Integer> stored = existing
+                    ? new HashSet<>(jdbcTemplate.queryForList(SELECT_GENRE_IDS_BY_FILM_ID, Integer.class, film.getId()))
+                    : Collections.emptySet();
+            List<Object[]> removed = difference(stored, requested, film.getId());
+            List<Object[]> added = difference(requested, stored, film.getId());
+            if (!removed.isEmpty()) {
+                jdbcTemplate.batchUpdate(DELETE_GENRE, removed);
+            }
+            if (!added.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_GENRE, added);
             }
-            jdbcTemplate.batchUpdate(INSERT_GENRE, batchArgs);
         } catch (DataAccessException e) {
             log.error("Failed to update genres for film {}", film.getId(), e);
             throw new RuntimeException("Failed to update film genres", e);
         }
     }
 
-    private void updateLikes(Film film) {
+    /**
+     * Brings {@code film_likes} and {@code likes_count} in line with the film's likes, writing only the
+     * rows that differ. The stored likes are never read in full: only the removed ones and the requested
+     * ones that already exist come back, so a film with many likes costs as much as the change itself.
+     */
+    private void updateLikes(Film film, boolean existing) {
         if (film.getId() == null) {
             return;
         }
         try {
-            jdbcTemplate.update(DELETE_LIKES_BY_FILM_ID, film.getId());
-            Set<Long> likes = film.getLikes();
-            if (likes == null || likes.isEmpty()) {
-                return;
+            Set<Long> requested = film.getLikes() == null ? Collections.emptySet() : film.getLikes();
+            List<Long> removed = Collections.emptyList();
+            Set<Long> stored = Collections.emptySet();
+            if (existing) {
+                PreparedStatementSetter args = ps -> {
+                    ps.setLong(1, film.getId());
+                    ps.setArray(2, ps.getConnection().createArrayOf("BIGINT", requested.toArray()));
+                };
+                removed = jdbcTemplate.query(DELETE_UNREQUESTED_LIKES, args, (rs, rowNum) -> rs.getLong("user_id"));
+                if (!requested.isEmpty()) {
+                    stored = new HashSet<>(jdbcTemplate.query(SELECT_REQUESTED_LIKES, args,
+                            (rs, rowNum) -> rs.getLong("user_id")));
+                }
+            }
+            List<Object[]> added = difference(requested, stored, film.getId());
+            removed.forEach(userId -> recommendationIndex.likeRemoved(film.getId(), userId));
+            if (!added.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_LIKE_ROW, added);
+                added.forEach(args -> recommendationIndex.likeAdded(film.getId(), (Long) args[1]));
+            }
+            if (existing && removed.size() != added.size()) {
+                jdbcTemplate.update(INCREMENT_LIKES_COUNT, added.size() - removed.size(), film.getId());
             }
-            List<Object[]> batchArgs = likes.stream()
-                    .map(userId -> new Object[]{film.getId(), userId})
-                    .collect(Collectors.toList());
-            jdbcTemplate.batchUpdate(MERGE_LIKE, batchArgs);
         } catch (DataAccessException e) {
             log.error("Failed to update likes for film {}", film.getId(), e);
             throw new RuntimeException("Failed to update film likes", e);
         }
     }
 
+    private <T> List<Object[]> difference(Set<T> from, Set<T> subtract, Long filmId) {
+        List<Object[]> batchArgs = new ArrayList<>();
+        for (T value : from) {
+            if (!subtract.contains(value)) {
+                batchArgs.add(new Object[]{filmId, value});
+            }
+        }
+        return batchArgs;
+    }
+
     private void loadGenres(Collection<Film> films) {
         if (films == null || films.isEmpty()) {
             return;
         }
-        Map<Long, Film> filmById = films.stream()
-                .collect(Collectors.toMap(Film::getId, film -> film));
-        if (filmById.isEmpty()) {
-            return;
-        }
-        String placeholders = filmById.keySet().stream()
-                .map(id -> "?")
-                .collect(Collectors.joining(","));
-        String query = String.format(SELECT_GENRES_BY_FILM_IDS, placeholders);
-        Object[] args = filmById.keySet().toArray();
+        Map<Long, Film> filmById = HydrationSupport.indexById(films, Film::getId);
         try {
-            jdbcTemplate.query(query, args, rs -> {
+            HydrationSupport.queryByIds(jdbcTemplate, SELECT_GENRES_BY_FILM_IDS, filmById.keySet(), rs -> {
                 long filmId = rs.getLong("film_id");
-                Genre genre = new Genre(rs.getInt("genre_id"), rs.getString("name"));
+                Genre genre = referenceData.genre(rs.getInt("genre_id"));
                 Film film = filmById.get(filmId);
                 if (film != null) {
                     if (film.getGenres() == null) {
@@ -271,18 +593,9 @@ public class FilmDbStorage implements FilmStorage {
         if (films == null || films.isEmpty()) {
             return;
         }
-        Map<Long, Film> filmById = films.stream()
-                .collect(Collectors.toMap(Film::getId, film -> film));
-        if (filmById.isEmpty()) {
-            return;
-        }
-        String placeholders = filmById.keySet().stream()
-                .map(id -> "?")
-                .collect(Collectors.joining(","));
-        String query = String.format(SELECT_LIKES_BY_FILM_IDS, placeholders);
-        Object[] args = filmById.keySet().toArray();
+        Map<Long, Film> filmById = HydrationSupport.indexById(films, Film::getId);
         try {
-            jdbcTemplate.query(query, args, rs -> {
+            HydrationSupport.queryByIds(jdbcTemplate, SELECT_LIKES_BY_FILM_IDS, filmById.keySet(), rs -> {
                 long filmId = rs.getLong("film_id");
                 long userId = rs.getLong("user_id");
                 Film film = filmById.get(filmId);
@@ -300,7 +613,36 @@ public class FilmDbStorage implements FilmStorage {
         return date == null ? null : Date.valueOf(date);
     }
 
-    private static class FilmRowMapper implements RowMapper<Film> {
+    static class HydratedFilmRowMapper extends FilmRowMapper {
+        HydratedFilmRowMapper(ReferenceDataRegistry referenceData) {
+            super(referenceData);
+        }
+
+        @Override
+        public Film mapRow(ResultSet rs, int rowNum) throws SQLException {
+            Film film = super.mapRow(rs, rowNum);
+            Object[] genreIds = toArray(rs.getArray("genre_ids"));
+            for (Object genreId : genreIds) {
+                film.getGenres().add(referenceData.genre(((Number) genreId).intValue()));
+            }
+            for (Object userId : toArray(rs.getArray("like_ids"))) {
+                film.getLikes().add(((Number) userId).longValue());
+            }
+            return film;
+        }
+
+        private Object[] toArray(Array array) throws SQLException {
+            return array == null ? new Object[0] : (Object[]) array.getArray();
+        }
+    }
+
+    static class FilmRowMapper implements RowMapper<Film> {
+        protected final ReferenceDataRegistry referenceData;
+
+        FilmRowMapper(ReferenceDataRegistry referenceData) {
+            this.referenceData = referenceData;
+        }
+
         @Override
         public Film mapRow(ResultSet rs, int rowNum) throws SQLException {
             Film film = new Film();
@@ -312,7 +654,7 @@ public class FilmDbStorage implements FilmStorage {
                 film.setReleaseDate(releaseDate.toLocalDate());
             }
             film.setDuration(rs.getInt("duration"));
-            film.setMpa(new MpaRating(rs.getInt("mpa_rating_id"), rs.getString("mpa_name")));
+            film.setMpa(referenceData.mpa(rs.getInt("mpa_rating_id")));
             return film;
         }
     }
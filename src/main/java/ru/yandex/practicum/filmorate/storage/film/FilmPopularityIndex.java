@@ -0,0 +1,269 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.TransactionHooks;
+import ru.yandex.practicum.filmorate.storage.film.PopularityBuckets.Membership;
+
+import java.sql.Date;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * In-process copy of the film popularity rankings, global and per genre and release year. It is loaded
+ * from {@code film_likes} by the database film storage on startup and kept current by the film storage,
+ * so popular lists are answered without touching the database. Changes made inside a transaction are
+ * reverted if it rolls back.
+ * <p>
+ * {@link #rebuild()} and {@link #verify()} read the database without blocking changes. Meanwhile every film
+ * that is changed, or belongs to a transaction still open, is tracked: such a film may or may not be
+ * counted right by what the database returned, but the current ranking has seen all of its changes. A
+ * rebuild takes those films from the current ranking when it swaps in the new one, under the write side
+ * of a lock that changes take the read side of; a verification leaves them out.
+ */
+@Slf4j
+@Component
+public class FilmPopularityIndex {
+    private static final String SELECT_LIKE_COUNTS = "SELECT f.film_id, f.release_date, COUNT(fl.user_id) AS likes " +
+            "FROM films f LEFT JOIN film_likes fl ON f.film_id = fl.film_id GROUP BY f.film_id, f.release_date";
+    private static final String SELECT_FILM_GENRES = "SELECT film_id, genre_id FROM film_genres";
+    private static final String SELECT_STORED_LIKE_COUNTS = "SELECT film_id, likes_count AS likes FROM films";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // one rebuild or verification at a time
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    // film id -> number of unfinished transactions that changed it
+    private final Map<Long, Integer> pending = new ConcurrentHashMap<>();
+    // films changed since the running rebuild or verification started reading, null when none runs
+    private volatile Set<Long> touched;
+    private volatile PopularityBuckets ranking = new PopularityBuckets();
+
+    @Getter
+    private volatile Duration lastRebuildDuration = Duration.ZERO;
+    @Getter
+    private volatile Instant lastRebuildAt;
+    @Getter
+    private volatile long rebuildCount;
+
+    @Autowired
+    public FilmPopularityIndex(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * An index without a database, filled only through its change methods; {@link #rebuild()} and
+     * {@link #verify()} are not available on it.
+     */
+    public FilmPopularityIndex() {
+        this(null);
+    }
+
+    public void rebuild() {
+        rebuildLock.lock();
+        try {
+            long started = System.nanoTime();
+            Set<Long> changed = track();
+            PopularityBuckets rebuilt = new PopularityBuckets();
+            try {
+                Map<Long, List<Integer>> genreIds = new HashMap<>();
+                jdbcTemplate.query(SELECT_FILM_GENRES, rs -> {
+                    genreIds.computeIfAbsent(rs.getLong("film_id"), id -> new ArrayList<>()).add(rs.getInt("genre_id"));
+                });
+                jdbcTemplate.query(SELECT_LIKE_COUNTS, rs -> {
+                    long filmId = rs.getLong("film_id");
+                    Date releaseDate = rs.getDate("release_date");
+                    rebuilt.put(filmId, rs.getLong("likes"), Membership.of(
+                            releaseDate == null ? null : releaseDate.toLocalDate(),
+                            genreIds.getOrDefault(filmId, List.of())));
+                });
+            } catch (DataAccessException e) {
+                log.error("Failed to rebuild film popularity index", e);
+                throw new RuntimeException("Failed to rebuild film popularity index", e);
+            }
+            swap(rebuilt, changed);
+            lastRebuildDuration = Duration.ofNanos(System.nanoTime() - started);
+            lastRebuildAt = Instant.now();
+            rebuildCount++;
+            log.info("Film popularity index rebuilt: {} films in {} ms", rebuilt.size(), lastRebuildDuration.toMillis());
+        } finally {
+            touched = null;
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * Compares the index with the like counters stored in {@code films} and rebuilds it on any mismatch.
+     * Only meaningful while the database is the storage, see {@link FilmDbStorage#verifyPopularityIndex()}.
+     *
+     * @return number of films whose count differed
+     */
+    public int verify() {
+        int mismatches = 0;
+        rebuildLock.lock();
+        try {
+            Set<Long> changed = track();
+            Map<Long, Long> stored;
+            Map<Long, Long> indexed;
+            try {
+                stored = loadCounts(SELECT_STORED_LIKE_COUNTS);
+                indexed = ranking.snapshot();
+            } catch (DataAccessException e) {
+                log.error("Failed to verify film popularity index", e);
+                return 0;
+            } finally {
+                touched = null;
+            }
+            for (Map.Entry<Long, Long> entry : stored.entrySet()) {
+                Long likes = indexed.remove(entry.getKey());
+                if (!changed.contains(entry.getKey()) && !Objects.equals(entry.getValue(), likes)) {
+                    mismatches++;
+                }
+            }
+            indexed.keySet().removeAll(changed);
+            mismatches += indexed.size();
+            if (mismatches > 0) {
+                log.warn("Film popularity index is out of sync for {} films, rebuilding", mismatches);
+                rebuild();
+            }
+        } finally {
+            rebuildLock.unlock();
+        }
+        return mismatches;
+    }
+
+    public List<Long> top(int count) {
+        return ranking.top(count);
+    }
+
+    public List<Long> top(int count, Integer genreId, Integer year) {
+        return ranking.top(count, genreId, year);
+    }
+
+    public long likes(long filmId) {
+        Long likes = ranking.likes(filmId);
+        return likes == null ? 0 : likes;
+    }
+
+    public void put(Film film, long likes) {
+        long filmId = film.getId();
+        List<Integer> genreIds = film.getGenres() == null
+                ? List.of()
+                : film.getGenres().stream().map(Genre::getId).toList();
+        Membership membership = Membership.of(film.getReleaseDate(), genreIds);
+        change(filmId, current -> {
+            Long previous = current.likes(filmId);
+            Membership previousMembership = current.membership(filmId);
+            current.put(filmId, likes, membership);
+            return target -> restore(target, filmId, previous, previousMembership);
+        });
+    }
+
+    public void increment(long filmId, long delta) {
+        change(filmId, current -> {
+            current.increment(filmId, delta);
+            return target -> target.increment(filmId, -delta);
+        });
+    }
+
+    public void remove(long filmId) {
+        change(filmId, current -> {
+            Long previous = current.likes(filmId);
+            Membership previousMembership = current.membership(filmId);
+            current.remove(filmId);
+            return target -> restore(target, filmId, previous, previousMembership);
+        });
+    }
+
+    /**
+     * Applies a change to the current ranking and registers the undo it returns. The film counts as pending
+     * until the transaction finishes. The undo goes to whatever ranking is current when the transaction
+     * rolls back: a rebuild in between carries the film over from the ranking the change was applied to.
+     */
+    private void change(long filmId, Function<PopularityBuckets, Consumer<PopularityBuckets>> change) {
+        lock.readLock().lock();
+        try {
+            Consumer<PopularityBuckets> undo = change.apply(ranking);
+            pending.merge(filmId, 1, Integer::sum);
+            // read after the pending count is raised, see track()
+            Set<Long> changed = touched;
+            if (changed != null) {
+                changed.add(filmId);
+            }
+            TransactionHooks.onRollback(() -> {
+                lock.readLock().lock();
+                try {
+                    undo.accept(ranking);
+                } finally {
+                    lock.readLock().unlock();
+                }
+            });
+            TransactionHooks.afterCompletion(() -> pending.computeIfPresent(filmId, (id, count) ->
+                    count == 1 ? null : count - 1));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Starts tracking changed films for a rebuild or verification that is about to read the database.
+     * A change either raised its pending count before the pending films are copied here, or reads the
+     * tracking set after it is installed, so no film changed from now on is missed.
+     */
+    private Set<Long> track() {
+        Set<Long> changed = ConcurrentHashMap.newKeySet();
+        touched = changed;
+        changed.addAll(pending.keySet());
+        return changed;
+    }
+
+    /**
+     * Replaces the ranking with {@code rebuilt}, carrying over the films in {@code changed} as the current
+     * ranking has them, with any uncommitted changes that their undos will later revert.
+     */
+    private void swap(PopularityBuckets rebuilt, Set<Long> changed) {
+        lock.writeLock().lock();
+        try {
+            PopularityBuckets current = ranking;
+            for (long filmId : changed) {
+                restore(rebuilt, filmId, current.likes(filmId), current.membership(filmId));
+            }
+            ranking = rebuilt;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void restore(PopularityBuckets target, long filmId, Long likes, Membership membership) {
+        if (likes == null) {
+            target.remove(filmId);
+        } else {
+            target.put(filmId, likes, membership == null ? Membership.NONE : membership);
+        }
+    }
+
+    private Map<Long, Long> loadCounts(String query) {
+        Map<Long, Long> counts = new HashMap<>();
+        jdbcTemplate.query(query, rs -> {
+            counts.put(rs.getLong("film_id"), rs.getLong("likes"));
+        });
+        return counts;
+    }
+}
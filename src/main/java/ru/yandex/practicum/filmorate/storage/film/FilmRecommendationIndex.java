@@ -0,0 +1,351 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.TransactionHooks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Item-to-item film recommendations. Likes are mirrored from {@code film_likes} into a {@link LikeMatrix};
+ * for every film the {@value NEIGHBOURS_PER_FILM} most similar films (cosine similarity over the users
+ * who liked both) are precomputed on a fork/join pool. A like change only marks its film for
+ * recomputation, which a background refresh picks up, so requests read the current neighbour lists and
+ * never wait for a recompute. Like the other in-process indexes, the matrix takes a change right away and
+ * undoes it if the transaction does not commit.
+ */
+@Slf4j
+@Component
+public class FilmRecommendationIndex {
+    private static final String SELECT_LIKES = "SELECT film_id, user_id FROM film_likes";
+    private static final int NEIGHBOURS_PER_FILM = 50;
+    // likers of a popular film are sampled evenly, bounding the cost of one recompute
+    private static final int MAX_SAMPLED_USERS = 2000;
+    // for a heavy user only the newest liked films (highest ids) seed a recommendation
+    private static final int MAX_SEED_FILMS = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ForkJoinPool pool;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<Long, Neighbours> neighbours = new ConcurrentHashMap<>();
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+    private volatile LikeMatrix matrix = new LikeMatrix();
+
+    @Autowired
+    public FilmRecommendationIndex(JdbcTemplate jdbcTemplate,
+                                   @Value("${filmorate.recommendations.parallelism:0}") int parallelism) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * An index without a database, filled through {@link #load(LikeMatrix)} and the like change methods.
+     */
+    public FilmRecommendationIndex(int parallelism) {
+        this(null, parallelism);
+    }
+
+    /**
+     * Loads the like matrix and schedules every film for neighbour computation. The neighbour lists
+     * themselves are filled in by {@link #refresh()}, so startup does not wait for them.
+     */
+    public void load() {
+        lock.lock();
+        try {
+            LikeMatrix.Builder builder = new LikeMatrix.Builder();
+            try {
+                jdbcTemplate.query(SELECT_LIKES, rs -> {
+                    builder.add(rs.getLong("film_id"), rs.getLong("user_id"));
+                });
+            } catch (DataAccessException e) {
+                log.error("Failed to load film likes for recommendations", e);
+                throw new RuntimeException("Failed to load film likes for recommendations", e);
+            }
+            load(builder.build());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Replaces the like matrix with {@code loaded} and schedules every film for neighbour computation.
+     */
+    public void load(LikeMatrix loaded) {
+        lock.lock();
+        try {
+            matrix = loaded;
+            neighbours.clear();
+            dirty.addAll(matrix.films());
+            log.info("Recommendation like matrix loaded: {} films, {} users", matrix.films().size(), matrix.userCount());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Recomputes the neighbour lists of every film whose likes changed since the last run.
+     *
+     * @return number of films recomputed
+     */
+    @Scheduled(fixedDelayString = "${filmorate.recommendations.refresh-interval:PT5S}")
+    public int refresh() {
+        lock.lock();
+        try {
+            if (dirty.isEmpty()) {
+                return 0;
+            }
+            List<Long> filmIds = new ArrayList<>(dirty.size());
+            for (Iterator<Long> it = dirty.iterator(); it.hasNext(); ) {
+                filmIds.add(it.next());
+                it.remove();
+            }
+            long started = System.nanoTime();
+            pool.submit(() -> filmIds.parallelStream().forEach(this::recompute)).join();
+            log.debug("Recomputed neighbours of {} films in {} ms", filmIds.size(),
+                    (System.nanoTime() - started) / 1_000_000);
+            return filmIds.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Films the user has not liked, ranked by the summed similarity to the films they did like.
+     */
+    public List<Long> recommend(long userId, int limit) {
+        LikeMatrix current = matrix;
+        long[] liked = current.filmsOf(userId);
+        if (liked.length == 0 || limit <= 0) {
+            return Collections.emptyList();
+        }
+        Map<Long, Double> scores = new HashMap<>();
+        for (int i = Math.max(0, liked.length - MAX_SEED_FILMS); i < liked.length; i++) {
+            Neighbours seed = neighbours.get(liked[i]);
+            if (seed == null) {
+                continue;
+            }
+            for (int j = 0; j < seed.filmIds().length; j++) {
+                long candidate = seed.filmIds()[j];
+                if (Arrays.binarySearch(liked, candidate) < 0 && current.likeCount(candidate) > 0) {
+                    scores.merge(candidate, (double) seed.scores()[j], Double::sum);
+                }
+            }
+        }
+        return scores.entrySet().stream()
+                .sorted(Map.Entry.<Long, Double>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    public void likeAdded(long filmId, long userId) {
+        if (add(filmId, userId)) {
+            TransactionHooks.onRollback(() -> remove(filmId, userId));
+        }
+    }
+
+    public void likeRemoved(long filmId, long userId) {
+        if (remove(filmId, userId)) {
+            TransactionHooks.onRollback(() -> add(filmId, userId));
+        }
+    }
+
+    public void filmRemoved(long filmId) {
+        long[] users = matrix.removeFilm(filmId);
+        dirty.remove(filmId);
+        dropNeighbours(filmId);
+        TransactionHooks.onRollback(() -> {
+            for (long userId : users) {
+                add(filmId, userId);
+            }
+        });
+    }
+
+    public void userRemoved(long userId) {
+        long[] films = matrix.removeUser(userId);
+        for (long filmId : films) {
+            dirty.add(filmId);
+        }
+        TransactionHooks.onRollback(() -> {
+            for (long filmId : films) {
+                add(filmId, userId);
+            }
+        });
+    }
+
+    private boolean add(long filmId, long userId) {
+        if (!matrix.add(filmId, userId)) {
+            return false;
+        }
+        dirty.add(filmId);
+        return true;
+    }
+
+    private boolean remove(long filmId, long userId) {
+        if (!matrix.remove(filmId, userId)) {
+            return false;
+        }
+        dirty.add(filmId);
+        return true;
+    }
+
+    private void recompute(long filmId) {
+        LikeMatrix current = matrix;
+        long[] users = current.usersOf(filmId);
+        if (users.length == 0) {
+            dropNeighbours(filmId);
+            return;
+        }
+        int step = Math.max(1, users.length / MAX_SAMPLED_USERS);
+        Map<Long, int[]> coLikes = new HashMap<>();
+        for (int i = 0; i < users.length; i += step) {
+            for (long other : current.filmsOf(users[i])) {
+                if (other != filmId) {
+                    coLikes.computeIfAbsent(other, id -> new int[1])[0]++;
+                }
+            }
+        }
+        PriorityQueue<Neighbour> top = new PriorityQueue<>(NEIGHBOURS_PER_FILM + 1,
+                Comparator.comparingDouble(Neighbour::score));
+        coLikes.forEach((other, count) -> {
+            top.add(new Neighbour(other, similarity(count[0] * step, users.length, current.likeCount(other))));
+            if (top.size() > NEIGHBOURS_PER_FILM) {
+                top.poll();
+            }
+        });
+        Neighbours computed = Neighbours.of(top);
+        Neighbours previous = neighbours.put(filmId, computed);
+        // similarity is symmetric: keep the lists of the new neighbours in step without a full recompute
+        for (int i = 0; i < computed.filmIds().length; i++) {
+            offer(computed.filmIds()[i], filmId, computed.scores()[i]);
+        }
+        // a former neighbour that fell out of the top still lists this film with its old score: give it the
+        // new one, or drop this film from its list when they no longer share a user
+        if (previous != null) {
+            for (long former : previous.filmIds()) {
+                if (!computed.contains(former)) {
+                    int[] count = coLikes.get(former);
+                    if (count == null) {
+                        evict(former, filmId);
+                    } else {
+                        offer(former, filmId, (float) similarity(count[0] * step, users.length,
+                                current.likeCount(former)));
+                    }
+                }
+            }
+        }
+    }
+
+    // cosine similarity of two films from the number of users who liked both
+    private static double similarity(long coLikes, int likes, int otherLikes) {
+        return coLikes / Math.sqrt((double) likes * otherLikes);
+    }
+
+    /**
+     * Forgets the neighbours of a film that lost all its likes or was deleted, and removes the film from
+     * the lists of its neighbours.
+     */
+    private void dropNeighbours(long filmId) {
+        Neighbours previous = neighbours.remove(filmId);
+        if (previous != null) {
+            for (long former : previous.filmIds()) {
+                evict(former, filmId);
+            }
+        }
+    }
+
+    private void evict(long filmId, long neighbourId) {
+        neighbours.computeIfPresent(filmId, (id, existing) -> existing.without(neighbourId));
+    }
+
+    private void offer(long filmId, long neighbourId, float score) {
+        neighbours.compute(filmId, (id, existing) -> {
+            List<Neighbour> merged = new ArrayList<>();
+            if (existing != null) {
+                for (int i = 0; i < existing.filmIds().length; i++) {
+                    if (existing.filmIds()[i] != neighbourId) {
+                        merged.add(new Neighbour(existing.filmIds()[i], existing.scores()[i]));
+                    }
+                }
+            }
+            merged.add(new Neighbour(neighbourId, score));
+            PriorityQueue<Neighbour> top = new PriorityQueue<>(merged.size(), Comparator.comparingDouble(Neighbour::score));
+            for (Neighbour neighbour : merged) {
+                top.add(neighbour);
+                if (top.size() > NEIGHBOURS_PER_FILM) {
+                    top.poll();
+                }
+            }
+            return Neighbours.of(top);
+        });
+    }
+
+    private record Neighbour(long filmId, double score) {
+    }
+
+    /**
+     * Neighbour ids and scores in parallel primitive arrays, best first.
+     */
+    private record Neighbours(long[] filmIds, float[] scores) {
+        static Neighbours of(PriorityQueue<Neighbour> top) {
+            int size = top.size();
+            long[] filmIds = new long[size];
+            float[] scores = new float[size];
+            for (int i = size - 1; i >= 0; i--) {
+                Neighbour neighbour = top.poll();
+                filmIds[i] = neighbour.filmId();
+                scores[i] = (float) neighbour.score();
+            }
+            return new Neighbours(filmIds, scores);
+        }
+
+        boolean contains(long filmId) {
+            for (long id : filmIds) {
+                if (id == filmId) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        Neighbours without(long filmId) {
+            if (!contains(filmId)) {
+                return this;
+            }
+            long[] keptIds = new long[filmIds.length - 1];
+            float[] keptScores = new float[keptIds.length];
+            int size = 0;
+            for (int i = 0; i < filmIds.length; i++) {
+                if (filmIds[i] != filmId) {
+                    keptIds[size] = filmIds[i];
+                    keptScores[size++] = scores[i];
+                }
+            }
+            return new Neighbours(keptIds, keptScores);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.TransactionHooks;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Trigram inverted index over film names. Every run of three characters of a lower-cased name points to
+ * the films containing it through a {@link PostingList}; a query is answered by intersecting the lists of
+ * its own trigrams and confirming the substring on the indexed name. It is loaded by the database film storage
+ * on startup and kept current by the film storage; changes made inside a transaction are reverted if it rolls back.
+ */
+@Slf4j
+@Component
+public class FilmSearchIndex {
+    public static final int MIN_QUERY_LENGTH = 3;
+
+    private static final String SELECT_FILM_NAMES = "SELECT film_id, name FROM films ORDER BY film_id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final FilmPopularityIndex popularityIndex;
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile Index index = new Index(new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+
+    @Autowired
+    public FilmSearchIndex(JdbcTemplate jdbcTemplate, FilmPopularityIndex popularityIndex) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.popularityIndex = popularityIndex;
+    }
+
+    /**
+     * An index without a database, filled only through {@link #put} and {@link #remove}.
+     */
+    public FilmSearchIndex(FilmPopularityIndex popularityIndex) {
+        this(null, popularityIndex);
+    }
+
+    public void load() {
+        lock.lock();
+        try {
+            Map<Long, PostingList.Builder> builders = new HashMap<>();
+            Map<Long, String> names = new ConcurrentHashMap<>();
+            try {
+                jdbcTemplate.query(SELECT_FILM_NAMES, rs -> {
+                    long filmId = rs.getLong("film_id");
+                    String name = normalize(rs.getString("name"));
+                    names.put(filmId, name);
+                    for (long trigram : trigrams(name)) {
+                        builders.computeIfAbsent(trigram, key -> new PostingList.Builder()).append(filmId);
+                    }
+                });
+            } catch (DataAccessException e) {
+                log.error("Failed to load film search index", e);
+                throw new RuntimeException("Failed to load film search index", e);
+            }
+            Map<Long, PostingList> postings = new ConcurrentHashMap<>(builders.size());
+            builders.forEach((trigram, builder) -> postings.put(trigram, builder.build()));
+            index = new Index(postings, names);
+            log.info("Film search index loaded: {} films, {} trigrams", names.size(), postings.size());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Ids of up to {@code limit} films whose name contains {@code query}, ignoring case. Exact names rank
+     * first, then names starting with the query, then names with a word starting with it, then any other
+     * match; within each group films with more likes come first.
+     */
+    public List<Long> search(String query, int limit) {
+        String normalized = normalize(query);
+        if (normalized.length() < MIN_QUERY_LENGTH || limit <= 0) {
+            return List.of();
+        }
+        Index current = index;
+        List<PostingList> lists = new ArrayList<>();
+        for (long trigram : trigrams(normalized)) {
+            PostingList list = current.postings().get(trigram);
+            if (list == null) {
+                return List.of();
+            }
+            lists.add(list);
+        }
+        lists.sort(Comparator.comparingInt(PostingList::size));
+        long[] candidates = lists.get(0).toArray();
+        for (int i = 1; i < lists.size() && candidates.length > 0; i++) {
+            candidates = lists.get(i).retainAll(candidates);
+        }
+        List<Match> matches = new ArrayList<>();
+        for (long filmId : candidates) {
+            String name = current.names().get(filmId);
+            int rank = name == null ? -1 : rank(name, normalized);
+            if (rank >= 0) {
+                matches.add(new Match(filmId, rank, popularityIndex.likes(filmId)));
+            }
+        }
+        return matches.stream()
+                .sorted(Match.ORDER)
+                .limit(limit)
+                .map(Match::filmId)
+                .toList();
+    }
+
+    public void put(long filmId, String name) {
+        Index current = index;
+        String previous = current.names().get(filmId);
+        String normalized = normalize(name);
+        if (normalized.equals(previous)) {
+            return;
+        }
+        current.replace(filmId, previous, normalized);
+        TransactionHooks.onRollback(() -> current.replace(filmId, normalized, previous));
+    }
+
+    public void remove(long filmId) {
+        Index current = index;
+        String previous = current.names().get(filmId);
+        if (previous == null) {
+            return;
+        }
+        current.replace(filmId, previous, null);
+        TransactionHooks.onRollback(() -> current.replace(filmId, null, previous));
+    }
+
+    static String normalize(String text) {
+        return text == null ? "" : text.strip().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Distinct trigrams of a normalized text, each packed into a long as three 16-bit chars.
+     */
+    static Set<Long> trigrams(String text) {
+        Set<Long> trigrams = new LinkedHashSet<>();
+        for (int i = 0; i + MIN_QUERY_LENGTH <= text.length(); i++) {
+            trigrams.add(((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2));
+        }
+        return trigrams;
+    }
+
+    /**
+     * 0 for an exact name, 1 for a prefix, 2 for the start of a later word, 3 for any other occurrence and
+     * -1 when the name does not contain the query at all.
+     */
+    private static int rank(String name, String query) {
+        int position = name.indexOf(query);
+        if (position < 0) {
+            return -1;
+        }
+        if (position == 0) {
+            return name.length() == query.length() ? 0 : 1;
+        }
+        for (; position >= 0; position = name.indexOf(query, position + 1)) {
+            if (!Character.isLetterOrDigit(name.charAt(position - 1))) {
+                return 2;
+            }
+        }
+        return 3;
+    }
+
+    private record Match(long filmId, int rank, long likes) {
+        static final Comparator<Match> ORDER = Comparator.comparingInt(Match::rank)
+                .thenComparing(Comparator.comparingLong(Match::likes).reversed())
+                .thenComparingLong(Match::filmId);
+    }
+
+    private record Index(Map<Long, PostingList> postings, Map<Long, String> names) {
+        /**
+         * Moves a film from the trigrams of {@code from} to those of {@code to}; either may be null.
+         */
+        void replace(long filmId, String from, String to) {
+            Set<Long> removed = from == null ? Set.of() : trigrams(from);
+            Set<Long> added = to == null ? Set.of() : trigrams(to);
+            for (long trigram : removed) {
+                if (!added.contains(trigram)) {
+                    postings.computeIfPresent(trigram, (key, list) -> list.remove(filmId));
+                }
+            }
+            for (long trigram : added) {
+                if (!removed.contains(trigram)) {
+                    postings.compute(trigram, (key, list) -> (list == null ? PostingList.EMPTY : list).add(filmId));
+                }
+            }
+            if (to == null) {
+                names.remove(filmId);
+            } else {
+                names.put(filmId, to);
+            }
+        }
+    }
+}
@@ -1,24 +1,36 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
 
 import java.util.Collection;
+import java.util.List;
 
 public interface FilmStorage {
     Film create(Film film);
 
+    List<Film> createAll(List<Film> films);
+
     Film update(Film film);
 
     Collection<Film> findAll();
 
+    Collection<Film> findAll(FilmFilter filter);
+
     Film findById(Long id);
 
+    boolean exists(Long id);
+
+    List<Film> findByIds(List<Long> ids);
+
     void delete(Long id);
 
     void addLike(Long filmId, Long userId);
 
     void removeLike(Long filmId, Long userId);
 
-    Collection<Film> getMostPopular(int count);
+    Collection<Film> getMostPopular(int count, Integer genreId, Integer year);
+
+    List<Film> search(String query, int limit);
 }
 
@@ -1,68 +1,405 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
-import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.storage.EntityVersions;
+import ru.yandex.practicum.filmorate.storage.SortedLongRows;
+import ru.yandex.practicum.filmorate.storage.TransactionHooks;
+import ru.yandex.practicum.filmorate.storage.journal.JournalRecord;
+import ru.yandex.practicum.filmorate.storage.journal.JournalRecord.FilmDeleted;
+import ru.yandex.practicum.filmorate.storage.journal.JournalRecord.FilmPut;
+import ru.yandex.practicum.filmorate.storage.journal.JournalRecord.LikeAdded;
+import ru.yandex.practicum.filmorate.storage.journal.JournalRecord.LikeRemoved;
+import ru.yandex.practicum.filmorate.storage.journal.StorageJournal;
 
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongPredicate;
+import java.util.stream.Collectors;
 
+/**
+ * Film storage held entirely in process memory, selected with {@code filmorate.storage.type=memory}.
+ * Films live in a concurrent skip list ordered by id, likes in chunked sorted rows per film and per
+ * user, so readers never lock and writers only contend on the same film or user. The popularity, search
+ * and recommendation indexes are fed exactly as by {@link FilmDbStorage}; every change is undone if the
+ * surrounding transaction rolls back. Stored films are private copies: callers get fresh instances.
+ * Every change goes through the {@link StorageJournal}, from which {@link #replay} restores the storage.
+ * Likes given on create or update must come from users that exist, as the {@code film_likes} foreign key
+ * demands; the user storage registers that check with {@link #setUserLookup}.
+ */
 @Component
-@Qualifier("inMemoryFilmStorage")
+@ConditionalOnProperty(name = "filmorate.storage.type", havingValue = "memory")
 public class InMemoryFilmStorage implements FilmStorage {
-    private final Map<Long, Film> films = new HashMap<>();
-    private long nextId = 1;
+    private final ConcurrentNavigableMap<Long, Film> films = new ConcurrentSkipListMap<>();
+    private final SortedLongRows likesByFilm = new SortedLongRows();
+    private final SortedLongRows filmsByUser = new SortedLongRows();
+    private final AtomicLong lastId = new AtomicLong();
+    private final FilmPopularityIndex popularityIndex;
+    private final FilmSearchIndex searchIndex;
+    private final FilmRecommendationIndex recommendationIndex;
+    private final EntityVersions versions;
+    private final StorageJournal journal;
+    private volatile LongPredicate userExists = userId -> true;
+
+    @Autowired
+    public InMemoryFilmStorage(FilmPopularityIndex popularityIndex, FilmSearchIndex searchIndex,
+                               FilmRecommendationIndex recommendationIndex, EntityVersions versions,
+                               StorageJournal journal) {
+        this.popularityIndex = popularityIndex;
+        this.searchIndex = searchIndex;
+        this.recommendationIndex = recommendationIndex;
+        this.versions = versions;
+        this.journal = journal;
+    }
+
+    /**
+     * A standalone storage with indexes of its own, for use outside a Spring context.
+     */
+    public InMemoryFilmStorage() {
+        this(StorageJournal.disabled());
+    }
+
+    public InMemoryFilmStorage(StorageJournal journal) {
+        this(new FilmPopularityIndex(), new EntityVersions(), journal);
+    }
+
+    private InMemoryFilmStorage(FilmPopularityIndex popularityIndex, EntityVersions versions, StorageJournal journal) {
+        this(popularityIndex, new FilmSearchIndex(popularityIndex),
+                new FilmRecommendationIndex(1), versions, journal);
+    }
 
     @Override
     public Film create(Film film) {
-        film.setId(nextId++);
-        films.put(film.getId(), film);
+        Objects.requireNonNull(film.getMpa(), "Film MPA rating must not be null");
+        Set<Long> likes = film.getLikes() == null ? Set.of() : film.getLikes();
+        requireUsers(likes);
+        film.setId(lastId.incrementAndGet());
+        long filmId = film.getId();
+        Film stored = copy(film, Collections.emptySet());
+        journal.apply(new FilmPut(stored), () -> films.putIfAbsent(filmId, stored) == null);
+        TransactionHooks.onRollback(() -> swap(filmId, null));
+        likes.forEach(userId -> like(filmId, userId));
+        popularityIndex.put(film, likes.size());
+        searchIndex.put(filmId, film.getName());
+        versions.filmChanged(filmId);
         return film;
     }
 
+    @Override
+    public List<Film> createAll(List<Film> films) {
+        films.forEach(this::create);
+        return films;
+    }
+
     @Override
     public Film update(Film film) {
-        if (!films.containsKey(film.getId())) {
-            throw new NotFoundException("Film not found");
+        Objects.requireNonNull(film.getId(), "Film id must not be null for update");
+        Objects.requireNonNull(film.getMpa(), "Film MPA rating must not be null");
+        long filmId = film.getId();
+        if (film.isLikesAssigned()) {
+            requireUsers(film.getLikes());
         }
-        films.put(film.getId(), film);
-        return film;
+        Film stored = copy(film, Collections.emptySet());
+        Film previous = swap(filmId, stored);
+        if (previous == null) {
+            throw new NotFoundException("Film with id " + filmId + " not found");
+        }
+        TransactionHooks.onRollback(() -> swap(filmId, previous));
+        if (film.isLikesAssigned()) {
+            Set<Long> requested = film.getLikes();
+            for (long userId : likesByFilm.get(filmId)) {
+                if (!requested.contains(userId)) {
+                    unlike(filmId, userId);
+                }
+            }
+            requested.forEach(userId -> like(filmId, userId));
+        }
+        popularityIndex.put(film, likesByFilm.rowSize(filmId));
+        searchIndex.put(filmId, film.getName());
+        versions.filmChanged(filmId);
+        return hydrate(stored);
     }
 
     @Override
     public Collection<Film> findAll() {
-        return films.values();
+        return films.values().stream()
+                .map(this::hydrate)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Collection<Film> findAll(FilmFilter filter) {
+        Collection<Film> candidates = filter.getAfter() == null
+                ? films.values()
+                : films.tailMap(filter.getAfter(), false).values();
+        return candidates.stream()
+                .filter(film -> filter.getMpaId() == null
+                        || (film.getMpa() != null && film.getMpa().getId() == filter.getMpaId()))
+                .filter(film -> filter.getGenreId() == null || film.getGenres().stream()
+                        .anyMatch(genre -> genre.getId() == filter.getGenreId()))
+                .filter(film -> filter.getReleaseFrom() == null
+                        || !film.getReleaseDate().isBefore(filter.getReleaseFrom()))
+                .filter(film -> filter.getReleaseTo() == null
+                        || !film.getReleaseDate().isAfter(filter.getReleaseTo()))
+                .limit(filter.getLimit() == null ? Long.MAX_VALUE : filter.getLimit())
+                .map(this::hydrate)
+                .collect(Collectors.toList());
     }
 
     @Override
     public Film findById(Long id) {
         Film film = films.get(id);
         if (film == null) {
-            throw new NotFoundException("Film not found");
+            throw new NotFoundException("Film with id " + id + " not found");
         }
-        return film;
+        return hydrate(film);
+    }
+
+    @Override
+    public List<Film> findByIds(List<Long> ids) {
+        return ids.stream()
+                .map(films::get)
+                .filter(Objects::nonNull)
+                .map(this::hydrate)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public boolean exists(Long id) {
+        return films.containsKey(id);
     }
 
     @Override
     public void delete(Long id) {
-        films.remove(id);
+        Film removed = swap(id, null);
+        if (removed == null) {
+            throw new NotFoundException("Film with id " + id + " not found");
+        }
+        TransactionHooks.onRollback(() ->
+                journal.apply(new FilmPut(removed), () -> films.putIfAbsent(id, removed) == null));
+        for (long userId : likesByFilm.get(id)) {
+            unlike(id, userId);
+        }
+        popularityIndex.remove(id);
+        recommendationIndex.filmRemoved(id);
+        searchIndex.remove(id);
+        versions.filmDeleted(id);
     }
 
     @Override
     public void addLike(Long filmId, Long userId) {
-        throw new UnsupportedOperationException("Not Implemented");
+        if (like(filmId, userId)) {
+            popularityIndex.increment(filmId, 1);
+            versions.filmChanged(filmId);
+        }
     }
 
     @Override
     public void removeLike(Long filmId, Long userId) {
-        throw new UnsupportedOperationException("Not Implemented");
+        if (!dropLike(filmId, userId)) {
+            throw new NotFoundException("Like from user " + userId + " not found for film " + filmId);
+        }
     }
 
     @Override
-    public Collection<Film> getMostPopular(int count) {
-        throw new UnsupportedOperationException("Not Implemented");
+    public Collection<Film> getMostPopular(int count, Integer genreId, Integer year) {
+        if (count <= 0) {
+            return Collections.emptyList();
+        }
+        return findByIds(popularityIndex.top(count, genreId, year));
+    }
+
+    @Override
+    public List<Film> search(String query, int limit) {
+        return findByIds(searchIndex.search(query, limit));
+    }
+
+    /**
+     * Sets the check that the users of likes given on create or update must pass; until it is set every user
+     * is accepted.
+     */
+    public void setUserLookup(LongPredicate userExists) {
+        this.userExists = userExists;
+    }
+
+    /**
+     * Drops every like of a deleted user, as the {@code film_likes} foreign key cascade does.
+     */
+    public void removeLikesOf(long userId) {
+        for (long filmId : filmsByUser.get(userId)) {
+            dropLike(filmId, userId);
+        }
     }
-}
 
+    /**
+     * Applies a journaled change while the storage is being restored; records of users and friendships
+     * are ignored. Replaying a change that is already reflected in the storage has no effect.
+     */
+    public void replay(JournalRecord record) {
+        switch (record) {
+            case FilmPut put -> restore(put.film());
+            case FilmDeleted deleted -> {
+                if (exists(deleted.filmId())) {
+                    delete(deleted.filmId());
+                }
+            }
+            case LikeAdded like -> addLike(like.filmId(), like.userId());
+            case LikeRemoved like -> dropLike(like.filmId(), like.userId());
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Stores {@code film} under its own id without journaling it, for restoring the storage. Its likes are
+     * left as they are.
+     */
+    public void restore(Film film) {
+        long filmId = film.getId();
+        lastId.accumulateAndGet(filmId, Math::max);
+        films.put(filmId, copy(film, Collections.emptySet()));
+        popularityIndex.put(film, likesByFilm.rowSize(filmId));
+        searchIndex.put(filmId, film.getName());
+        versions.filmChanged(filmId);
+    }
+
+    /**
+     * Replaces the likes of the films in {@code usersByFilm} without journaling them, for restoring the
+     * storage from a snapshot. Rows are set whole and the recommendation matrix is rebuilt once from all
+     * likes, instead of copying a row per like as {@link #addLike} does.
+     */
+    public void restoreLikes(SortedLongRows usersByFilm) {
+        SortedLongRows.Builder filmsByUserBuilder = new SortedLongRows.Builder();
+        for (long filmId : usersByFilm.keys()) {
+            long[] userIds = usersByFilm.get(filmId);
+            likesByFilm.putRow(filmId, userIds);
+            for (long userId : userIds) {
+                filmsByUserBuilder.add(userId, filmId);
+            }
+            Film film = films.get(filmId);
+            if (film != null) {
+                popularityIndex.put(film, userIds.length);
+            }
+        }
+        SortedLongRows built = filmsByUserBuilder.build();
+        for (long userId : built.keys()) {
+            filmsByUser.putRow(userId, built.get(userId));
+        }
+        LikeMatrix.Builder matrix = new LikeMatrix.Builder();
+        for (long filmId : likesByFilm.keys()) {
+            for (long userId : likesByFilm.get(filmId)) {
+                matrix.add(filmId, userId);
+            }
+        }
+        recommendationIndex.load(matrix.build());
+    }
+
+    /**
+     * Atomically replaces the stored film, or removes it if {@code replacement} is null, and journals the
+     * change.
+     *
+     * @return the film replaced, or {@code null} if there was none
+     */
+    private Film swap(long filmId, Film replacement) {
+        JournalRecord record = replacement == null ? new FilmDeleted(filmId) : new FilmPut(replacement);
+        while (true) {
+            Film current = films.get(filmId);
+            if (current == null) {
+                return null;
+            }
+            boolean swapped = journal.apply(record, () -> replacement == null
+                    ? films.remove(filmId, current)
+                    : films.replace(filmId, current, replacement));
+            if (swapped) {
+                return current;
+            }
+        }
+    }
+
+    private void requireUsers(Collection<Long> userIds) {
+        for (Long userId : userIds) {
+            if (!userExists.test(userId)) {
+                throw new NotFoundException("User with id " + userId + " not found");
+            }
+        }
+    }
+
+    private boolean dropLike(long filmId, long userId) {
+        if (!unlike(filmId, userId)) {
+            return false;
+        }
+        popularityIndex.increment(filmId, -1);
+        versions.filmChanged(filmId);
+        return true;
+    }
+
+    private boolean like(long filmId, long userId) {
+        if (!journal.apply(new LikeAdded(filmId, userId), () -> addLikeRows(filmId, userId))) {
+            return false;
+        }
+        recommendationIndex.likeAdded(filmId, userId);
+        TransactionHooks.onRollback(() ->
+                journal.apply(new LikeRemoved(filmId, userId), () -> removeLikeRows(filmId, userId)));
+        return true;
+    }
+
+    private boolean unlike(long filmId, long userId) {
+        if (!journal.apply(new LikeRemoved(filmId, userId), () -> removeLikeRows(filmId, userId))) {
+            return false;
+        }
+        recommendationIndex.likeRemoved(filmId, userId);
+        TransactionHooks.onRollback(() ->
+                journal.apply(new LikeAdded(filmId, userId), () -> addLikeRows(filmId, userId)));
+        return true;
+    }
+
+    private boolean addLikeRows(long filmId, long userId) {
+        if (!likesByFilm.add(filmId, userId)) {
+            return false;
+        }
+        filmsByUser.add(userId, filmId);
+        return true;
+    }
+
+    private boolean removeLikeRows(long filmId, long userId) {
+        if (!likesByFilm.remove(filmId, userId)) {
+            return false;
+        }
+        filmsByUser.remove(userId, filmId);
+        return true;
+    }
+
+    private Film hydrate(Film stored) {
+        long[] likes = likesByFilm.get(stored.getId());
+        Set<Long> likeSet = new HashSet<>(likes.length * 2);
+        for (long userId : likes) {
+            likeSet.add(userId);
+        }
+        return copy(stored, likeSet);
+    }
+
+    private static Film copy(Film source, Set<Long> likes) {
+        Film film = new Film();
+        film.setId(source.getId());
+        film.setName(source.getName());
+        film.setDescription(source.getDescription());
+        film.setReleaseDate(source.getReleaseDate());
+        film.setDuration(source.getDuration());
+        film.setMpa(source.getMpa());
+        film.setGenres(source.getGenres() == null ? new LinkedHashSet<>() : new LinkedHashSet<>(source.getGenres()));
+        film.setLikes(likes);
+        return film;
+    }
+}
@@ -0,0 +1,94 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import ru.yandex.practicum.filmorate.storage.SortedLongRows;
+
+import java.util.Set;
+
+/**
+ * Sparse user x film like matrix held twice, by film and by user, as {@link SortedLongRows}: readers get
+ * a stable row without locking, and a like copies one chunk of a row rather than all of it.
+ */
+public class LikeMatrix {
+    private final SortedLongRows usersByFilm;
+    private final SortedLongRows filmsByUser;
+
+    public LikeMatrix() {
+        this(new SortedLongRows(), new SortedLongRows());
+    }
+
+    private LikeMatrix(SortedLongRows usersByFilm, SortedLongRows filmsByUser) {
+        this.usersByFilm = usersByFilm;
+        this.filmsByUser = filmsByUser;
+    }
+
+    public boolean add(long filmId, long userId) {
+        boolean added = usersByFilm.add(filmId, userId);
+        filmsByUser.add(userId, filmId);
+        return added;
+    }
+
+    public boolean remove(long filmId, long userId) {
+        boolean removed = usersByFilm.remove(filmId, userId);
+        filmsByUser.remove(userId, filmId);
+        return removed;
+    }
+
+    /**
+     * Drops a film column and returns the users who had liked it.
+     */
+    public long[] removeFilm(long filmId) {
+        long[] users = usersByFilm.removeRow(filmId);
+        for (long userId : users) {
+            filmsByUser.remove(userId, filmId);
+        }
+        return users;
+    }
+
+    /**
+     * Drops a user row and returns the films the user had liked.
+     */
+    public long[] removeUser(long userId) {
+        long[] films = filmsByUser.removeRow(userId);
+        for (long filmId : films) {
+            usersByFilm.remove(filmId, userId);
+        }
+        return films;
+    }
+
+    public long[] usersOf(long filmId) {
+        return usersByFilm.get(filmId);
+    }
+
+    public int likeCount(long filmId) {
+        return usersByFilm.rowSize(filmId);
+    }
+
+    public long[] filmsOf(long userId) {
+        return filmsByUser.get(userId);
+    }
+
+    public Set<Long> films() {
+        return usersByFilm.keys();
+    }
+
+    public int userCount() {
+        return filmsByUser.size();
+    }
+
+    /**
+     * Collects likes in any order and builds the matrix in one pass, avoiding a row copy per like.
+     */
+    public static final class Builder {
+        private final SortedLongRows.Builder usersByFilm = new SortedLongRows.Builder();
+        private final SortedLongRows.Builder filmsByUser = new SortedLongRows.Builder();
+
+        public void add(long filmId, long userId) {
+            usersByFilm.add(filmId, userId);
+            filmsByUser.add(userId, filmId);
+        }
+
+        public LikeMatrix build() {
+            return new LikeMatrix(usersByFilm.build(), filmsByUser.build());
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+
+/**
+ * Backfills {@code films.likes_count} on startup so databases created before the counter column
+ * existed (or touched by hand) serve correct popular lists. Disable it with
+ * {@code filmorate.storage.repair-likes-count=false} once the counters are known to be in sync. Only runs
+ * with the database storage.
+ */
+@Slf4j
+@Component
+@ConditionalOnExpression("${filmorate.storage.repair-likes-count:true} and '${filmorate.storage.type:db}' == 'db'")
+public class LikesCountRepairRunner implements ApplicationRunner {
+    private final FilmDbStorage filmDbStorage;
+
+    public LikesCountRepairRunner(FilmDbStorage filmDbStorage) {
+        this.filmDbStorage = filmDbStorage;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        int repaired = filmDbStorage.repairLikesCount();
+        if (repaired > 0) {
+            log.warn("Repaired likes count for {} films", repaired);
+        }
+    }
+}
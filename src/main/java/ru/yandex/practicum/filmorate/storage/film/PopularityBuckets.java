@@ -0,0 +1,155 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The global popularity ranking together with one ranking per genre and one per release year, so a
+ * filtered popular list is read from a ranking of its own instead of being aggregated from
+ * {@code film_likes}. All changes to a film run inside its membership entry, which keeps the rankings of
+ * one film consistent with each other under concurrent updates.
+ */
+public class PopularityBuckets {
+    private final PopularityRanking all = new PopularityRanking();
+    private final Map<Integer, PopularityRanking> byGenre = new ConcurrentHashMap<>();
+    private final Map<Integer, PopularityRanking> byYear = new ConcurrentHashMap<>();
+    private final Map<Long, Membership> memberships = new ConcurrentHashMap<>();
+
+    public void put(long filmId, long likes, Membership membership) {
+        memberships.compute(filmId, (id, previous) -> {
+            List<PopularityRanking> current = buckets(membership, true);
+            if (previous != null) {
+                for (PopularityRanking bucket : buckets(previous, false)) {
+                    if (!containsSame(current, bucket)) {
+                        bucket.remove(id);
+                    }
+                }
+            }
+            all.put(id, likes);
+            current.forEach(bucket -> bucket.put(id, likes));
+            return membership;
+        });
+    }
+
+    public void increment(long filmId, long delta) {
+        memberships.computeIfPresent(filmId, (id, membership) -> {
+            all.increment(id, delta);
+            buckets(membership, false).forEach(bucket -> bucket.increment(id, delta));
+            return membership;
+        });
+    }
+
+    public void remove(long filmId) {
+        memberships.compute(filmId, (id, membership) -> {
+            all.remove(id);
+            buckets(membership, false).forEach(bucket -> bucket.remove(id));
+            return null;
+        });
+    }
+
+    public Long likes(long filmId) {
+        return all.likes(filmId);
+    }
+
+    public Membership membership(long filmId) {
+        return memberships.get(filmId);
+    }
+
+    public List<Long> top(int count) {
+        return all.top(count);
+    }
+
+    /**
+     * Top films of a genre and/or release year. With both filters the smaller of the two rankings is
+     * walked and checked against the other filter.
+     */
+    public List<Long> top(int count, Integer genreId, Integer year) {
+        if (genreId == null && year == null) {
+            return all.top(count);
+        }
+        PopularityRanking genreRanking = genreId == null ? null : byGenre.get(genreId);
+        PopularityRanking yearRanking = year == null ? null : byYear.get(year);
+        if ((genreId != null && genreRanking == null) || (year != null && yearRanking == null)) {
+            return Collections.emptyList();
+        }
+        if (yearRanking == null) {
+            return genreRanking.top(count);
+        }
+        if (genreRanking == null) {
+            return yearRanking.top(count);
+        }
+        if (genreRanking.size() <= yearRanking.size()) {
+            return genreRanking.top(count, filmId -> {
+                Membership membership = memberships.get(filmId);
+                return membership != null && year.equals(membership.year());
+            });
+        }
+        return yearRanking.top(count, filmId -> {
+            Membership membership = memberships.get(filmId);
+            return membership != null && membership.hasGenre(genreId);
+        });
+    }
+
+    public Map<Long, Long> snapshot() {
+        return all.snapshot();
+    }
+
+    public int size() {
+        return all.size();
+    }
+
+    private List<PopularityRanking> buckets(Membership membership, boolean create) {
+        if (membership == null) {
+            return Collections.emptyList();
+        }
+        List<PopularityRanking> buckets = new ArrayList<>(membership.genreIds().length + 1);
+        for (int genreId : membership.genreIds()) {
+            PopularityRanking bucket = create
+                    ? byGenre.computeIfAbsent(genreId, id -> new PopularityRanking())
+                    : byGenre.get(genreId);
+            if (bucket != null) {
+                buckets.add(bucket);
+            }
+        }
+        if (membership.year() != null) {
+            PopularityRanking bucket = create
+                    ? byYear.computeIfAbsent(membership.year(), id -> new PopularityRanking())
+                    : byYear.get(membership.year());
+            if (bucket != null) {
+                buckets.add(bucket);
+            }
+        }
+        return buckets;
+    }
+
+    private static boolean containsSame(List<PopularityRanking> buckets, PopularityRanking bucket) {
+        for (PopularityRanking candidate : buckets) {
+            if (candidate == bucket) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The buckets a film belongs to: its release year (if known) and its genres.
+     */
+    public record Membership(Integer year, int[] genreIds) {
+        public static final Membership NONE = new Membership(null, new int[0]);
+
+        public static Membership of(LocalDate releaseDate, Collection<Integer> genreIds) {
+            return new Membership(releaseDate == null ? null : releaseDate.getYear(),
+                    genreIds.stream().mapToInt(Integer::intValue).distinct().toArray());
+        }
+
+        public boolean hasGenre(int genreId) {
+            return Arrays.stream(genreIds).anyMatch(id -> id == genreId);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.LongPredicate;
+
+/**
+ * Thread-safe film ranking ordered by like count (descending) and film id, the same order as
+ * {@code GET /films/popular}. Reading the top {@code n} films costs O(n).
+ */
+public class PopularityRanking {
+    private static final Comparator<Entry> ORDER = Comparator.comparingLong(Entry::likes).reversed()
+            .thenComparingLong(Entry::filmId);
+
+    private final Map<Long, Long> likesByFilm = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Entry> ranking = new ConcurrentSkipListSet<>(ORDER);
+
+    public void put(long filmId, long likes) {
+        likesByFilm.compute(filmId, (id, previous) -> {
+            // add before remove, so the film is never absent from the set; see top() for what a reader may miss
+            ranking.add(new Entry(id, likes));
+            if (previous != null && previous != likes) {
+                ranking.remove(new Entry(id, previous));
+            }
+            return likes;
+        });
+    }
+
+    /**
+     * Adds {@code delta} to the likes of a ranked film and ignores films that are not ranked, so an
+     * increment is always undone exactly by the opposite one.
+     */
+    public void increment(long filmId, long delta) {
+        likesByFilm.computeIfPresent(filmId, (id, previous) -> {
+            long likes = previous + delta;
+            if (likes != previous) {
+                ranking.add(new Entry(id, likes));
+                ranking.remove(new Entry(id, previous));
+            }
+            return likes;
+        });
+    }
+
+    public void remove(long filmId) {
+        likesByFilm.computeIfPresent(filmId, (id, previous) -> {
+            ranking.remove(new Entry(id, previous));
+            return null;
+        });
+    }
+
+    public Long likes(long filmId) {
+        return likesByFilm.get(filmId);
+    }
+
+    public List<Long> top(int count) {
+        return top(count, filmId -> true);
+    }
+
+    /**
+     * Returns the ids of the {@code count} most liked films accepted by {@code filter}. The cost grows with
+     * the number of films skipped, so the filter should reject few of them.
+     * <p>
+     * The ranking is read without a lock while likes change, and a film moves by adding its new entry before
+     * removing the old one. A film that is read and then moves down is seen again at its new entry, and
+     * the duplicate is dropped. A film that moves up from ahead of the read position to behind it is missed
+     * when its old entry is removed before the read reaches it. Films whose likes do not change during the
+     * read are always returned in order.
+     */
+    public List<Long> top(int count, LongPredicate filter) {
+        if (count <= 0) {
+            return Collections.emptyList();
+        }
+        Set<Long> filmIds = new LinkedHashSet<>();
+        for (Entry entry : ranking) {
+            if (filmIds.size() >= count) {
+                break;
+            }
+            if (filter.test(entry.filmId())) {
+                filmIds.add(entry.filmId());
+            }
+        }
+        return new ArrayList<>(filmIds);
+    }
+
+    public Map<Long, Long> snapshot() {
+        return new HashMap<>(likesByFilm);
+    }
+
+    public int size() {
+        return likesByFilm.size();
+    }
+
+    private record Entry(long filmId, long likes) {
+    }
+}
@@ -0,0 +1,163 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import java.util.Arrays;
+
+/**
+ * An immutable sorted set of film ids stored as varint-encoded gaps: each id is written as its distance
+ * from the previous one, seven bits per byte. Dense id ranges take one byte per id instead of eight.
+ * Appending an id larger than the last one only copies the bytes; other changes re-encode the list.
+ */
+final class PostingList {
+    static final PostingList EMPTY = new PostingList(new byte[0], 0, 0);
+
+    private final byte[] data;
+    private final int size;
+    private final long last;
+
+    private PostingList(byte[] data, int size, long last) {
+        this.data = data;
+        this.size = size;
+        this.last = last;
+    }
+
+    int size() {
+        return size;
+    }
+
+    PostingList add(long id) {
+        if (size > 0 && id <= last) {
+            long[] ids = toArray();
+            int position = Arrays.binarySearch(ids, id);
+            if (position >= 0) {
+                return this;
+            }
+            int insertAt = -position - 1;
+            long[] updated = new long[ids.length + 1];
+            System.arraycopy(ids, 0, updated, 0, insertAt);
+            updated[insertAt] = id;
+            System.arraycopy(ids, insertAt, updated, insertAt + 1, ids.length - insertAt);
+            return of(updated);
+        }
+        byte[] appended = Arrays.copyOf(data, data.length + varintLength(id - last));
+        writeVarint(appended, data.length, id - last);
+        return new PostingList(appended, size + 1, id);
+    }
+
+    /**
+     * @return the list without {@code id}, or {@code null} once it is empty
+     */
+    PostingList remove(long id) {
+        long[] ids = toArray();
+        int position = Arrays.binarySearch(ids, id);
+        if (position < 0) {
+            return this;
+        }
+        if (ids.length == 1) {
+            return null;
+        }
+        long[] updated = new long[ids.length - 1];
+        System.arraycopy(ids, 0, updated, 0, position);
+        System.arraycopy(ids, position + 1, updated, position, ids.length - position - 1);
+        return of(updated);
+    }
+
+    long[] toArray() {
+        long[] ids = new long[size];
+        int offset = 0;
+        long current = 0;
+        for (int i = 0; i < size; i++) {
+            long gap = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[offset++];
+                gap |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            current += gap;
+            ids[i] = current;
+        }
+        return ids;
+    }
+
+    /**
+     * Keeps the ids of {@code sorted} that are also in this list, decoding the list once alongside it.
+     */
+    long[] retainAll(long[] sorted) {
+        long[] kept = new long[Math.min(sorted.length, size)];
+        int count = 0;
+        int offset = 0;
+        int next = 0;
+        long current = 0;
+        for (int i = 0; i < size && next < sorted.length; i++) {
+            long gap = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[offset++];
+                gap |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            current += gap;
+            while (next < sorted.length && sorted[next] < current) {
+                next++;
+            }
+            if (next < sorted.length && sorted[next] == current) {
+                kept[count++] = current;
+                next++;
+            }
+        }
+        return Arrays.copyOf(kept, count);
+    }
+
+    static PostingList of(long[] sortedIds) {
+        Builder builder = new Builder();
+        for (long id : sortedIds) {
+            builder.append(id);
+        }
+        return builder.build();
+    }
+
+    private static int varintLength(long value) {
+        int length = 1;
+        while ((value >>>= 7) != 0) {
+            length++;
+        }
+        return length;
+    }
+
+    private static int writeVarint(byte[] target, int offset, long value) {
+        while ((value & ~0x7FL) != 0) {
+            target[offset++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        target[offset++] = (byte) value;
+        return offset;
+    }
+
+    /**
+     * Accumulates ids given in ascending order, e.g. while loading from a query ordered by id.
+     */
+    static class Builder {
+        private byte[] data = new byte[16];
+        private int length;
+        private int size;
+        private long last;
+
+        void append(long id) {
+            if (size > 0 && id <= last) {
+                throw new IllegalArgumentException("Ids must be appended in ascending order");
+            }
+            if (length + 10 > data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            length = writeVarint(data, length, id - last);
+            last = id;
+            size++;
+        }
+
+        PostingList build() {
+            return size == 0 ? EMPTY : new PostingList(Arrays.copyOf(data, length), size, last);
+        }
+    }
+}
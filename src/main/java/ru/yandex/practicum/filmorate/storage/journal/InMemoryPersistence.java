@@ -0,0 +1,89 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.SortedLongRows;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.journal.JournalRecord.FilmPut;
+import ru.yandex.practicum.filmorate.storage.journal.JournalRecord.FriendAdded;
+import ru.yandex.practicum.filmorate.storage.journal.JournalRecord.LikeAdded;
+import ru.yandex.practicum.filmorate.storage.journal.JournalRecord.UserPut;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.util.stream.Stream;
+
+/**
+ * Restores the in-memory storages from the {@link StorageJournal} before the application starts serving,
+ * and periodically compacts the journal into a snapshot of their current state.
+ */
+@Component
+@ConditionalOnProperty(name = "filmorate.storage.type", havingValue = "memory")
+public class InMemoryPersistence {
+    private final StorageJournal journal;
+    private final InMemoryFilmStorage filmStorage;
+    private final InMemoryUserStorage userStorage;
+
+    public InMemoryPersistence(StorageJournal journal, InMemoryFilmStorage filmStorage,
+                               InMemoryUserStorage userStorage) {
+        this.journal = journal;
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+    }
+
+    /**
+     * Restores the storages: the films and users of the snapshot one by one, its likes and friendships
+     * collected into rows and set in one go, then the journaled changes after it record by record.
+     */
+    @PostConstruct
+    public void restore() {
+        SortedLongRows.Builder likes = new SortedLongRows.Builder();
+        SortedLongRows.Builder friends = new SortedLongRows.Builder();
+        journal.open(new StorageJournal.Replayer() {
+            @Override
+            public void snapshot(JournalRecord record) {
+                switch (record) {
+                    case LikeAdded like -> likes.add(like.filmId(), like.userId());
+                    case FriendAdded friendship -> friends.add(friendship.userId(), friendship.friendId());
+                    default -> replay(record);
+                }
+            }
+
+            @Override
+            public void snapshotRead() {
+                filmStorage.restoreLikes(likes.build());
+                userStorage.restoreFriends(friends.build());
+            }
+
+            @Override
+            public void replay(JournalRecord record) {
+                filmStorage.replay(record);
+                userStorage.replay(record);
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.storage.journal.compact-interval:PT10M}",
+            initialDelayString = "${filmorate.storage.journal.compact-interval:PT10M}")
+    public void compact() {
+        journal.compact(this::state);
+    }
+
+    /**
+     * Snapshots the current state into the journal right away, for data loaded without being journaled.
+     */
+    public void checkpoint() {
+        journal.checkpoint(this::state);
+    }
+
+    private Stream<JournalRecord> state() {
+        Stream<JournalRecord> users = userStorage.findAll().stream()
+                .flatMap(user -> Stream.<JournalRecord>concat(Stream.of(new UserPut(user)),
+                        user.getFriends().stream().map(friendId -> new FriendAdded(user.getId(), friendId))));
+        Stream<JournalRecord> films = filmStorage.findAll().stream()
+                .flatMap(film -> Stream.<JournalRecord>concat(Stream.of(new FilmPut(film)),
+                        film.getLikes().stream().map(userId -> new LikeAdded(film.getId(), userId))));
+        return Stream.concat(users, films);
+    }
+}
@@ -0,0 +1,199 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.journal.JournalRecord.FilmDeleted;
+import ru.yandex.practicum.filmorate.storage.journal.JournalRecord.FilmPut;
+import ru.yandex.practicum.filmorate.storage.journal.JournalRecord.FriendAdded;
+import ru.yandex.practicum.filmorate.storage.journal.JournalRecord.FriendRemoved;
+import ru.yandex.practicum.filmorate.storage.journal.JournalRecord.LikeAdded;
+import ru.yandex.practicum.filmorate.storage.journal.JournalRecord.LikeRemoved;
+import ru.yandex.practicum.filmorate.storage.journal.JournalRecord.UserDeleted;
+import ru.yandex.practicum.filmorate.storage.journal.JournalRecord.UserPut;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary form of {@link JournalRecord}s. A frame is the payload length and its CRC32C, both as big-endian
+ * ints, followed by the payload: a type byte and the fields of the record. A frame whose length or
+ * checksum does not match was torn by a crash while being written.
+ */
+final class JournalCodec {
+    static final int HEADER_BYTES = 8;
+    static final int MAX_PAYLOAD_BYTES = 1 << 20;
+
+    private static final byte FILM_PUT = 1;
+    private static final byte FILM_DELETED = 2;
+    private static final byte LIKE_ADDED = 3;
+    private static final byte LIKE_REMOVED = 4;
+    private static final byte USER_PUT = 5;
+    private static final byte USER_DELETED = 6;
+    private static final byte FRIEND_ADDED = 7;
+    private static final byte FRIEND_REMOVED = 8;
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    private JournalCodec() {
+    }
+
+    static byte[] frame(JournalRecord record) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(0);
+            out.writeInt(0);
+            write(record, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] frame = bytes.toByteArray();
+        int length = frame.length - HEADER_BYTES;
+        if (length > MAX_PAYLOAD_BYTES) {
+            throw new IllegalArgumentException("Journal record of " + length + " bytes is too large");
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(frame, HEADER_BYTES, length);
+        ByteBuffer.wrap(frame).putInt(length).putInt((int) crc.getValue());
+        return frame;
+    }
+
+    static boolean matches(byte[] payload, int checksum) {
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        return (int) crc.getValue() == checksum;
+    }
+
+    static JournalRecord decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte type = in.readByte();
+        return switch (type) {
+            case FILM_PUT -> new FilmPut(readFilm(in));
+            case FILM_DELETED -> new FilmDeleted(in.readLong());
+            case LIKE_ADDED -> new LikeAdded(in.readLong(), in.readLong());
+            case LIKE_REMOVED -> new LikeRemoved(in.readLong(), in.readLong());
+            case USER_PUT -> new UserPut(readUser(in));
+            case USER_DELETED -> new UserDeleted(in.readLong());
+            case FRIEND_ADDED -> new FriendAdded(in.readLong(), in.readLong());
+            case FRIEND_REMOVED -> new FriendRemoved(in.readLong(), in.readLong());
+            default -> throw new IOException("Unknown journal record type " + type);
+        };
+    }
+
+    private static void write(JournalRecord record, DataOutputStream out) throws IOException {
+        switch (record) {
+            case FilmPut put -> {
+                out.writeByte(FILM_PUT);
+                writeFilm(put.film(), out);
+            }
+            case FilmDeleted deleted -> {
+                out.writeByte(FILM_DELETED);
+                out.writeLong(deleted.filmId());
+            }
+            case LikeAdded like -> writePair(LIKE_ADDED, like.filmId(), like.userId(), out);
+            case LikeRemoved like -> writePair(LIKE_REMOVED, like.filmId(), like.userId(), out);
+            case UserPut put -> {
+                out.writeByte(USER_PUT);
+                writeUser(put.user(), out);
+            }
+            case UserDeleted deleted -> {
+                out.writeByte(USER_DELETED);
+                out.writeLong(deleted.userId());
+            }
+            case FriendAdded friend -> writePair(FRIEND_ADDED, friend.userId(), friend.friendId(), out);
+            case FriendRemoved friend -> writePair(FRIEND_REMOVED, friend.userId(), friend.friendId(), out);
+        }
+    }
+
+    private static void writePair(byte type, long first, long second, DataOutputStream out) throws IOException {
+        out.writeByte(type);
+        out.writeLong(first);
+        out.writeLong(second);
+    }
+
+    private static void writeFilm(Film film, DataOutputStream out) throws IOException {
+        out.writeLong(film.getId());
+        writeString(film.getName(), out);
+        writeString(film.getDescription(), out);
+        writeDate(film.getReleaseDate(), out);
+        out.writeInt(film.getDuration());
+        out.writeInt(film.getMpa().getId());
+        writeString(film.getMpa().getName(), out);
+        Set<Genre> genres = film.getGenres() == null ? Set.of() : film.getGenres();
+        out.writeInt(genres.size());
+        for (Genre genre : genres) {
+            out.writeInt(genre.getId());
+            writeString(genre.getName(), out);
+        }
+    }
+
+    private static Film readFilm(DataInputStream in) throws IOException {
+        Film film = new Film();
+        film.setId(in.readLong());
+        film.setName(readString(in));
+        film.setDescription(readString(in));
+        film.setReleaseDate(readDate(in));
+        film.setDuration(in.readInt());
+        film.setMpa(new MpaRating(in.readInt(), readString(in)));
+        int genreCount = in.readInt();
+        Set<Genre> genres = new LinkedHashSet<>();
+        for (int i = 0; i < genreCount; i++) {
+            genres.add(new Genre(in.readInt(), readString(in)));
+        }
+        film.setGenres(genres);
+        return film;
+    }
+
+    private static void writeUser(User user, DataOutputStream out) throws IOException {
+        out.writeLong(user.getId());
+        writeString(user.getEmail(), out);
+        writeString(user.getLogin(), out);
+        writeString(user.getName(), out);
+        writeDate(user.getBirthday(), out);
+    }
+
+    private static User readUser(DataInputStream in) throws IOException {
+        User user = new User();
+        user.setId(in.readLong());
+        user.setEmail(readString(in));
+        user.setLogin(readString(in));
+        user.setName(readString(in));
+        user.setBirthday(readDate(in));
+        return user;
+    }
+
+    private static void writeString(String value, DataOutputStream out) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        return length < 0 ? null : new String(in.readNBytes(length), StandardCharsets.UTF_8);
+    }
+
+    private static void writeDate(LocalDate date, DataOutputStream out) throws IOException {
+        out.writeLong(date == null ? NO_DATE : date.toEpochDay());
+    }
+
+    private static LocalDate readDate(DataInputStream in) throws IOException {
+        long epochDay = in.readLong();
+        return epochDay == NO_DATE ? null : LocalDate.ofEpochDay(epochDay);
+    }
+}
@@ -0,0 +1,37 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+/**
+ * One change of the in-memory storages as written to the {@link StorageJournal}. Every record fully
+ * determines the state of what it touches, so replaying a record that is already reflected in the
+ * storages changes nothing. Likes and friendships travel as records of their own: {@link FilmPut} and
+ * {@link UserPut} carry neither.
+ */
+public sealed interface JournalRecord {
+
+    record FilmPut(Film film) implements JournalRecord {
+    }
+
+    record FilmDeleted(long filmId) implements JournalRecord {
+    }
+
+    record LikeAdded(long filmId, long userId) implements JournalRecord {
+    }
+
+    record LikeRemoved(long filmId, long userId) implements JournalRecord {
+    }
+
+    record UserPut(User user) implements JournalRecord {
+    }
+
+    record UserDeleted(long userId) implements JournalRecord {
+    }
+
+    record FriendAdded(long userId, long friendId) implements JournalRecord {
+    }
+
+    record FriendRemoved(long userId, long friendId) implements JournalRecord {
+    }
+}
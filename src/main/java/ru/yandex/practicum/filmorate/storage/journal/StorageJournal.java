@@ -0,0 +1,403 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.TransactionHooks;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Write-ahead journal of the in-memory storages, kept in {@code filmorate.storage.journal.dir}.
+ * <p>
+ * A storage applies each change through {@link #apply}, which runs it under the journal lock and appends
+ * its record to a pending buffer, so the journal order is the order in which changes hit memory. Once the
+ * transaction commits, the caller waits until its record is on disk. Waiters queue for the file: the first
+ * one writes and fsyncs everything pending, and those behind it usually find their records already
+ * durable (group commit). A rolled-back transaction leaves its records in place, followed by compensating
+ * ones written by the storages' undo hooks.
+ * <p>
+ * Records go to segment files {@code journal-<n>.log}. {@link #compact} starts a new segment and writes the
+ * current state to {@code snapshot-<n>.bin}, after which older files are deleted; startup replays the
+ * newest snapshot and the segments from its number on. A frame torn by a crash at the end of the last
+ * segment is cut off. With no directory configured the journal is disabled and changes are only applied.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "filmorate.storage.type", havingValue = "memory")
+public class StorageJournal {
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+
+    private final Path directory;
+    private final boolean fsync;
+    // orders changes and their records; guards pending, appended and compactedAt
+    private final ReentrantLock lock = new ReentrantLock();
+    // held while writing to the current segment; taken before lock when both are needed
+    private final ReentrantLock fileLock = new ReentrantLock();
+    private final ReentrantLock compactionLock = new ReentrantLock();
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream(1 << 16);
+    private long appended;
+    private long compactedAt;
+    private volatile long durable;
+    private volatile IOException failure;
+    private volatile boolean open;
+    private FileChannel channel;
+    private long segment;
+
+    public StorageJournal(@Value("${filmorate.storage.journal.dir:}") String directory,
+                         @Value("${filmorate.storage.journal.fsync:true}") boolean fsync) {
+        this.directory = directory == null || directory.isBlank() ? null : Path.of(directory);
+        this.fsync = fsync;
+    }
+
+    /**
+     * A journal that records nothing, for storages created outside a Spring context.
+     */
+    public static StorageJournal disabled() {
+        return new StorageJournal(null, false);
+    }
+
+    /**
+     * Replays the newest snapshot and the segments after it into {@code replayer}, then starts recording.
+     * Changes applied before this only reach memory, which is what replaying them needs.
+     */
+    public void open(Replayer replayer) {
+        if (directory == null) {
+            log.info("Storage journal is disabled, in-memory data will not survive a restart");
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+            long started = System.nanoTime();
+            List<Long> snapshots = numbers(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+            long base = snapshots.isEmpty() ? 0 : snapshots.get(snapshots.size() - 1);
+            long records = 0;
+            if (!snapshots.isEmpty()) {
+                records += read(snapshot(base), replayer::snapshot, false);
+                replayer.snapshotRead();
+            }
+            List<Long> segments = numbers(SEGMENT_PREFIX, SEGMENT_SUFFIX).stream()
+                    .filter(number -> number >= base)
+                    .toList();
+            for (int i = 0; i < segments.size(); i++) {
+                records += read(segment(segments.get(i)), replayer::replay, i == segments.size() - 1);
+            }
+            segment = segments.isEmpty() ? base : segments.get(segments.size() - 1);
+            channel = FileChannel.open(segment(segment), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            channel.position(channel.size());
+            deleteBefore(base);
+            open = true;
+            log.info("Storage journal replayed {} records from {} in {} ms", records, directory,
+                    (System.nanoTime() - started) / 1_000_000);
+        } catch (IOException e) {
+            log.error("Failed to open storage journal in {}", directory, e);
+            throw new RuntimeException("Failed to open storage journal", e);
+        }
+    }
+
+    /**
+     * Runs {@code change} and, if it reports having changed something, journals {@code record}. The caller
+     * returns once the record is durable, or right after the commit of its transaction.
+     *
+     * @return what {@code change} returned
+     */
+    public boolean apply(JournalRecord record, BooleanSupplier change) {
+        if (!open) {
+            return change.getAsBoolean();
+        }
+        byte[] frame = JournalCodec.frame(record);
+        long position;
+        lock.lock();
+        try {
+            if (failure != null) {
+                throw new RuntimeException("Storage journal is unavailable after a write failure", failure);
+            }
+            if (!change.getAsBoolean()) {
+                return false;
+            }
+            pending.writeBytes(frame);
+            appended += frame.length;
+            position = appended;
+        } finally {
+            lock.unlock();
+        }
+        TransactionHooks.afterCommit(() -> awaitDurable(position));
+        return true;
+    }
+
+    /**
+     * Journals a change that has already been applied elsewhere, such as the rollback of a friendship.
+     */
+    public void append(JournalRecord record) {
+        apply(record, () -> true);
+    }
+
+    /**
+     * Starts a new segment and writes the state streamed by {@code state} as the snapshot the next replay
+     * starts from; older segments and snapshots are then deleted. The state must be read after this call
+     * starts: changes racing with it are in the new segment too, and replaying them again is harmless.
+     * Does nothing if nothing was journaled since the last compaction.
+     */
+    public void compact(Supplier<Stream<JournalRecord>> state) {
+        compact(state, false);
+    }
+
+    /**
+     * Compacts even if nothing was journaled, for state that was loaded behind the journal's back,
+     * such as a restored dataset snapshot.
+     */
+    public void checkpoint(Supplier<Stream<JournalRecord>> state) {
+        compact(state, true);
+    }
+
+    private void compact(Supplier<Stream<JournalRecord>> state, boolean force) {
+        if (!open) {
+            return;
+        }
+        compactionLock.lock();
+        try {
+            long started = System.nanoTime();
+            long next = rotate(force);
+            if (next < 0) {
+                return;
+            }
+            Path temporary = directory.resolve(SNAPSHOT_PREFIX + next + ".tmp");
+            long records = 0;
+            try (FileChannel file = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+                 OutputStream out = new BufferedOutputStream(Channels.newOutputStream(file), 1 << 16);
+                 Stream<JournalRecord> snapshot = state.get()) {
+                for (Iterator<JournalRecord> it = snapshot.iterator(); it.hasNext(); records++) {
+                    out.write(JournalCodec.frame(it.next()));
+                }
+                out.flush();
+                file.force(true);
+            }
+            Files.move(temporary, snapshot(next), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+            deleteBefore(next);
+            log.info("Storage journal compacted to {} records in {} ms", records,
+                    (System.nanoTime() - started) / 1_000_000);
+        } catch (IOException e) {
+            log.error("Failed to compact storage journal in {}", directory, e);
+            throw new RuntimeException("Failed to compact storage journal", e);
+        } finally {
+            compactionLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (!open) {
+            return;
+        }
+        fileLock.lock();
+        try {
+            flush();
+            channel.close();
+            open = false;
+        } catch (IOException e) {
+            log.error("Failed to close storage journal in {}", directory, e);
+        } finally {
+            fileLock.unlock();
+        }
+    }
+
+    /**
+     * Receives what {@link #open} reads: the records of the snapshot, a call once all of them are read,
+     * and then the journaled changes made after the snapshot.
+     */
+    public interface Replayer {
+        void snapshot(JournalRecord record);
+
+        void snapshotRead();
+
+        void replay(JournalRecord record);
+    }
+
+    private void awaitDurable(long position) {
+        if (durable >= position) {
+            return;
+        }
+        fileLock.lock();
+        try {
+            if (durable < position) {
+                flush();
+            }
+        } finally {
+            fileLock.unlock();
+        }
+    }
+
+    /**
+     * Writes and syncs everything pending; the caller holds {@link #fileLock}.
+     */
+    private void flush() {
+        byte[] batch;
+        long target;
+        lock.lock();
+        try {
+            if (failure != null) {
+                throw new RuntimeException("Storage journal is unavailable after a write failure", failure);
+            }
+            batch = pending.toByteArray();
+            pending.reset();
+            target = appended;
+        } finally {
+            lock.unlock();
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(batch);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if (fsync) {
+                channel.force(false);
+            }
+            durable = target;
+        } catch (IOException e) {
+            failure = e;
+            log.error("Failed to write storage journal in {}", directory, e);
+            throw new RuntimeException("Failed to write storage journal", e);
+        }
+    }
+
+    /**
+     * Flushes the current segment and switches to the next one.
+     *
+     * @return number of the new segment, or -1 if nothing was journaled since the last rotation
+     *         and {@code force} is not set
+     */
+    private long rotate(boolean force) throws IOException {
+        fileLock.lock();
+        try {
+            lock.lock();
+            try {
+                if (!force && appended == compactedAt) {
+                    return -1;
+                }
+                flush();
+                channel.close();
+                segment++;
+                channel = FileChannel.open(segment(segment), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                compactedAt = appended;
+                return segment;
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            fileLock.unlock();
+        }
+    }
+
+    /**
+     * Replays the frames of {@code file}. A torn frame at the end of the segment being continued is cut off;
+     * anywhere else it means the file is damaged.
+     *
+     * @return number of records replayed
+     */
+    private long read(Path file, Consumer<JournalRecord> replayer, boolean continued) throws IOException {
+        long records = 0;
+        long offset = 0;
+        try (InputStream stream = new BufferedInputStream(Files.newInputStream(file), 1 << 16);
+             DataInputStream in = new DataInputStream(stream)) {
+            while (true) {
+                byte[] payload = next(in);
+                if (payload == null) {
+                    break;
+                }
+                replayer.accept(JournalCodec.decode(payload));
+                offset += JournalCodec.HEADER_BYTES + payload.length;
+                records++;
+            }
+        }
+        long size = Files.size(file);
+        if (offset < size) {
+            if (!continued) {
+                throw new IOException("Journal file " + file + " is damaged at offset " + offset);
+            }
+            log.warn("Cutting off {} bytes of a torn record at the end of {}", size - offset, file);
+            try (FileChannel truncated = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                truncated.truncate(offset);
+                truncated.force(true);
+            }
+        }
+        return records;
+    }
+
+    /**
+     * @return the payload of the next frame, or {@code null} at the end of the file or at a torn frame
+     */
+    private static byte[] next(DataInputStream in) throws IOException {
+        try {
+            int length = in.readInt();
+            int checksum = in.readInt();
+            if (length <= 0 || length > JournalCodec.MAX_PAYLOAD_BYTES) {
+                return null;
+            }
+            byte[] payload = in.readNBytes(length);
+            return payload.length == length && JournalCodec.matches(payload, checksum) ? payload : null;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    private void deleteBefore(long number) throws IOException {
+        for (long old : numbers(SEGMENT_PREFIX, SEGMENT_SUFFIX)) {
+            if (old < number) {
+                Files.delete(segment(old));
+            }
+        }
+        for (long old : numbers(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)) {
+            if (old < number) {
+                Files.delete(snapshot(old));
+            }
+        }
+    }
+
+    private List<Long> numbers(String prefix, String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(prefix) && name.endsWith(suffix))
+                    .map(name -> name.substring(prefix.length(), name.length() - suffix.length()))
+                    .filter(number -> !number.isEmpty() && number.chars().allMatch(Character::isDigit))
+                    .map(Long::parseLong)
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path segment(long number) {
+        return directory.resolve(SEGMENT_PREFIX + number + SEGMENT_SUFFIX);
+    }
+
+    private Path snapshot(long number) {
+        return directory.resolve(SNAPSHOT_PREFIX + number + SNAPSHOT_SUFFIX);
+    }
+}
@@ -0,0 +1,293 @@
+package ru.yandex.practicum.filmorate.storage.snapshot;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.film.FilmRecommendationIndex;
+import ru.yandex.practicum.filmorate.storage.film.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.user.FriendshipGraph;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Snapshots of the database storage. Export streams each table in primary key order, so like and
+ * friendship rows are grouped straight from the index; restoring inserts in JDBC batches of
+ * {@value BATCH_SIZE} rows and then reloads the in-process indexes once.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "filmorate.storage.type", havingValue = "db", matchIfMissing = true)
+public class DbSnapshotStore implements SnapshotStore {
+    private static final int BATCH_SIZE = 10_000;
+    private static final String SELECT_ANY = "SELECT EXISTS (SELECT 1 FROM users) OR EXISTS (SELECT 1 FROM films)";
+    private static final String SELECT_USERS = "SELECT user_id, email, login, name, birthday FROM users " +
+            "ORDER BY user_id";
+    private static final String SELECT_FILMS = "SELECT film_id, name, description, release_date, duration, " +
+            "mpa_rating_id FROM films ORDER BY film_id";
+    private static final String SELECT_FILM_GENRES = "SELECT film_id, genre_id FROM film_genres " +
+            "ORDER BY film_id, genre_id";
+    private static final String SELECT_LIKES = "SELECT film_id, user_id FROM film_likes ORDER BY film_id, user_id";
+    private static final String SELECT_FRIENDSHIPS = "SELECT user_id, friend_id FROM friendships " +
+            "ORDER BY user_id, friend_id";
+    private static final String INSERT_USER = "INSERT INTO users (user_id, email, login, name, birthday) " +
+            "VALUES (?, ?, ?, ?, ?)";
+    private static final String INSERT_FILM = "INSERT INTO films (film_id, name, description, release_date, " +
+            "duration, mpa_rating_id) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_FILM_GENRE = "INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)";
+    private static final String INSERT_LIKE = "INSERT INTO film_likes (film_id, user_id) VALUES (?, ?)";
+    private static final String INSERT_FRIENDSHIP = "INSERT INTO friendships (user_id, friend_id) VALUES (?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReferenceDataSnapshot referenceData;
+    private final FilmDbStorage filmStorage;
+    private final FilmPopularityIndex popularityIndex;
+    private final FilmSearchIndex searchIndex;
+    private final FilmRecommendationIndex recommendationIndex;
+    private final FriendshipGraph friendshipGraph;
+
+    public DbSnapshotStore(JdbcTemplate jdbcTemplate, ReferenceDataSnapshot referenceData, FilmDbStorage filmStorage,
+                           FilmPopularityIndex popularityIndex, FilmSearchIndex searchIndex,
+                           FilmRecommendationIndex recommendationIndex, FriendshipGraph friendshipGraph) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.referenceData = referenceData;
+        this.filmStorage = filmStorage;
+        this.popularityIndex = popularityIndex;
+        this.searchIndex = searchIndex;
+        this.recommendationIndex = recommendationIndex;
+        this.friendshipGraph = friendshipGraph;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        try {
+            return !Boolean.TRUE.equals(jdbcTemplate.queryForObject(SELECT_ANY, Boolean.class));
+        } catch (DataAccessException e) {
+            log.error("Failed to check whether the database is empty", e);
+            throw new RuntimeException("Failed to check whether the database is empty", e);
+        }
+    }
+
+    /**
+     * Reads several tables one after another; run it in a repeatable-read transaction for a consistent copy.
+     */
+    @Override
+    public void export(SnapshotSink sink) {
+        try {
+            referenceData.export(sink);
+            jdbcTemplate.query(SELECT_USERS, rs -> {
+                User user = new User();
+                user.setId(rs.getLong("user_id"));
+                user.setEmail(rs.getString("email"));
+                user.setLogin(rs.getString("login"));
+                user.setName(rs.getString("name"));
+                Date birthday = rs.getDate("birthday");
+                user.setBirthday(birthday == null ? null : birthday.toLocalDate());
+                sink.user(user);
+            });
+            Map<Long, Set<Genre>> genresByFilm = new HashMap<>();
+            jdbcTemplate.query(SELECT_FILM_GENRES, rs -> {
+                genresByFilm.computeIfAbsent(rs.getLong("film_id"), id -> new LinkedHashSet<>())
+                        .add(new Genre(rs.getInt("genre_id"), null));
+            });
+            jdbcTemplate.query(SELECT_FILMS, rs -> {
+                Film film = new Film();
+                film.setId(rs.getLong("film_id"));
+                film.setName(rs.getString("name"));
+                film.setDescription(rs.getString("description"));
+                film.setReleaseDate(rs.getDate("release_date").toLocalDate());
+                film.setDuration(rs.getInt("duration"));
+                film.setMpa(new MpaRating(rs.getInt("mpa_rating_id"), null));
+                film.setGenres(genresByFilm.getOrDefault(film.getId(), Set.of()));
+                sink.film(film);
+            });
+            RowGrouper likes = new RowGrouper(sink::likes);
+            jdbcTemplate.query(SELECT_LIKES, rs -> {
+                likes.add(rs.getLong("film_id"), rs.getLong("user_id"));
+            });
+            likes.finish();
+            RowGrouper friends = new RowGrouper(sink::friends);
+            jdbcTemplate.query(SELECT_FRIENDSHIPS, rs -> {
+                friends.add(rs.getLong("user_id"), rs.getLong("friend_id"));
+            });
+            friends.finish();
+        } catch (DataAccessException e) {
+            log.error("Failed to export snapshot", e);
+            throw new RuntimeException("Failed to export snapshot", e);
+        }
+        sink.finish();
+    }
+
+    @Override
+    public SnapshotSink loader() {
+        return new Loader();
+    }
+
+    private class Loader implements SnapshotSink {
+        private final Batch users = new Batch(INSERT_USER, null);
+        private final Batch films = new Batch(INSERT_FILM, null);
+        private final Batch filmGenres = new Batch(INSERT_FILM_GENRE, films);
+        private final Batch likes = new Batch(INSERT_LIKE, filmGenres);
+        private final Batch friendships = new Batch(INSERT_FRIENDSHIP, likes);
+        private long lastUserId;
+        private long lastFilmId;
+
+        @Override
+        public void mpa(MpaRating mpa) {
+            referenceData.load(mpa);
+        }
+
+        @Override
+        public void genre(Genre genre) {
+            referenceData.load(genre);
+        }
+
+        @Override
+        public void user(User user) {
+            users.add(user.getId(), user.getEmail(), user.getLogin(), user.getName(), toDate(user.getBirthday()));
+            lastUserId = user.getId();
+        }
+
+        @Override
+        public void film(Film film) {
+            // users go first: every later batch refers to them
+            users.flush();
+            films.add(film.getId(), film.getName(), film.getDescription(), toDate(film.getReleaseDate()),
+                    film.getDuration(), film.getMpa().getId());
+            for (Genre genre : film.getGenres()) {
+                filmGenres.add(film.getId(), genre.getId());
+            }
+            lastFilmId = film.getId();
+        }
+
+        @Override
+        public void likes(long filmId, long[] userIds) {
+            users.flush();
+            for (long userId : userIds) {
+                likes.add(filmId, userId);
+            }
+        }
+
+        @Override
+        public void friends(long userId, long[] friendIds) {
+            users.flush();
+            for (long friendId : friendIds) {
+                friendships.add(userId, friendId);
+            }
+        }
+
+        @Override
+        public void finish() {
+            users.flush();
+            friendships.flush();
+            try {
+                // rows were inserted with their ids, so the identity columns must continue after them
+                jdbcTemplate.execute("ALTER TABLE users ALTER COLUMN user_id RESTART WITH " + (lastUserId + 1));
+                jdbcTemplate.execute("ALTER TABLE films ALTER COLUMN film_id RESTART WITH " + (lastFilmId + 1));
+            } catch (DataAccessException e) {
+                log.error("Failed to move identity columns past restored ids", e);
+                throw new RuntimeException("Failed to move identity columns past restored ids", e);
+            }
+            filmStorage.repairLikesCount();
+            referenceData.refresh();
+            popularityIndex.rebuild();
+            searchIndex.load();
+            recommendationIndex.load();
+            friendshipGraph.load();
+        }
+    }
+
+    /**
+     * Rows for one insert statement, written once {@value BATCH_SIZE} have gathered. Flushing a batch
+     * flushes the one it depends on first, so foreign keys always find their rows.
+     */
+    private class Batch {
+        private final String sql;
+        private final Batch dependsOn;
+        private final List<Object[]> rows = new ArrayList<>(BATCH_SIZE);
+
+        Batch(String sql, Batch dependsOn) {
+            this.sql = sql;
+            this.dependsOn = dependsOn;
+        }
+
+        void add(Object... args) {
+            rows.add(args);
+            if (rows.size() == BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (dependsOn != null) {
+                dependsOn.flush();
+            }
+            if (rows.isEmpty()) {
+                return;
+            }
+            try {
+                jdbcTemplate.batchUpdate(sql, rows);
+            } catch (DataAccessException e) {
+                log.error("Failed to restore snapshot rows with {}", sql, e);
+                throw new RuntimeException("Failed to restore snapshot", e);
+            }
+            rows.clear();
+        }
+    }
+
+    /**
+     * Turns rows sorted by key into one {@code long[]} of values per key.
+     */
+    private static class RowGrouper {
+        private final RowConsumer consumer;
+        private long key;
+        private long[] values = new long[16];
+        private int size;
+
+        RowGrouper(RowConsumer consumer) {
+            this.consumer = consumer;
+        }
+
+        void add(long rowKey, long value) {
+            if (size > 0 && rowKey != key) {
+                finish();
+            }
+            key = rowKey;
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void finish() {
+            if (size > 0) {
+                consumer.accept(key, Arrays.copyOf(values, size));
+                size = 0;
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowConsumer {
+        void accept(long key, long[] values);
+    }
+
+    private static Date toDate(LocalDate localDate) {
+        return localDate == null ? null : Date.valueOf(localDate);
+    }
+}
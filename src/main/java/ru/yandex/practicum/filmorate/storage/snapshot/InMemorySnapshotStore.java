@@ -0,0 +1,177 @@
+package ru.yandex.practicum.filmorate.storage.snapshot;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.UserFilter;
+import ru.yandex.practicum.filmorate.storage.SortedLongRows;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.journal.InMemoryPersistence;
+import ru.yandex.practicum.filmorate.storage.user.FriendshipGraph;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Snapshots of the in-memory storages. Export walks users and films page by page in id order; restoring
+ * stores entries directly, sets like and friendship rows whole and finally checkpoints the storage
+ * journal, since nothing loaded this way was journaled.
+ */
+@Component
+@ConditionalOnProperty(name = "filmorate.storage.type", havingValue = "memory")
+public class InMemorySnapshotStore implements SnapshotStore {
+    private static final int PAGE_SIZE = 1000;
+
+    private final InMemoryFilmStorage filmStorage;
+    private final InMemoryUserStorage userStorage;
+    private final FriendshipGraph friendshipGraph;
+    private final ReferenceDataSnapshot referenceData;
+    private final InMemoryPersistence persistence;
+
+    public InMemorySnapshotStore(InMemoryFilmStorage filmStorage, InMemoryUserStorage userStorage,
+                                 FriendshipGraph friendshipGraph, ReferenceDataSnapshot referenceData,
+                                 InMemoryPersistence persistence) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.friendshipGraph = friendshipGraph;
+        this.referenceData = referenceData;
+        this.persistence = persistence;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        UserFilter users = new UserFilter();
+        users.setLimit(1);
+        FilmFilter films = new FilmFilter();
+        films.setLimit(1);
+        return userStorage.findAll(users).isEmpty() && filmStorage.findAll(films).isEmpty();
+    }
+
+    /**
+     * Likes and friendships of users deleted while the export runs are left out, so the snapshot can
+     * always be loaded into the database schema.
+     */
+    @Override
+    public void export(SnapshotSink sink) {
+        referenceData.export(sink);
+        long[] userIds = new long[PAGE_SIZE];
+        int userCount = 0;
+        UserFilter userPage = new UserFilter();
+        userPage.setLimit(PAGE_SIZE);
+        Collection<User> users;
+        do {
+            users = userStorage.findAll(userPage);
+            for (User user : users) {
+                sink.user(user);
+                if (userCount == userIds.length) {
+                    userIds = Arrays.copyOf(userIds, userCount * 2);
+                }
+                userIds[userCount++] = user.getId();
+                userPage.setAfter(user.getId());
+            }
+        } while (users.size() == PAGE_SIZE);
+        userIds = Arrays.copyOf(userIds, userCount);
+
+        Map<Long, long[]> likes = new LinkedHashMap<>();
+        FilmFilter filmPage = new FilmFilter();
+        filmPage.setLimit(PAGE_SIZE);
+        Collection<Film> films;
+        do {
+            films = filmStorage.findAll(filmPage);
+            for (Film film : films) {
+                sink.film(film);
+                long[] row = existing(userIds, film.getLikes());
+                if (row.length > 0) {
+                    likes.put(film.getId(), row);
+                }
+                filmPage.setAfter(film.getId());
+            }
+        } while (films.size() == PAGE_SIZE);
+        likes.forEach(sink::likes);
+
+        for (long userId : userIds) {
+            long[] friends = existing(userIds, friendshipGraph.friendsOf(userId));
+            if (friends.length > 0) {
+                sink.friends(userId, friends);
+            }
+        }
+        sink.finish();
+    }
+
+    @Override
+    public SnapshotSink loader() {
+        return new Loader();
+    }
+
+    private class Loader implements SnapshotSink {
+        private final SortedLongRows likes = new SortedLongRows();
+        private final SortedLongRows friends = new SortedLongRows();
+
+        @Override
+        public void mpa(MpaRating mpa) {
+            referenceData.load(mpa);
+        }
+
+        @Override
+        public void genre(Genre genre) {
+            referenceData.load(genre);
+        }
+
+        @Override
+        public void user(User user) {
+            userStorage.restore(user);
+        }
+
+        @Override
+        public void film(Film film) {
+            filmStorage.restore(film);
+        }
+
+        @Override
+        public void likes(long filmId, long[] userIds) {
+            likes.putRow(filmId, userIds);
+        }
+
+        @Override
+        public void friends(long userId, long[] friendIds) {
+            friends.putRow(userId, friendIds);
+        }
+
+        @Override
+        public void finish() {
+            filmStorage.restoreLikes(likes);
+            userStorage.restoreFriends(friends);
+            referenceData.refresh();
+            persistence.checkpoint();
+        }
+    }
+
+    private static long[] existing(long[] userIds, Set<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return SortedLongRows.EMPTY;
+        }
+        return existing(userIds, ids.stream().mapToLong(Long::longValue).sorted().toArray());
+    }
+
+    /**
+     * The sorted {@code ids} that are present in the sorted {@code userIds}.
+     */
+    private static long[] existing(long[] userIds, long[] ids) {
+        long[] kept = new long[ids.length];
+        int size = 0;
+        for (long id : ids) {
+            if (Arrays.binarySearch(userIds, id) >= 0) {
+                kept[size++] = id;
+            }
+        }
+        return size == kept.length ? kept : Arrays.copyOf(kept, size);
+    }
+}
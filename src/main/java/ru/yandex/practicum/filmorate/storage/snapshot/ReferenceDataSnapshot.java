@@ -0,0 +1,61 @@
+package ru.yandex.practicum.filmorate.storage.snapshot;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.storage.ReferenceDataRegistry;
+
+import java.util.Comparator;
+
+/**
+ * Genres and MPA ratings of a snapshot, which are kept in the database with either storage type.
+ */
+@Slf4j
+@Component
+class ReferenceDataSnapshot {
+    private static final String MERGE_MPA = "MERGE INTO mpa_ratings (mpa_rating_id, name) KEY (mpa_rating_id) " +
+            "VALUES (?, ?)";
+    private static final String MERGE_GENRE = "MERGE INTO genres (genre_id, name) KEY (genre_id) VALUES (?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReferenceDataRegistry referenceData;
+
+    ReferenceDataSnapshot(JdbcTemplate jdbcTemplate, ReferenceDataRegistry referenceData) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.referenceData = referenceData;
+    }
+
+    void export(SnapshotSink sink) {
+        referenceData.mpaRatings().stream()
+                .sorted(Comparator.comparingInt(MpaRating::getId))
+                .forEach(sink::mpa);
+        referenceData.genres().stream()
+                .sorted(Comparator.comparingInt(Genre::getId))
+                .forEach(sink::genre);
+    }
+
+    void load(MpaRating mpa) {
+        try {
+            jdbcTemplate.update(MERGE_MPA, mpa.getId(), mpa.getName());
+        } catch (DataAccessException e) {
+            log.error("Failed to restore MPA rating {}", mpa, e);
+            throw new RuntimeException("Failed to restore MPA rating", e);
+        }
+    }
+
+    void load(Genre genre) {
+        try {
+            jdbcTemplate.update(MERGE_GENRE, genre.getId(), genre.getName());
+        } catch (DataAccessException e) {
+            log.error("Failed to restore genre {}", genre, e);
+            throw new RuntimeException("Failed to restore genre", e);
+        }
+    }
+
+    void refresh() {
+        referenceData.refresh();
+    }
+}
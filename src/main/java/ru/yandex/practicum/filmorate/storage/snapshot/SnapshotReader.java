@@ -0,0 +1,167 @@
+package ru.yandex.practicum.filmorate.storage.snapshot;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Decodes a snapshot written by {@link SnapshotWriter} and feeds it to a {@link SnapshotSink}. The input is
+ * read through a buffer of its own and varints are decoded from it directly, so restoring is bound by the
+ * sink rather than by parsing. Genres and MPA ratings of films are resolved against the snapshot's own
+ * sections.
+ */
+public class SnapshotReader {
+    private final InputStream in;
+    private final byte[] buffer = new byte[1 << 16];
+    private final Map<Integer, Genre> genres = new HashMap<>();
+    private final Map<Integer, MpaRating> ratings = new HashMap<>();
+    private int position;
+    private int limit;
+
+    public SnapshotReader(InputStream in) {
+        this.in = in;
+    }
+
+    public void read(SnapshotSink sink) throws IOException {
+        if (readInt() != SnapshotWriter.MAGIC) {
+            throw new IOException("Not a Filmorate snapshot");
+        }
+        int version = readByte();
+        if (version != SnapshotWriter.VERSION) {
+            throw new IOException("Unsupported snapshot version " + version);
+        }
+        int section;
+        while ((section = readByte()) != SnapshotWriter.END) {
+            long id = 0;
+            long delta;
+            while ((delta = readVarLong()) != 0) {
+                id += delta;
+                switch (section) {
+                    case SnapshotWriter.MPA -> {
+                        MpaRating mpa = new MpaRating((int) id, readString());
+                        ratings.put(mpa.getId(), mpa);
+                        sink.mpa(mpa);
+                    }
+                    case SnapshotWriter.GENRES -> {
+                        Genre genre = new Genre((int) id, readString());
+                        genres.put(genre.getId(), genre);
+                        sink.genre(genre);
+                    }
+                    case SnapshotWriter.USERS -> sink.user(readUser(id));
+                    case SnapshotWriter.FILMS -> sink.film(readFilm(id));
+                    case SnapshotWriter.LIKES -> sink.likes(id, readIds());
+                    case SnapshotWriter.FRIENDS -> sink.friends(id, readIds());
+                    default -> throw new IOException("Unknown snapshot section " + section);
+                }
+            }
+        }
+        sink.finish();
+    }
+
+    private User readUser(long id) throws IOException {
+        User user = new User();
+        user.setId(id);
+        user.setEmail(readString());
+        user.setLogin(readString());
+        user.setName(readString());
+        user.setBirthday(readDate());
+        return user;
+    }
+
+    private Film readFilm(long id) throws IOException {
+        Film film = new Film();
+        film.setId(id);
+        film.setName(readString());
+        film.setDescription(readString());
+        film.setReleaseDate(readDate());
+        film.setDuration((int) readVarLong());
+        int mpaId = (int) readVarLong();
+        film.setMpa(ratings.getOrDefault(mpaId, new MpaRating(mpaId, null)));
+        int genreCount = (int) readVarLong();
+        Set<Genre> filmGenres = new LinkedHashSet<>();
+        for (int i = 0; i < genreCount; i++) {
+            int genreId = (int) readVarLong();
+            filmGenres.add(genres.getOrDefault(genreId, new Genre(genreId, null)));
+        }
+        film.setGenres(filmGenres);
+        return film;
+    }
+
+    private long[] readIds() throws IOException {
+        long[] ids = new long[(int) readVarLong()];
+        long previous = 0;
+        for (int i = 0; i < ids.length; i++) {
+            previous += readVarLong();
+            ids[i] = previous;
+        }
+        return ids;
+    }
+
+    private String readString() throws IOException {
+        int length = (int) readVarLong() - 1;
+        if (length < 0) {
+            return null;
+        }
+        if (length <= limit - position) {
+            String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+        byte[] bytes = new byte[length];
+        int copied = limit - position;
+        System.arraycopy(buffer, position, bytes, 0, copied);
+        position = limit;
+        if (in.readNBytes(bytes, copied, length - copied) != length - copied) {
+            throw new EOFException("Snapshot ends inside a string");
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private LocalDate readDate() throws IOException {
+        long encoded = readVarLong();
+        if (encoded == 0) {
+            return null;
+        }
+        long zigzag = encoded - 1;
+        return LocalDate.ofEpochDay((zigzag >>> 1) ^ -(zigzag & 1));
+    }
+
+    private int readInt() throws IOException {
+        return readByte() << 24 | readByte() << 16 | readByte() << 8 | readByte();
+    }
+
+    private long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in snapshot");
+    }
+
+    private int readByte() throws IOException {
+        if (position == limit) {
+            limit = in.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                throw new EOFException("Snapshot ends unexpectedly");
+            }
+        }
+        return buffer[position++] & 0xFF;
+    }
+}
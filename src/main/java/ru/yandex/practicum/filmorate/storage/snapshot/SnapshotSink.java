@@ -0,0 +1,28 @@
+package ru.yandex.practicum.filmorate.storage.snapshot;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.model.User;
+
+/**
+ * Receives a whole dataset in snapshot order: MPA ratings, genres, users, films, likes and friendships,
+ * each kind in ascending id order, then {@link #finish()}. Id lists of a like or friendship row are sorted
+ * and distinct. Films and users arrive without their likes and friends, which come as rows of their own.
+ */
+public interface SnapshotSink {
+
+    void mpa(MpaRating mpa);
+
+    void genre(Genre genre);
+
+    void user(User user);
+
+    void film(Film film);
+
+    void likes(long filmId, long[] userIds);
+
+    void friends(long userId, long[] friendIds);
+
+    void finish();
+}
@@ -0,0 +1,24 @@
+package ru.yandex.practicum.filmorate.storage.snapshot;
+
+/**
+ * The dataset behind the active film and user storages, as a whole: exported into a {@link SnapshotSink}
+ * and restored from one. Genres and MPA ratings always live in the database tables.
+ */
+public interface SnapshotStore {
+
+    /**
+     * Whether the store holds neither films nor users, the only state a snapshot is restored into.
+     */
+    boolean isEmpty();
+
+    /**
+     * Feeds the whole dataset to {@code sink} in snapshot order, finishing with {@link SnapshotSink#finish()}.
+     */
+    void export(SnapshotSink sink);
+
+    /**
+     * A sink that fills this empty store; its {@link SnapshotSink#finish()} brings the in-process indexes
+     * up to date with what was loaded.
+     */
+    SnapshotSink loader();
+}
@@ -0,0 +1,208 @@
+package ru.yandex.practicum.filmorate.storage.snapshot;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Set;
+
+/**
+ * Encodes a dataset into the binary snapshot format read by {@link SnapshotReader}.
+ * <p>
+ * The format is the magic {@code FSNP} and a version byte, followed by one section per kind of entry in
+ * {@link SnapshotSink} order: a tag byte, the entries and a zero terminator; tag zero ends the snapshot.
+ * Every entry starts with its id as an unsigned varint delta from the previous entry of the section, which
+ * is never zero because ids ascend. Id lists of like and friendship rows are a varint count and varint
+ * deltas in the same way. Strings are a varint byte count plus one (zero for null) and UTF-8 bytes, dates a
+ * zigzag varint epoch day plus one (zero for null).
+ */
+public class SnapshotWriter implements SnapshotSink {
+    static final int MAGIC = 0x46534E50;
+    static final int VERSION = 1;
+    static final int END = 0;
+    static final int MPA = 1;
+    static final int GENRES = 2;
+    static final int USERS = 3;
+    static final int FILMS = 4;
+    static final int LIKES = 5;
+    static final int FRIENDS = 6;
+
+    private final OutputStream out;
+    private final byte[] buffer = new byte[1 << 16];
+    private int position;
+    private int section = END;
+    private long previousId;
+
+    public SnapshotWriter(OutputStream out) {
+        this.out = out;
+        writeInt(MAGIC);
+        writeByte(VERSION);
+    }
+
+    @Override
+    public void mpa(MpaRating mpa) {
+        entry(MPA, mpa.getId());
+        writeString(mpa.getName());
+    }
+
+    @Override
+    public void genre(Genre genre) {
+        entry(GENRES, genre.getId());
+        writeString(genre.getName());
+    }
+
+    @Override
+    public void user(User user) {
+        entry(USERS, user.getId());
+        writeString(user.getEmail());
+        writeString(user.getLogin());
+        writeString(user.getName());
+        writeDate(user.getBirthday());
+    }
+
+    @Override
+    public void film(Film film) {
+        entry(FILMS, film.getId());
+        writeString(film.getName());
+        writeString(film.getDescription());
+        writeDate(film.getReleaseDate());
+        writeVarLong(film.getDuration());
+        writeVarLong(film.getMpa().getId());
+        Set<Genre> genres = film.getGenres() == null ? Set.of() : film.getGenres();
+        writeVarLong(genres.size());
+        for (Genre genre : genres) {
+            writeVarLong(genre.getId());
+        }
+    }
+
+    @Override
+    public void likes(long filmId, long[] userIds) {
+        entry(LIKES, filmId);
+        writeIds(userIds);
+    }
+
+    @Override
+    public void friends(long userId, long[] friendIds) {
+        entry(FRIENDS, userId);
+        writeIds(friendIds);
+    }
+
+    /**
+     * Ends the snapshot and flushes it; the stream itself is left open.
+     */
+    @Override
+    public void finish() {
+        if (section != END) {
+            writeVarLong(0);
+        }
+        writeByte(END);
+        flushBuffer();
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void entry(int tag, long id) {
+        if (tag != section) {
+            if (tag < section) {
+                throw new IllegalStateException("Snapshot section " + tag + " written after section " + section);
+            }
+            if (section != END) {
+                writeVarLong(0);
+            }
+            writeByte(tag);
+            section = tag;
+            previousId = 0;
+        }
+        if (id <= previousId) {
+            throw new IllegalArgumentException("Snapshot ids must ascend, got " + id + " after " + previousId);
+        }
+        writeVarLong(id - previousId);
+        previousId = id;
+    }
+
+    private void writeIds(long[] ids) {
+        writeVarLong(ids.length);
+        long previous = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (i > 0 && ids[i] <= previous) {
+                throw new IllegalArgumentException("Snapshot id lists must be sorted and distinct");
+            }
+            writeVarLong(ids[i] - previous);
+            previous = ids[i];
+        }
+    }
+
+    private void writeString(String value) {
+        if (value == null) {
+            writeVarLong(0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(bytes.length + 1L);
+        if (bytes.length > buffer.length - position) {
+            flushBuffer();
+        }
+        if (bytes.length > buffer.length) {
+            try {
+                out.write(bytes);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return;
+        }
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    private void writeDate(LocalDate date) {
+        if (date == null) {
+            writeVarLong(0);
+            return;
+        }
+        long epochDay = date.toEpochDay();
+        writeVarLong(((epochDay << 1) ^ (epochDay >> 63)) + 1);
+    }
+
+    private void writeInt(int value) {
+        writeByte(value >>> 24);
+        writeByte(value >>> 16);
+        writeByte(value >>> 8);
+        writeByte(value);
+    }
+
+    private void writeVarLong(long value) {
+        if (buffer.length - position < 10) {
+            flushBuffer();
+        }
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    private void writeByte(int value) {
+        if (position == buffer.length) {
+            flushBuffer();
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    private void flushBuffer() {
+        try {
+            out.write(buffer, 0, position);
+            position = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.TransactionHooks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * Friend-of-friend suggestions: users that the user's friends list as friends, ranked by the number of
+ * such mutual friends. The sorted friend rows of the {@link FriendshipGraph} are k-way merged, so each
+ * candidate is counted as it streams past and only the best {@code limit} are kept; large neighbourhoods
+ * are split into id ranges merged in parallel on a bounded pool. Rankings are cached per user until a
+ * friendship they depend on changes.
+ */
+@Component
+public class FriendSuggestionIndex {
+    // rankings up to this length are cached; longer ones are computed on every request
+    private static final int CACHED_SUGGESTIONS = 100;
+    // below this many second-degree entries a single merge is cheaper than forking
+    private static final int PARALLEL_THRESHOLD = 50_000;
+
+    private final FriendshipGraph friendshipGraph;
+    private final ForkJoinPool pool;
+    private final Map<Long, long[]> cache = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+
+    public FriendSuggestionIndex(FriendshipGraph friendshipGraph,
+                                 @Value("${filmorate.friends.suggestions.parallelism:0}") int parallelism) {
+        this.friendshipGraph = friendshipGraph;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Ids of up to {@code limit} users the user is not yet friends with, most mutual friends first and
+     * lower ids first among equals.
+     */
+    public long[] suggest(long userId, int limit) {
+        if (limit <= 0) {
+            return new long[0];
+        }
+        if (limit > CACHED_SUGGESTIONS) {
+            return compute(userId, limit);
+        }
+        long[] ranked = cache.get(userId);
+        if (ranked == null) {
+            long started = generation.get();
+            ranked = compute(userId, CACHED_SUGGESTIONS);
+            cache.put(userId, ranked);
+            // an invalidation that raced with the computation may have missed this entry
+            if (generation.get() != started) {
+                cache.remove(userId, ranked);
+            }
+        }
+        return ranked.length <= limit ? ranked : Arrays.copyOf(ranked, limit);
+    }
+
+    /**
+     * The friend list of {@code userId} changed: its own suggestions and those of everyone who lists it
+     * as a friend are dropped, now and again if the transaction rolls back.
+     */
+    public void friendshipChanged(long userId) {
+        invalidate(userId);
+        TransactionHooks.onRollback(() -> invalidate(userId));
+    }
+
+    /**
+     * Must be called before the user's friendships are removed from the graph: the suggestions of users up
+     * to two hops upstream counted the user or its friends.
+     */
+    public void userRemoved(long userId) {
+        long[] followers = friendshipGraph.followersOf(userId);
+        Runnable invalidation = () -> {
+            invalidate(userId);
+            for (long followerId : followers) {
+                invalidate(followerId);
+            }
+        };
+        invalidation.run();
+        TransactionHooks.onRollback(invalidation);
+    }
+
+    private void invalidate(long userId) {
+        generation.incrementAndGet();
+        cache.remove(userId);
+        for (long followerId : friendshipGraph.followersOf(userId)) {
+            cache.remove(followerId);
+        }
+    }
+
+    private long[] compute(long userId, int limit) {
+        long[] friends = friendshipGraph.friendsOf(userId);
+        List<long[]> rows = new ArrayList<>(friends.length);
+        long total = 0;
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (long friendId : friends) {
+            long[] row = friendshipGraph.friendsOf(friendId);
+            if (row.length > 0) {
+                rows.add(row);
+                total += row.length;
+                min = Math.min(min, row[0]);
+                max = Math.max(max, row[row.length - 1]);
+            }
+        }
+        if (rows.isEmpty()) {
+            return new long[0];
+        }
+        int parts = (int) Math.min(pool.getParallelism(), Math.max(1, total / PARALLEL_THRESHOLD));
+        if (parts == 1) {
+            return Candidate.ranked(merge(userId, friends, rows, min, max + 1, limit, total), limit);
+        }
+        long from = min;
+        long to = max + 1;
+        long entries = total;
+        long span = (to - from) / parts + 1;
+        List<Collection<Candidate>> partial = pool.submit(() -> IntStream.range(0, parts)
+                .parallel()
+                .mapToObj(part -> merge(userId, friends, rows, from + part * span,
+                        Math.min(to, from + (part + 1) * span), limit, entries))
+                .toList()).join();
+        List<Candidate> merged = new ArrayList<>();
+        partial.forEach(merged::addAll);
+        return Candidate.ranked(merged, limit);
+    }
+
+    /**
+     * Merges the parts of {@code rows} with ids in {@code [from, to)} and returns the best {@code limit}
+     * candidates in no particular order. There are at most {@code entries} candidates, which bounds the heap.
+     */
+    private static Collection<Candidate> merge(long userId, long[] friends, List<long[]> rows,
+                                               long from, long to, int limit, long entries) {
+        PriorityQueue<Cursor> cursors = new PriorityQueue<>(rows.size(), Comparator.comparingLong(Cursor::current));
+        for (long[] row : rows) {
+            Cursor cursor = Cursor.of(row, from, to);
+            if (cursor != null) {
+                cursors.add(cursor);
+            }
+        }
+        PriorityQueue<Candidate> top = new PriorityQueue<>((int) Math.min(limit, entries) + 1,
+                Candidate.WORST_FIRST);
+        while (!cursors.isEmpty()) {
+            long candidate = cursors.peek().current();
+            int mutual = 0;
+            while (!cursors.isEmpty() && cursors.peek().current() == candidate) {
+                Cursor cursor = cursors.poll();
+                mutual++;
+                if (cursor.advance()) {
+                    cursors.add(cursor);
+                }
+            }
+            if (candidate != userId && Arrays.binarySearch(friends, candidate) < 0) {
+                top.add(new Candidate(candidate, mutual));
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+        }
+        return top;
+    }
+
+    private static final class Cursor {
+        private final long[] row;
+        private final int end;
+        private int position;
+
+        private Cursor(long[] row, int position, int end) {
+            this.row = row;
+            this.position = position;
+            this.end = end;
+        }
+
+        static Cursor of(long[] row, long from, long to) {
+            int start = lowerBound(row, from);
+            int end = lowerBound(row, to);
+            return start < end ? new Cursor(row, start, end) : null;
+        }
+
+        long current() {
+            return row[position];
+        }
+
+        boolean advance() {
+            return ++position < end;
+        }
+
+        private static int lowerBound(long[] row, long value) {
+            int position = Arrays.binarySearch(row, value);
+            return position >= 0 ? position : -position - 1;
+        }
+    }
+
+    private record Candidate(long userId, int mutual) {
+        static final Comparator<Candidate> WORST_FIRST = Comparator.comparingInt(Candidate::mutual)
+                .thenComparing(Comparator.comparingLong(Candidate::userId).reversed());
+
+        static long[] ranked(Collection<Candidate> candidates, int limit) {
+            return candidates.stream()
+                    .sorted(WORST_FIRST.reversed())
+                    .limit(limit)
+                    .mapToLong(Candidate::userId)
+                    .toArray();
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.SortedLongRows;
+import ru.yandex.practicum.filmorate.storage.TransactionHooks;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-process copy of {@code friendships} as sorted {@code long[]} adjacency rows, in both directions:
+ * the friends of a user and the users who list them as a friend. It is loaded by the database user storage on
+ * startup and kept current by the user storage; friend lists and common friends are answered from it without a join.
+ * Changes made inside a transaction are reverted if it rolls back.
+ */
+@Slf4j
+@Component
+public class FriendshipGraph {
+    private static final String SELECT_FRIENDSHIPS = "SELECT user_id, friend_id FROM friendships";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile Adjacency adjacency = new Adjacency(new SortedLongRows(), new SortedLongRows());
+
+    @Autowired
+    public FriendshipGraph(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * A graph without a database, filled through {@link #load(SortedLongRows)} and the edge change methods.
+     */
+    public FriendshipGraph() {
+        this(null);
+    }
+
+    public void load() {
+        lock.lock();
+        try {
+            SortedLongRows.Builder friends = new SortedLongRows.Builder();
+            SortedLongRows.Builder followers = new SortedLongRows.Builder();
+            try {
+                jdbcTemplate.query(SELECT_FRIENDSHIPS, rs -> {
+                    long userId = rs.getLong("user_id");
+                    long friendId = rs.getLong("friend_id");
+                    friends.add(userId, friendId);
+                    followers.add(friendId, userId);
+                });
+            } catch (DataAccessException e) {
+                log.error("Failed to load friendship graph", e);
+                throw new RuntimeException("Failed to load friendship graph", e);
+            }
+            adjacency = new Adjacency(friends.build(), followers.build());
+            log.info("Friendship graph loaded: {} users with friends", adjacency.friends().size());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Replaces the whole graph with the friend lists in {@code friends}.
+     */
+    public void load(SortedLongRows friends) {
+        lock.lock();
+        try {
+            SortedLongRows.Builder followers = new SortedLongRows.Builder();
+            for (long userId : friends.keys()) {
+                for (long friendId : friends.get(userId)) {
+                    followers.add(friendId, userId);
+                }
+            }
+            adjacency = new Adjacency(friends, followers.build());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long[] friendsOf(long userId) {
+        return adjacency.friends().get(userId);
+    }
+
+    /**
+     * Users who have {@code userId} in their friend list.
+     */
+    public long[] followersOf(long userId) {
+        return adjacency.followers().get(userId);
+    }
+
+    public long[] commonFriends(long userId, long otherId) {
+        Adjacency current = adjacency;
+        return SortedLongRows.intersect(current.friends().get(userId), current.friends().get(otherId));
+    }
+
+    /**
+     * @return {@code false} if {@code friendId} already was a friend of {@code userId}
+     */
+    public boolean add(long userId, long friendId) {
+        Adjacency current = adjacency;
+        if (!current.add(userId, friendId)) {
+            return false;
+        }
+        TransactionHooks.onRollback(() -> current.remove(userId, friendId));
+        return true;
+    }
+
+    /**
+     * @return {@code false} if {@code friendId} was not a friend of {@code userId}
+     */
+    public boolean remove(long userId, long friendId) {
+        Adjacency current = adjacency;
+        if (!current.remove(userId, friendId)) {
+            return false;
+        }
+        TransactionHooks.onRollback(() -> current.add(userId, friendId));
+        return true;
+    }
+
+    /**
+     * Drops every friendship of a deleted user, in both directions.
+     */
+    public void removeUser(long userId) {
+        Adjacency current = adjacency;
+        long[] friends = current.friends().get(userId);
+        long[] followers = current.followers().get(userId);
+        for (long friendId : friends) {
+            current.remove(userId, friendId);
+        }
+        for (long followerId : followers) {
+            current.remove(followerId, userId);
+        }
+        TransactionHooks.onRollback(() -> {
+            for (long friendId : friends) {
+                current.add(userId, friendId);
+            }
+            for (long followerId : followers) {
+                current.add(followerId, userId);
+            }
+        });
+    }
+
+    private record Adjacency(SortedLongRows friends, SortedLongRows followers) {
+        boolean add(long userId, long friendId) {
+            boolean added = friends.add(userId, friendId);
+            followers.add(friendId, userId);
+            return added;
+        }
+
+        boolean remove(long userId, long friendId) {
+            boolean removed = friends.remove(userId, friendId);
+            followers.remove(friendId, userId);
+            return removed;
+        }
+    }
+}
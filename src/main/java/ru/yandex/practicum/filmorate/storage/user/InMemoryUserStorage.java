@@ -1,72 +1,341 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
-import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.UserFilter;
+import ru.yandex.practicum.filmorate.storage.EntityVersions;
+import ru.yandex.practicum.filmorate.storage.SortedLongRows;
+import ru.yandex.practicum.filmorate.storage.TransactionHooks;
+import ru.yandex.practicum.filmorate.storage.film.FilmRecommendationIndex;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.journal.JournalRecord;
+import ru.yandex.practicum.filmorate.storage.journal.JournalRecord.FriendAdded;
+import ru.yandex.practicum.filmorate.storage.journal.JournalRecord.FriendRemoved;
+import ru.yandex.practicum.filmorate.storage.journal.JournalRecord.UserDeleted;
+import ru.yandex.practicum.filmorate.storage.journal.JournalRecord.UserPut;
+import ru.yandex.practicum.filmorate.storage.journal.StorageJournal;
 
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
+/**
+ * User storage held entirely in process memory, selected with {@code filmorate.storage.type=memory}.
+ * Users live in a concurrent skip list ordered by id and friendships in the shared {@link FriendshipGraph},
+ * whose chunked sorted rows serve friend lists and common friends without locking. Deleting a user also
+ * drops its likes from the {@link InMemoryFilmStorage}. Every change is undone if the surrounding
+ * transaction rolls back; callers always get fresh copies of the stored users. Every change goes through
+ * the {@link StorageJournal}, from which {@link #replay} restores the storage. Friends given on create or
+ * update must exist; the {@link InMemoryFilmStorage} checks the users of the likes it is given here too.
+ */
 @Component
-@Qualifier("inMemoryUserStorage")
+@ConditionalOnProperty(name = "filmorate.storage.type", havingValue = "memory")
 public class InMemoryUserStorage implements UserStorage {
-    private final Map<Long, User> users = new HashMap<>();
-    private long nextId = 1;
+    private final ConcurrentNavigableMap<Long, User> users = new ConcurrentSkipListMap<>();
+    private final AtomicLong lastId = new AtomicLong();
+    private final InMemoryFilmStorage filmStorage;
+    private final FriendshipGraph friendshipGraph;
+    private final FriendSuggestionIndex friendSuggestions;
+    private final FilmRecommendationIndex recommendationIndex;
+    private final EntityVersions versions;
+    private final StorageJournal journal;
+
+    @Autowired
+    public InMemoryUserStorage(InMemoryFilmStorage filmStorage, FriendshipGraph friendshipGraph,
+                               FriendSuggestionIndex friendSuggestions, FilmRecommendationIndex recommendationIndex,
+                               EntityVersions versions, StorageJournal journal) {
+        this.filmStorage = filmStorage;
+        this.friendshipGraph = friendshipGraph;
+        this.friendSuggestions = friendSuggestions;
+        this.recommendationIndex = recommendationIndex;
+        this.versions = versions;
+        this.journal = journal;
+        filmStorage.setUserLookup(users::containsKey);
+    }
+
+    /**
+     * A standalone storage with indexes of its own, for use outside a Spring context.
+     */
+    public InMemoryUserStorage() {
+        this(new InMemoryFilmStorage(), StorageJournal.disabled());
+    }
+
+    public InMemoryUserStorage(InMemoryFilmStorage filmStorage, StorageJournal journal) {
+        this(filmStorage, new FriendshipGraph(), journal);
+    }
+
+    private InMemoryUserStorage(InMemoryFilmStorage filmStorage, FriendshipGraph friendshipGraph,
+                                StorageJournal journal) {
+        this(filmStorage, friendshipGraph, new FriendSuggestionIndex(friendshipGraph, 1),
+                new FilmRecommendationIndex(1), new EntityVersions(), journal);
+    }
 
     @Override
     public User create(User user) {
-        user.setId(nextId++);
-        users.put(user.getId(), user);
+        if (user.getFriends() != null) {
+            requireUsers(user.getFriends());
+        }
+        user.setId(lastId.incrementAndGet());
+        long userId = user.getId();
+        User stored = copy(user, Set.of());
+        journal.apply(new UserPut(stored), () -> users.putIfAbsent(userId, stored) == null);
+        TransactionHooks.onRollback(() -> swap(userId, null));
+        if (user.getFriends() != null && !user.getFriends().isEmpty()) {
+            user.getFriends().forEach(friendId -> befriend(userId, friendId));
+            friendSuggestions.friendshipChanged(userId);
+        }
+        versions.userChanged(userId);
         return user;
     }
 
     @Override
     public User update(User user) {
-        if (!users.containsKey(user.getId())) {
-            throw new NotFoundException("User not found");
+        Objects.requireNonNull(user.getId(), "User id must not be null for update");
+        long userId = user.getId();
+        if (user.isFriendsAssigned()) {
+            requireUsers(user.getFriends());
+        }
+        User stored = copy(user, Set.of());
+        User previous = swap(userId, stored);
+        if (previous == null) {
+            throw new NotFoundException("User with id " + userId + " not found");
+        }
+        TransactionHooks.onRollback(() -> swap(userId, previous));
+        if (user.isFriendsAssigned()) {
+            updateFriends(userId, user.getFriends());
+        }
+        versions.userChanged(userId);
+        return hydrate(stored);
+    }
+
+    private void updateFriends(long userId, Set<Long> requested) {
+        boolean changed = false;
+        for (long friendId : friendshipGraph.friendsOf(userId)) {
+            if (!requested.contains(friendId)) {
+                changed |= unfriend(userId, friendId);
+            }
+        }
+        for (Long friendId : requested) {
+            changed |= befriend(userId, friendId);
+        }
+        if (changed) {
+            friendSuggestions.friendshipChanged(userId);
         }
-        users.put(user.getId(), user);
-        return user;
     }
 
     @Override
     public Collection<User> findAll() {
-        return users.values();
+        return users.values().stream()
+                .map(this::hydrate)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Collection<User> findAll(UserFilter filter) {
+        Collection<User> candidates = filter.getAfter() == null
+                ? users.values()
+                : users.tailMap(filter.getAfter(), false).values();
+        return candidates.stream()
+                .filter(user -> filter.getBirthdayFrom() == null
+                        || (user.getBirthday() != null && !user.getBirthday().isBefore(filter.getBirthdayFrom())))
+                .filter(user -> filter.getBirthdayTo() == null
+                        || (user.getBirthday() != null && !user.getBirthday().isAfter(filter.getBirthdayTo())))
+                .limit(filter.getLimit() == null ? Long.MAX_VALUE : filter.getLimit())
+                .map(this::hydrate)
+                .collect(Collectors.toList());
     }
 
     @Override
     public User findById(Long id) {
         User user = users.get(id);
         if (user == null) {
-            throw new NotFoundException("User not found");
+            throw new NotFoundException("User with id " + id + " not found");
         }
-        return user;
+        return hydrate(user);
+    }
+
+    @Override
+    public List<User> findByIds(List<Long> ids) {
+        return ids.stream()
+                .map(users::get)
+                .filter(Objects::nonNull)
+                .map(this::hydrate)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public boolean exists(Long id) {
+        return users.containsKey(id);
     }
 
     @Override
     public void delete(Long id) {
-        users.remove(id);
+        long[] friends = friendshipGraph.friendsOf(id);
+        long[] followers = friendshipGraph.followersOf(id);
+        User removed = swap(id, null);
+        if (removed == null) {
+            throw new NotFoundException("User with id " + id + " not found");
+        }
+        TransactionHooks.onRollback(() -> {
+            journal.apply(new UserPut(removed), () -> users.putIfAbsent(id, removed) == null);
+            // the graph restores the friendships itself, the journal still has to hear about them
+            for (long friendId : friends) {
+                journal.append(new FriendAdded(id, friendId));
+            }
+            for (long followerId : followers) {
+                journal.append(new FriendAdded(followerId, id));
+            }
+        });
+        filmStorage.removeLikesOf(id);
+        recommendationIndex.userRemoved(id);
+        friendSuggestions.userRemoved(id);
+        friendshipGraph.removeUser(id);
+        versions.userDeleted(id);
+        // other users lose the deleted one from their friend lists
+        versions.allUsersChanged();
     }
 
     @Override
     public void addFriend(Long userId, Long friendId) {
-        throw new UnsupportedOperationException("Not Implemented");
+        befriend(userId, friendId);
+        friendSuggestions.friendshipChanged(userId);
+        versions.userChanged(userId);
     }
 
     @Override
     public void removeFriend(Long userId, Long friendId) {
-        throw new UnsupportedOperationException("Not Implemented");
+        unfriend(userId, friendId);
+        friendSuggestions.friendshipChanged(userId);
+        versions.userChanged(userId);
     }
 
     @Override
     public Collection<User> getFriends(Long userId) {
-        throw new UnsupportedOperationException("Not Implemented");
+        return findByIds(friendshipGraph.friendsOf(userId));
     }
 
     @Override
     public Collection<User> getCommonFriends(Long userId, Long otherId) {
-        throw new UnsupportedOperationException("Not Implemented");
+        return findByIds(friendshipGraph.commonFriends(userId, otherId));
+    }
+
+    /**
+     * Applies a journaled change while the storage is being restored; records of films and likes are
+     * ignored. Replaying a change that is already reflected in the storage has no effect.
+     */
+    public void replay(JournalRecord record) {
+        switch (record) {
+            case UserPut put -> restore(put.user());
+            case UserDeleted deleted -> {
+                if (exists(deleted.userId())) {
+                    delete(deleted.userId());
+                }
+            }
+            case FriendAdded friend -> addFriend(friend.userId(), friend.friendId());
+            case FriendRemoved friend -> removeFriend(friend.userId(), friend.friendId());
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Stores {@code user} under its own id without journaling it, for restoring the storage. Its friends
+     * are left as they are.
+     */
+    public void restore(User user) {
+        long userId = user.getId();
+        lastId.accumulateAndGet(userId, Math::max);
+        users.put(userId, copy(user, Set.of()));
+        versions.userChanged(userId);
+    }
+
+    /**
+     * Replaces all friendships with {@code friendsByUser} without journaling them, for restoring the
+     * storage from a snapshot.
+     */
+    public void restoreFriends(SortedLongRows friendsByUser) {
+        friendshipGraph.load(friendsByUser);
+        versions.allUsersChanged();
+    }
+
+    /**
+     * Atomically replaces the stored user, or removes it if {@code replacement} is null, and journals the
+     * change.
+     *
+     * @return the user replaced, or {@code null} if there was none
+     */
+    private User swap(long userId, User replacement) {
+        JournalRecord record = replacement == null ? new UserDeleted(userId) : new UserPut(replacement);
+        while (true) {
+            User current = users.get(userId);
+            if (current == null) {
+                return null;
+            }
+            boolean swapped = journal.apply(record, () -> replacement == null
+                    ? users.remove(userId, current)
+                    : users.replace(userId, current, replacement));
+            if (swapped) {
+                return current;
+            }
+        }
+    }
+
+    private void requireUsers(Collection<Long> userIds) {
+        for (Long userId : userIds) {
+            if (!exists(userId)) {
+                throw new NotFoundException("User with id " + userId + " not found");
+            }
+        }
+    }
+
+    private boolean befriend(long userId, long friendId) {
+        if (!journal.apply(new FriendAdded(userId, friendId), () -> friendshipGraph.add(userId, friendId))) {
+            return false;
+        }
+        // the graph undoes the change itself, the journal still has to hear about it
+        TransactionHooks.onRollback(() -> journal.append(new FriendRemoved(userId, friendId)));
+        return true;
+    }
+
+    private boolean unfriend(long userId, long friendId) {
+        if (!journal.apply(new FriendRemoved(userId, friendId), () -> friendshipGraph.remove(userId, friendId))) {
+            return false;
+        }
+        TransactionHooks.onRollback(() -> journal.append(new FriendAdded(userId, friendId)));
+        return true;
+    }
+
+    private List<User> findByIds(long[] ids) {
+        return findByIds(Arrays.stream(ids).boxed().toList());
+    }
+
+    private User hydrate(User stored) {
+        long[] friends = friendshipGraph.friendsOf(stored.getId());
+        Set<Long> friendSet = new HashSet<>(friends.length * 2);
+        for (long friendId : friends) {
+            friendSet.add(friendId);
+        }
+        return copy(stored, friendSet);
+    }
+
+    private static User copy(User source, Set<Long> friends) {
+        User user = new User();
+        user.setId(source.getId());
+        user.setEmail(source.getEmail());
+        user.setLogin(source.getLogin());
+        user.setName(source.getName());
+        user.setBirthday(source.getBirthday());
+        user.setFriends(friends);
+        return user;
     }
 }
@@ -1,7 +1,8 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
@@ -9,15 +10,22 @@ import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.UserFilter;
+import ru.yandex.practicum.filmorate.storage.EntityVersions;
+import ru.yandex.practicum.filmorate.storage.HydrationSupport;
+import ru.yandex.practicum.filmorate.storage.film.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.film.FilmRecommendationIndex;
 
 import java.sql.Date;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -26,34 +34,50 @@ import java.util.stream.Collectors;
 
 @Slf4j
 @Repository
-@Qualifier("userDbStorage")
+@ConditionalOnProperty(name = "filmorate.storage.type", havingValue = "db", matchIfMissing = true)
 public class UserDbStorage implements UserStorage {
-    private static final String SELECT_ALL_USERS = "SELECT user_id, email, login, name, birthday FROM users";
+    static final String SELECT_ALL_USERS = "SELECT user_id, email, login, name, birthday FROM users";
     private static final String SELECT_USER_BY_ID = SELECT_ALL_USERS + " WHERE user_id = ?";
+    private static final String USER_EXISTS = "SELECT EXISTS (SELECT 1 FROM users WHERE user_id = ?)";
     private static final String UPDATE_USER = "UPDATE users SET email = ?, login = ?, name = ?, birthday = ? WHERE user_id = ?";
     private static final String DELETE_USER = "DELETE FROM users WHERE user_id = ?";
-    private static final String SELECT_FRIENDSHIPS_BY_USER_IDS = "SELECT user_id, friend_id FROM friendships WHERE user_id IN (%s)";
-    private static final String DELETE_FRIENDSHIPS_BY_USER_ID = "DELETE FROM friendships WHERE user_id = ?";
+    // film_likes rows of a deleted user go away via ON DELETE CASCADE, so the counters are adjusted up front
+    private static final String SELECT_LIKED_FILM_IDS = "SELECT film_id FROM film_likes WHERE user_id = ?";
+    private static final String DECREMENT_LIKES_COUNT_BY_USER_ID = "UPDATE films SET likes_count = likes_count - 1 " +
+            "WHERE film_id IN (SELECT film_id FROM film_likes WHERE user_id = ?)";
+    private static final String SELECT_USERS_BY_IDS = SELECT_ALL_USERS + " JOIN " + HydrationSupport.ID_TABLE +
+            " ON ids.id = users.user_id ORDER BY user_id";
     private static final String MERGE_FRIENDSHIP = "MERGE INTO friendships (user_id, friend_id) KEY (user_id, friend_id) VALUES (?, ?)";
     private static final String DELETE_FRIENDSHIP = "DELETE FROM friendships WHERE user_id = ? AND friend_id = ?";
-    private static final String SELECT_FRIENDS_BY_USER_ID = "SELECT u.user_id, u.email, u.login, u.name, u.birthday FROM friendships f " +
-            "JOIN users u ON f.friend_id = u.user_id WHERE f.user_id = ?";
-    private static final String SELECT_COMMON_FRIENDS = "SELECT DISTINCT u.user_id, u.email, u.login, u.name, u.birthday FROM friendships f1 " +
-            "JOIN friendships f2 ON f1.friend_id = f2.friend_id " +
-            "JOIN users u ON u.user_id = f1.friend_id " +
-            "WHERE f1.user_id = ? AND f2.user_id = ?";
 
     private final JdbcTemplate jdbcTemplate;
     private final SimpleJdbcInsert userInsert;
     private final RowMapper<User> userRowMapper = new UserRowMapper();
+    private final FilmPopularityIndex popularityIndex;
+    private final EntityVersions versions;
+    private final FilmRecommendationIndex recommendationIndex;
+    private final FriendshipGraph friendshipGraph;
+    private final FriendSuggestionIndex friendSuggestions;
 
-    public UserDbStorage(JdbcTemplate jdbcTemplate) {
+    public UserDbStorage(JdbcTemplate jdbcTemplate, FilmPopularityIndex popularityIndex, EntityVersions versions,
+                         FilmRecommendationIndex recommendationIndex, FriendshipGraph friendshipGraph,
+                         FriendSuggestionIndex friendSuggestions) {
         this.jdbcTemplate = jdbcTemplate;
+        this.popularityIndex = popularityIndex;
+        this.versions = versions;
+        this.recommendationIndex = recommendationIndex;
+        this.friendshipGraph = friendshipGraph;
+        this.friendSuggestions = friendSuggestions;
         this.userInsert = new SimpleJdbcInsert(jdbcTemplate)
                 .withTableName("users")
                 .usingGeneratedKeyColumns("user_id");
     }
 
+    @PostConstruct
+    public void loadFriendshipGraph() {
+        friendshipGraph.load();
+    }
+
     @Override
     public User create(User user) {
         try {
@@ -66,8 +90,9 @@ public class UserDbStorage implements UserStorage {
             Number generatedId = userInsert.executeAndReturnKey(parameters);
             user.setId(generatedId.longValue());
 
-            updateFriendships(user);
-            return findById(user.getId());
+            updateFriendships(user, false);
+            versions.userChanged(user.getId());
+            return user;
         } catch (DataAccessException e) {
             log.error("Failed to create user {}", user, e);
             throw new RuntimeException("Failed to create user", e);
@@ -87,8 +112,14 @@ public class UserDbStorage implements UserStorage {
             if (updated == 0) {
                 throw new NotFoundException("User with id " + user.getId() + " not found");
             }
-            updateFriendships(user);
-            return findById(user.getId());
+            if (user.isFriendsAssigned()) {
+                updateFriendships(user, true);
+            } else {
+                user.setFriends(Arrays.stream(friendshipGraph.friendsOf(user.getId())).boxed()
+                        .collect(Collectors.toCollection(HashSet::new)));
+            }
+            versions.userChanged(user.getId());
+            return user;
         } catch (DataAccessException e) {
             log.error("Failed to update user {}", user, e);
             throw new RuntimeException("Failed to update user", e);
@@ -97,8 +128,36 @@ public class UserDbStorage implements UserStorage {
 
     @Override
     public Collection<User> findAll() {
+        return findAll(new UserFilter());
+    }
+
+    @Override
+    public Collection<User> findAll(UserFilter filter) {
+        List<String> conditions = new ArrayList<>();
+        List<Object> args = new ArrayList<>();
+        if (filter.getAfter() != null) {
+            conditions.add("user_id > ?");
+            args.add(filter.getAfter());
+        }
+        if (filter.getBirthdayFrom() != null) {
+            conditions.add("birthday >= ?");
+            args.add(toDate(filter.getBirthdayFrom()));
+        }
+        if (filter.getBirthdayTo() != null) {
+            conditions.add("birthday <= ?");
+            args.add(toDate(filter.getBirthdayTo()));
+        }
+        StringBuilder query = new StringBuilder(SELECT_ALL_USERS);
+        if (!conditions.isEmpty()) {
+            query.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        query.append(" ORDER BY user_id");
+        if (filter.getLimit() != null) {
+            query.append(" LIMIT ?");
+            args.add(filter.getLimit());
+        }
         try {
-            List<User> users = jdbcTemplate.query(SELECT_ALL_USERS, userRowMapper);
+            List<User> users = jdbcTemplate.query(query.toString(), userRowMapper, args.toArray());
             loadFriendships(users);
             return users;
         } catch (DataAccessException e) {
@@ -123,13 +182,58 @@ public class UserDbStorage implements UserStorage {
         }
     }
 
+    /**
+     * Loads users with their friends preserving the order of {@code ids}; ids without a matching user are
+     * skipped.
+     */
+    @Override
+    public List<User> findByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        try {
+            List<User> found = HydrationSupport.queryByIds(jdbcTemplate, SELECT_USERS_BY_IDS, ids, userRowMapper);
+            loadFriendships(found);
+            Map<Long, User> userById = HydrationSupport.indexById(found, User::getId);
+            return ids.stream()
+                    .map(userById::get)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+        } catch (DataAccessException e) {
+            log.error("Failed to fetch users {}", ids, e);
+            throw new RuntimeException("Failed to fetch users", e);
+        }
+    }
+
+    @Override
+    public boolean exists(Long id) {
+        try {
+            return Boolean.TRUE.equals(jdbcTemplate.queryForObject(USER_EXISTS, Boolean.class, id));
+        } catch (DataAccessException e) {
+            log.error("Failed to check user with id {}", id, e);
+            throw new RuntimeException("Failed to check user", e);
+        }
+    }
+
     @Override
     public void delete(Long id) {
         try {
+            List<Long> likedFilmIds = jdbcTemplate.queryForList(SELECT_LIKED_FILM_IDS, Long.class, id);
+            jdbcTemplate.update(DECREMENT_LIKES_COUNT_BY_USER_ID, id);
             int updated = jdbcTemplate.update(DELETE_USER, id);
             if (updated == 0) {
                 throw new NotFoundException("User with id " + id + " not found");
             }
+            likedFilmIds.forEach(filmId -> {
+                popularityIndex.increment(filmId, -1);
+                versions.filmChanged(filmId);
+            });
+            recommendationIndex.userRemoved(id);
+            friendSuggestions.userRemoved(id);
+            friendshipGraph.removeUser(id);
+            versions.userDeleted(id);
+            // other users lose the deleted one from their friend lists
+            versions.allUsersChanged();
         } catch (DataAccessException e) {
             log.error("Failed to delete user with id {}", id, e);
             throw new RuntimeException("Failed to delete user", e);
@@ -140,6 +244,9 @@ public class UserDbStorage implements UserStorage {
     public void addFriend(Long userId, Long friendId) {
         try {
             jdbcTemplate.update(MERGE_FRIENDSHIP, userId, friendId);
+            friendshipGraph.add(userId, friendId);
+            friendSuggestions.friendshipChanged(userId);
+            versions.userChanged(userId);
         } catch (DataAccessException e) {
             log.error("Failed to add friend {} for user {}", friendId, userId, e);
             throw new RuntimeException("Failed to add friend", e);
@@ -149,7 +256,10 @@ public class UserDbStorage implements UserStorage {
     @Override
     public void removeFriend(Long userId, Long friendId) {
         try {
-            int updated = jdbcTemplate.update(DELETE_FRIENDSHIP, userId, friendId);
+            jdbcTemplate.update(DELETE_FRIENDSHIP, userId, friendId);
+            friendshipGraph.remove(userId, friendId);
+            friendSuggestions.friendshipChanged(userId);
+            versions.userChanged(userId);
         } catch (DataAccessException e) {
             log.error("Failed to remove friend {} for user {}", friendId, userId, e);
             throw new RuntimeException("Failed to remove friend", e);
@@ -159,9 +269,7 @@ public class UserDbStorage implements UserStorage {
     @Override
     public Collection<User> getFriends(Long userId) {
         try {
-            List<User> friends = jdbcTemplate.query(SELECT_FRIENDS_BY_USER_ID, userRowMapper, userId);
-            loadFriendships(friends);
-            return friends;
+            return findByIds(friendshipGraph.friendsOf(userId));
         } catch (DataAccessException e) {
             log.error("Failed to fetch friends for user {}", userId, e);
             throw new RuntimeException("Failed to fetch friends", e);
@@ -171,62 +279,76 @@ public class UserDbStorage implements UserStorage {
     @Override
     public Collection<User> getCommonFriends(Long userId, Long otherId) {
         try {
-            List<User> friends = jdbcTemplate.query(SELECT_COMMON_FRIENDS, userRowMapper, userId, otherId);
-            loadFriendships(friends);
-            return friends;
+            return findByIds(friendshipGraph.commonFriends(userId, otherId));
         } catch (DataAccessException e) {
             log.error("Failed to fetch common friends for users {} and {}", userId, otherId, e);
             throw new RuntimeException("Failed to fetch common friends", e);
         }
     }
 
-    private void updateFriendships(User user) {
+    /**
+     * Brings {@code friendships} in line with the user's friends, writing only the rows that differ from
+     * what is stored. A new user has nothing stored, so its current rows are not read.
+     */
+    private void updateFriendships(User user, boolean existing) {
         if (user.getId() == null) {
             return;
         }
         try {
-            jdbcTemplate.update(DELETE_FRIENDSHIPS_BY_USER_ID, user.getId());
-            Set<Long> friends = user.getFriends();
-            if (friends == null || friends.isEmpty()) {
-                return;
+            Set<Long> requested = user.getFriends() == null ? Collections.emptySet() : user.getFriends();
+            Set<Long> stored = new HashSet<>();
+            if (existing) {
+                for (long friendId : friendshipGraph.friendsOf(user.getId())) {
+                    stored.add(friendId);
+                }
+            }
+            List<Object[]> removed = new ArrayList<>();
+            for (Long friendId : stored) {
+                if (!requested.contains(friendId)) {
+                    removed.add(new Object[]{user.getId(), friendId});
+                }
+            }
+            List<Object[]> added = new ArrayList<>();
+            for (Long friendId : requested) {
+                if (!stored.contains(friendId)) {
+                    added.add(new Object[]{user.getId(), friendId});
+                }
+            }
+            if (!removed.isEmpty()) {
+                jdbcTemplate.batchUpdate(DELETE_FRIENDSHIP, removed);
+                removed.forEach(args -> friendshipGraph.remove(user.getId(), (Long) args[1]));
             }
-            List<Object[]> batchArgs = new ArrayList<>();
-            for (Long friendId : friends) {
-                batchArgs.add(new Object[]{user.getId(), friendId});
+            if (!added.isEmpty()) {
+                jdbcTemplate.batchUpdate(MERGE_FRIENDSHIP, added);
+                added.forEach(args -> friendshipGraph.add(user.getId(), (Long) args[1]));
+            }
+            if (!removed.isEmpty() || !added.isEmpty()) {
+                friendSuggestions.friendshipChanged(user.getId());
             }
-            jdbcTemplate.batchUpdate(MERGE_FRIENDSHIP, batchArgs);
         } catch (DataAccessException e) {
             log.error("Failed to update friendships for user {}", user.getId(), e);
             throw new RuntimeException("Failed to update friendships", e);
         }
     }
 
-    private void loadFriendships(Collection<User> users) {
-        if (users == null || users.isEmpty()) {
-            return;
+    private List<User> findByIds(long[] ids) {
+        if (ids.length == 0) {
+            return new ArrayList<>();
         }
-        Map<Long, User> usersById = users.stream()
-                .collect(Collectors.toMap(User::getId, user -> user));
-        if (usersById.isEmpty()) {
+        List<User> users = HydrationSupport.queryByIds(jdbcTemplate, SELECT_USERS_BY_IDS,
+                Arrays.stream(ids).boxed().toList(), userRowMapper);
+        loadFriendships(users);
+        return users;
+    }
+
+    private void loadFriendships(Collection<User> users) {
+        if (users == null) {
             return;
         }
-        String placeholders = usersById.keySet().stream()
-                .map(id -> "?")
-                .collect(Collectors.joining(","));
-        String query = String.format(SELECT_FRIENDSHIPS_BY_USER_IDS, placeholders);
-        Object[] args = usersById.keySet().toArray();
-        try {
-            jdbcTemplate.query(query, args, rs -> {
-                long userId = rs.getLong("user_id");
-                long friendId = rs.getLong("friend_id");
-                User user = usersById.get(userId);
-                if (user != null) {
-                    user.getFriends().add(friendId);
-                }
-            });
-        } catch (DataAccessException e) {
-            log.error("Failed to load friendships for users {}", usersById.keySet(), e);
-            throw new RuntimeException("Failed to load friendships", e);
+        for (User user : users) {
+            for (long friendId : friendshipGraph.friendsOf(user.getId())) {
+                user.getFriends().add(friendId);
+            }
         }
     }
 
@@ -234,7 +356,7 @@ public class UserDbStorage implements UserStorage {
         return localDate == null ? null : Date.valueOf(localDate);
     }
 
-    private static class UserRowMapper implements RowMapper<User> {
+    static class UserRowMapper implements RowMapper<User> {
         @Override
         public User mapRow(ResultSet rs, int rowNum) throws SQLException {
             User user = new User();
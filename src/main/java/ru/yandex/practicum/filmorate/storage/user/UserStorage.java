@@ -1,8 +1,10 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.UserFilter;
 
 import java.util.Collection;
+import java.util.List;
 
 public interface UserStorage {
     User create(User user);
@@ -11,8 +13,14 @@ public interface UserStorage {
 
     Collection<User> findAll();
 
+    Collection<User> findAll(UserFilter filter);
+
     User findById(Long id);
 
+    List<User> findByIds(List<Long> ids);
+
+    boolean exists(Long id);
+
     void delete(Long id);
 
     void addFriend(Long userId, Long friendId);
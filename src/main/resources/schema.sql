@@ -40,6 +40,7 @@ CREATE TABLE IF NOT EXISTS films
     release_date  DATE         NOT NULL,
     duration      INT          NOT NULL,
     mpa_rating_id INT          NOT NULL,
+    likes_count   BIGINT       NOT NULL DEFAULT 0,
     CONSTRAINT fk_films_mpa FOREIGN KEY (mpa_rating_id)
         REFERENCES mpa_ratings (mpa_rating_id),
     CONSTRAINT films_duration_chk CHECK (duration > 0),
@@ -68,8 +69,17 @@ CREATE TABLE IF NOT EXISTS film_likes
         REFERENCES users (user_id) ON DELETE CASCADE
 );
 
-CREATE INDEX IF NOT EXISTS idx_films_mpa ON films (mpa_rating_id);
+ALTER TABLE films ADD COLUMN IF NOT EXISTS likes_count BIGINT NOT NULL DEFAULT 0;
+
+DROP INDEX IF EXISTS idx_films_mpa;
+DROP INDEX IF EXISTS idx_film_genres_genre;
+-- popular lists are served by the in-process popularity index, so the counter needs no index of its own
+DROP INDEX IF EXISTS idx_films_likes_count;
+
+CREATE INDEX IF NOT EXISTS idx_films_mpa_film ON films (mpa_rating_id, film_id);
+CREATE INDEX IF NOT EXISTS idx_films_release_film ON films (release_date, film_id);
 CREATE INDEX IF NOT EXISTS idx_film_likes_user ON film_likes (user_id);
-CREATE INDEX IF NOT EXISTS idx_film_genres_genre ON film_genres (genre_id);
+CREATE INDEX IF NOT EXISTS idx_film_genres_genre_film ON film_genres (genre_id, film_id);
+CREATE INDEX IF NOT EXISTS idx_users_birthday_user ON users (birthday, user_id);
 CREATE INDEX IF NOT EXISTS idx_friendships_user ON friendships (user_id);
-CREATE INDEX IF NOT EXISTS idx_friendships_friend ON friendships (friend_id);
\ No newline at end of file
+CREATE INDEX IF NOT EXISTS idx_friendships_friend ON friendships (friend_id);
@@ -1,13 +1,21 @@
 package ru.yandex.practicum.filmorate;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Validation;
 import jakarta.validation.Validator;
 import jakarta.validation.ValidatorFactory;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
 import ru.yandex.practicum.filmorate.controller.FilmController;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
 import ru.yandex.practicum.filmorate.model.MpaRating;
 import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
@@ -16,9 +24,12 @@ import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
 import java.time.LocalDate;
+import java.util.Collection;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -32,7 +43,7 @@ class FilmControllerTest {
         FilmStorage filmStorage = new InMemoryFilmStorage();
         UserStorage userStorage = new InMemoryUserStorage();
         FilmService filmService = new FilmService(filmStorage, userStorage);
-        filmController = new FilmController(filmService);
+        filmController = new FilmController(filmService, new ObjectMapper());
         ValidatorFactory factory = Validation.buildDefaultValidatorFactory();
         validator = factory.getValidator();
     }
@@ -96,6 +107,48 @@ class FilmControllerTest {
         assertNotNull(created.getId());
     }
 
+    @Test
+    void shouldAnswerNotModifiedWhenETagMatches() {
+        Film created = filmController.createFilm(getValidFilm());
+        MockHttpServletResponse firstResponse = new MockHttpServletResponse();
+        Film first = filmController.getFilm(created.getId(),
+                new ServletWebRequest(new MockHttpServletRequest("GET", "/films/" + created.getId()), firstResponse));
+        String etag = firstResponse.getHeader(HttpHeaders.ETAG);
+
+        assertNotNull(first);
+        assertNotNull(etag);
+
+        MockHttpServletRequest conditionalRequest = new MockHttpServletRequest("GET", "/films/" + created.getId());
+        conditionalRequest.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+        MockHttpServletResponse secondResponse = new MockHttpServletResponse();
+        Film second = filmController.getFilm(created.getId(), new ServletWebRequest(conditionalRequest, secondResponse));
+
+        assertNull(second);
+        assertEquals(HttpStatus.NOT_MODIFIED.value(), secondResponse.getStatus());
+    }
+
+    @Test
+    void shouldReturnDefaultPageWhenLimitMissing() {
+        for (int i = 0; i <= FilmFilter.DEFAULT_LIMIT; i++) {
+            filmController.createFilm(getValidFilm());
+        }
+
+        ResponseEntity<Collection<Film>> page = filmController.getAllFilms(new FilmFilter(),
+                new ServletWebRequest(new MockHttpServletRequest("GET", "/films"), new MockHttpServletResponse()));
+
+        assertEquals(FilmFilter.DEFAULT_LIMIT, page.getBody().size());
+        assertEquals("<http://localhost/films?after=" + FilmFilter.DEFAULT_LIMIT + "&limit=" + FilmFilter.DEFAULT_LIMIT
+                + ">; rel=\"next\"", page.getHeaders().getFirst(HttpHeaders.LINK));
+
+        FilmFilter next = new FilmFilter();
+        next.setAfter((long) FilmFilter.DEFAULT_LIMIT);
+        ResponseEntity<Collection<Film>> last = filmController.getAllFilms(next,
+                new ServletWebRequest(new MockHttpServletRequest("GET", "/films"), new MockHttpServletResponse()));
+
+        assertEquals(1, last.getBody().size());
+        assertNull(last.getHeaders().getFirst(HttpHeaders.LINK));
+    }
+
     private Film getValidFilm() {
         Film film = new Film();
         film.setName("Valid");
@@ -1,13 +1,27 @@
 package ru.yandex.practicum.filmorate;
 
+import lombok.RequiredArgsConstructor;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import ru.yandex.practicum.filmorate.controller.SnapshotController;
+
+import static org.assertj.core.api.Assertions.assertThat;
 
 @SpringBootTest
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
 class FilmorateApplicationTests {
 
+    private final ApplicationContext context;
+
     @Test
     void contextLoads() {
     }
 
+    @Test
+    void shouldNotExposeSnapshotExportByDefault() {
+        assertThat(context.getBeansOfType(SnapshotController.class)).isEmpty();
+    }
+
 }
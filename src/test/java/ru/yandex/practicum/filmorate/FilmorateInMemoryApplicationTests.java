@@ -0,0 +1,58 @@
+package ru.yandex.practicum.filmorate;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "filmorate.storage.type=memory",
+        "filmorate.storage.journal.dir=",
+        "spring.datasource.url=jdbc:h2:mem:memory-storage;DB_CLOSE_DELAY=-1"})
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class FilmorateInMemoryApplicationTests {
+
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final FilmService filmService;
+    private final UserService userService;
+
+    @Test
+    void shouldServeFilmsAndUsersFromMemory() {
+        assertThat(filmStorage).isInstanceOf(InMemoryFilmStorage.class);
+        assertThat(userStorage).isInstanceOf(InMemoryUserStorage.class);
+
+        User user = new User();
+        user.setEmail("memory@example.com");
+        user.setLogin("memory");
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        User liker = userService.create(user);
+        Film film = new Film();
+        film.setName("Kept in memory");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(90);
+        film.setMpa(new MpaRating(1, null));
+        Film created = filmService.create(film);
+        filmService.addLike(created.getId(), liker.getId());
+
+        assertThat(filmService.getPopular(1, null, null))
+                .singleElement()
+                .satisfies(popular -> {
+                    assertThat(popular.getMpa().getName()).isEqualTo("G");
+                    assertThat(popular.getLikes()).containsExactly(liker.getId());
+                });
+    }
+}
@@ -1,5 +1,6 @@
 package ru.yandex.practicum.filmorate;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Validation;
 import jakarta.validation.Validator;
@@ -8,16 +9,22 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import ru.yandex.practicum.filmorate.controller.UserController;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.UserFilter;
 import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.EntityVersions;
 import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -29,8 +36,8 @@ class UserControllerTest {
     @BeforeEach
     void setUp() {
         UserStorage storage = new InMemoryUserStorage();
-        UserService userService = new UserService(storage);
-        userController = new UserController(userService);
+        UserService userService = new UserService(storage, new EntityVersions());
+        userController = new UserController(userService, new ObjectMapper().findAndRegisterModules());
         ValidatorFactory factory = Validation.buildDefaultValidatorFactory();
         validator = factory.getValidator();
     }
@@ -91,6 +98,23 @@ class UserControllerTest {
                 () -> userController.updateUser(user));
     }
 
+    @Test
+    void streamAllUsers_shouldWriteOneJsonLinePerUser() throws IOException {
+        userController.createUser(makeValidUser());
+        userController.createUser(makeValidUser());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        UserFilter filter = new UserFilter();
+        filter.setLimit(5);
+        userController.streamAllUsers(filter).getBody().writeTo(out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length, "Every user should be written on a line of its own");
+        assertTrue(lines[0].startsWith("{\"id\":1"), "Users should be ordered by id");
+        assertEquals(5, filter.getLimit(), "The caller's filter should not be used as the cursor");
+        assertNull(filter.getAfter(), "The caller's filter should not be used as the cursor");
+    }
+
     private User makeValidUser() {
         User user = new User();
         user.setEmail("test@example.com");
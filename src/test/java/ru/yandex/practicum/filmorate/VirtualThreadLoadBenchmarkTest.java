@@ -0,0 +1,157 @@
+package ru.yandex.practicum.filmorate;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.user.FriendshipGraph;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Date;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Starts the application on platform and on virtual request threads and drives more concurrent clients
+ * than Tomcat has platform workers at {@code /films/popular} and {@code /users/{id}/friends}, logging
+ * throughput and p50/p99 latency of each. Run with {@code mvn test -Pbenchmark}.
+ */
+@Slf4j
+@Tag("benchmark")
+class VirtualThreadLoadBenchmarkTest {
+    private static final int USERS = 10_000;
+    private static final int FILMS = 2_000;
+    private static final int FRIENDS_PER_USER = 50;
+    private static final int LIKES_PER_USER = 5;
+    private static final int CLIENTS = 400;
+    private static final Duration WARMUP = Duration.ofSeconds(3);
+    private static final Duration MEASUREMENT = Duration.ofSeconds(10);
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void compareThroughputAndTailLatency(boolean virtualThreads) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(FilmorateApplication.class)
+                // arguments rather than default properties, which application.yml would override
+                .run("--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:load-" + virtualThreads + ";DB_CLOSE_DELAY=-1",
+                        "--spring.threads.virtual.enabled=" + virtualThreads,
+                        "--logging.level.org.zalando.logbook=INFO")) {
+            seed(context);
+            int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            String mode = virtualThreads ? "virtual" : "platform";
+            load(mode, "/films/popular", port, i -> "/films/popular?count=10");
+            load(mode, "/users/{id}/friends", port,
+                    i -> "/users/" + ThreadLocalRandom.current().nextInt(1, USERS + 1) + "/friends");
+        }
+    }
+
+    private void load(String mode, String endpoint, int port, IntFunction<String> path) throws Exception {
+        try (HttpClient client = HttpClient.newBuilder().executor(Executors.newVirtualThreadPerTaskExecutor()).build();
+             ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            run(client, clients, port, path, WARMUP);
+            long[] latencies = run(client, clients, port, path, MEASUREMENT);
+            Arrays.sort(latencies);
+            log.info("{} threads, {}: {} req/s, p50={} ms, p99={} ms", mode, endpoint,
+                    latencies.length / MEASUREMENT.toSeconds(),
+                    percentile(latencies, 0.50) / 1_000_000.0, percentile(latencies, 0.99) / 1_000_000.0);
+            assertThat(latencies).isNotEmpty();
+        }
+    }
+
+    private long[] run(HttpClient client, ExecutorService clients, int port, IntFunction<String> path,
+                       Duration duration) throws Exception {
+        long deadline = System.nanoTime() + duration.toNanos();
+        List<Future<long[]>> results = new ArrayList<>(CLIENTS);
+        for (int c = 0; c < CLIENTS; c++) {
+            results.add(clients.submit(() -> {
+                long[] samples = new long[1024];
+                int count = 0;
+                for (int i = 0; System.nanoTime() < deadline; i++) {
+                    HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path.apply(i)))
+                            .GET()
+                            .build();
+                    long started = System.nanoTime();
+                    HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                    if (response.statusCode() != 200) {
+                        throw new IllegalStateException("Unexpected status " + response.statusCode());
+                    }
+                    if (count == samples.length) {
+                        samples = Arrays.copyOf(samples, count * 2);
+                    }
+                    samples[count++] = System.nanoTime() - started;
+                }
+                return Arrays.copyOf(samples, count);
+            }));
+        }
+        List<long[]> all = new ArrayList<>(CLIENTS);
+        int total = 0;
+        for (Future<long[]> result : results) {
+            long[] samples = result.get();
+            all.add(samples);
+            total += samples.length;
+        }
+        long[] latencies = new long[total];
+        int offset = 0;
+        for (long[] samples : all) {
+            System.arraycopy(samples, 0, latencies, offset, samples.length);
+            offset += samples.length;
+        }
+        return latencies;
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(percentile * sorted.length) - 1)];
+    }
+
+    private void seed(ConfigurableApplicationContext context) {
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<Object[]> users = new ArrayList<>(USERS);
+        for (long id = 1; id <= USERS; id++) {
+            users.add(new Object[]{id, "load" + id + "@example.com", "load" + id, Date.valueOf(LocalDate.of(1990, 1, 1))});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (user_id, email, login, birthday) VALUES (?, ?, ?, ?)", users);
+        List<Object[]> films = new ArrayList<>(FILMS);
+        for (long id = 1; id <= FILMS; id++) {
+            films.add(new Object[]{id, "Load film " + id, Date.valueOf(LocalDate.of(2000, 1, 1)), 1 + id % 5});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO films (film_id, name, release_date, duration, mpa_rating_id) "
+                + "VALUES (?, ?, ?, 100, ?)", films);
+        List<Object[]> friendships = new ArrayList<>(USERS * FRIENDS_PER_USER);
+        List<Object[]> likes = new ArrayList<>(USERS * LIKES_PER_USER);
+        for (long id = 1; id <= USERS; id++) {
+            for (int f = 1; f <= FRIENDS_PER_USER; f++) {
+                friendships.add(new Object[]{id, (id + f * 97L) % USERS + 1});
+            }
+            for (int l = 0; l < LIKES_PER_USER; l++) {
+                // skewed towards low ids so that the popular list has a stable head
+                long filmId = 1 + (long) (FILMS * Math.pow(random.nextDouble(), 3));
+                likes.add(new Object[]{filmId, id});
+            }
+        }
+        jdbcTemplate.batchUpdate("MERGE INTO friendships (user_id, friend_id) KEY (user_id, friend_id) VALUES (?, ?)",
+                friendships.stream().filter(args -> !args[0].equals(args[1])).toList());
+        jdbcTemplate.batchUpdate("MERGE INTO film_likes (film_id, user_id) KEY (film_id, user_id) VALUES (?, ?)", likes);
+        context.getBean(FilmDbStorage.class).repairLikesCount();
+        context.getBean(FilmPopularityIndex.class).rebuild();
+        context.getBean(FriendshipGraph.class).load();
+    }
+}
@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ConnectionLimitingDataSourceTest {
+
+    @Test
+    void shouldHandOutPermitsOnlyUntilConnectionsAreClosed() throws Exception {
+        JdbcDataSource target = new JdbcDataSource();
+        target.setURL("jdbc:h2:mem:connection-limit;DB_CLOSE_DELAY=-1");
+        ConnectionLimitingDataSource dataSource = new ConnectionLimitingDataSource(target, 1, Duration.ofMillis(50));
+
+        Connection first = dataSource.getConnection();
+        assertThat(dataSource.availablePermits()).isZero();
+        assertThatThrownBy(dataSource::getConnection).isInstanceOf(SQLTransientConnectionException.class);
+
+        first.close();
+        first.close();
+        assertThat(dataSource.availablePermits()).isEqualTo(1);
+        try (Connection second = dataSource.getConnection()) {
+            assertThat(second.isValid(1)).isTrue();
+        }
+        assertThat(dataSource.availablePermits()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,78 @@
+package ru.yandex.practicum.filmorate.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.service.FilmImportService;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+
+import java.io.InputStream;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MetricsAspectTest {
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final FilmStorage filmStorage = instrument(new InMemoryFilmStorage());
+
+    @Test
+    void shouldTimeCallsAndRecordReturnedRows() {
+        filmStorage.create(buildFilm("First"));
+        filmStorage.create(buildFilm("Second"));
+        filmStorage.findAll();
+
+        assertThat(registry.get("filmorate.storage").tag("operation", "film.create").timer().count())
+                .isEqualTo(2);
+        assertThat(registry.get("filmorate.storage.rows").tag("operation", "film.findAll").summary().totalAmount())
+                .isEqualTo(2);
+        assertThat(registry.get("filmorate.storage.rows").tag("operation", "film.create").summary().count())
+                .isEqualTo(2);
+    }
+
+    @Test
+    void shouldCountErrorsByOperationAndException() {
+        assertThatThrownBy(() -> filmStorage.findById(404L)).isInstanceOf(NotFoundException.class);
+
+        assertThat(registry.get("filmorate.storage.errors")
+                .tags("operation", "film.findById", "exception", "NotFoundException")
+                .counter().count()).isEqualTo(1);
+        assertThat(registry.get("filmorate.storage").tag("operation", "film.findById").timer().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void shouldNameOperationsAfterTheEntityServed() throws NoSuchMethodException {
+        assertThat(MetricsAspect.operation(UserDbStorage.class,
+                UserDbStorage.class.getMethod("getCommonFriends", Long.class, Long.class)))
+                .isEqualTo("user.getCommonFriends");
+        assertThat(MetricsAspect.operation(InMemoryFilmStorage.class,
+                InMemoryFilmStorage.class.getMethod("getMostPopular", int.class, Integer.class, Integer.class)))
+                .isEqualTo("film.getMostPopular");
+        assertThat(MetricsAspect.operation(FilmImportService.class,
+                FilmImportService.class.getMethod("importFilms", InputStream.class)))
+                .isEqualTo("filmImport.importFilms");
+    }
+
+    private <T> T instrument(T target) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(new MetricsAspect(registry));
+        return factory.getProxy();
+    }
+
+    private static Film buildFilm(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("Description");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        film.setMpa(new MpaRating(1, "G"));
+        return film;
+    }
+}
@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Locks in how many statements a piece of code may run through a {@link QueryCountingDataSource}, e.g.
+ * {@code QueryBudget.assertAtMost(3, () -> filmService.addLike(filmId, userId))} in a Spring Boot test.
+ */
+public final class QueryBudget {
+
+    private QueryBudget() {
+    }
+
+    public static QueryStats assertAtMost(int statements, Runnable code) {
+        QueryStats stats = QueryCounter.count(code);
+        assertThat(stats.statements())
+                .as("statements run, by SQL: %s", stats.executions())
+                .isLessThanOrEqualTo(statements);
+        return stats;
+    }
+
+    /**
+     * Fails if any one statement runs more than {@code times} times, which catches N+1 queries even
+     * where the total is allowed to grow with the data.
+     */
+    public static QueryStats assertNoStatementRunsMoreThan(int times, Runnable code) {
+        QueryStats stats = QueryCounter.count(code);
+        assertThat(stats.executions().values())
+                .as("statements run, by SQL: %s", stats.executions())
+                .allMatch(count -> count <= times);
+        return stats;
+    }
+}
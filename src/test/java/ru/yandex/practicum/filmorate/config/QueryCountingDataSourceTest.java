@@ -0,0 +1,70 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class QueryCountingDataSourceTest {
+    private static final String SELECT_ONE = "SELECT id FROM counted WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(new QueryCountingDataSource(target()));
+
+    @Test
+    void shouldCountStatementsRowsAndRepeatsWithinScope() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS counted (id BIGINT PRIMARY KEY)");
+        jdbcTemplate.update("DELETE FROM counted");
+
+        QueryStats stats = QueryCounter.count(() -> {
+            jdbcTemplate.batchUpdate("INSERT INTO counted (id) VALUES (?)",
+                    List.of(new Object[]{1L}, new Object[]{2L}, new Object[]{3L}));
+            assertThat(jdbcTemplate.queryForList("SELECT id FROM counted", Long.class)).hasSize(3);
+            for (long id = 1; id <= 3; id++) {
+                jdbcTemplate.queryForObject(SELECT_ONE, Long.class, id);
+            }
+        });
+
+        assertThat(stats.statements()).isEqualTo(5);
+        assertThat(stats.rows()).isEqualTo(6);
+        assertThat(stats.time()).isPositive();
+        assertThat(stats.mostRepeated().getKey()).isEqualTo(SELECT_ONE);
+        assertThat(stats.mostRepeated().getValue()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldAddNestedScopesToOuterAndIgnoreUnscopedStatements() {
+        jdbcTemplate.queryForObject("SELECT 1", Integer.class);
+
+        QueryStats outer;
+        QueryStats inner;
+        try (QueryCounter.Scope scope = QueryCounter.open()) {
+            jdbcTemplate.queryForObject("SELECT 1", Integer.class);
+            inner = QueryBudget.assertAtMost(1, () -> jdbcTemplate.queryForObject("SELECT 2", Integer.class));
+            outer = scope.stats();
+        }
+        jdbcTemplate.queryForObject("SELECT 3", Integer.class);
+
+        assertThat(inner.statements()).isEqualTo(1);
+        assertThat(outer.statements()).isEqualTo(2);
+        assertThat(outer.executions()).containsOnlyKeys("SELECT 1", "SELECT 2");
+        assertThat(QueryCounter.current()).isNull();
+    }
+
+    @Test
+    void shouldFailBudgetAssertionsWithTheStatementsRun() {
+        assertThatThrownBy(() -> QueryBudget.assertNoStatementRunsMoreThan(1, () -> {
+            jdbcTemplate.queryForObject("SELECT 1", Integer.class);
+            jdbcTemplate.queryForObject("SELECT 1", Integer.class);
+        })).isInstanceOf(AssertionError.class).hasMessageContaining("SELECT 1");
+    }
+
+    private static JdbcDataSource target() {
+        JdbcDataSource target = new JdbcDataSource();
+        target.setURL("jdbc:h2:mem:query-count;DB_CLOSE_DELAY=-1");
+        return target;
+    }
+}
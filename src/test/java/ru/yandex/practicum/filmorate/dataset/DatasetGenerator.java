@@ -0,0 +1,369 @@
+package ru.yandex.practicum.filmorate.dataset;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Fills the Filmorate schema with a synthetic dataset of production shape: users, films with genres,
+ * likes and friendships. How many films a user likes and which ones follow Zipf distributions, as do the
+ * number of friends and who they are, so a few celebrity films and users collect most of the edges while
+ * the rest form a long tail.
+ * <p>
+ * The dataset depends only on the {@link Spec}: every user and film draws from a random generator seeded
+ * with the spec seed and its own id, so the id ranges are generated in parallel on all cores and still
+ * produce the same rows on every run. Rows are written with batched JDBC inserts, each range in a
+ * transaction of its own, into a schema that must hold no films or users yet; the schema itself is created
+ * if it is missing.
+ * <p>
+ * Run {@link #main} to fill a database file, e.g. {@code jdbc:h2:file:./db/filmorate 1000000 1000000}.
+ */
+@Slf4j
+public class DatasetGenerator {
+    private static final int RANGE_SIZE = 20_000;
+    private static final int BATCH_SIZE = 5_000;
+    private static final int GENRES = 6;
+    private static final int MPA_RATINGS = 5;
+    private static final LocalDate FIRST_RELEASE = LocalDate.of(1930, 1, 1);
+    private static final LocalDate FIRST_BIRTHDAY = LocalDate.of(1950, 1, 1);
+    private static final String[] WORDS = {"Night", "City", "Last", "Summer", "Winter", "Ghost", "River",
+            "Star", "Secret", "Road", "Love", "War", "Silent", "Iron", "Golden", "Dark", "House", "Journey",
+            "Storm", "Garden", "Shadow", "Empire", "Ocean", "Mountain", "Dream", "Fire", "Glass", "Blue",
+            "Return", "Kingdom", "Stranger", "Island"};
+    // keep the random streams of one id apart
+    private static final long USER_STREAM = 1;
+    private static final long FILM_STREAM = 2;
+    private static final long LIKE_STREAM = 3;
+    private static final long FRIEND_STREAM = 4;
+
+    private static final String INSERT_USER = "INSERT INTO users (user_id, email, login, name, birthday) " +
+            "VALUES (?, ?, ?, ?, ?)";
+    private static final String INSERT_FILM = "INSERT INTO films (film_id, name, description, release_date, " +
+            "duration, mpa_rating_id) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_FILM_GENRE = "INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)";
+    private static final String INSERT_LIKE = "INSERT INTO film_likes (film_id, user_id) VALUES (?, ?)";
+    private static final String INSERT_FRIENDSHIP = "INSERT INTO friendships (user_id, friend_id) VALUES (?, ?)";
+    private static final String UPDATE_LIKES_COUNT = "UPDATE films f SET likes_count = " +
+            "(SELECT COUNT(*) FROM film_likes fl WHERE fl.film_id = f.film_id)";
+
+    private final DataSource dataSource;
+    private final Spec spec;
+    private final int threads;
+    private final ZipfDistribution likeDegree;
+    private final ZipfDistribution filmPopularity;
+    private final ZipfDistribution friendDegree;
+    private final ZipfDistribution userPopularity;
+    private final long filmStride;
+    private final long userStride;
+
+    /**
+     * Shape of a dataset. Each user likes a Zipf-distributed number of films, at most
+     * {@code maxLikesPerUser}, drawn from films ranked by a Zipf distribution with {@code likeExponent};
+     * friends are drawn the same way from users with {@code friendExponent}. Larger exponents mean
+     * fewer, bigger celebrities.
+     */
+    public record Spec(long seed, int users, int films, int maxLikesPerUser, double likeExponent,
+                       int maxFriendsPerUser, double friendExponent) {
+
+        /**
+         * About 22 likes and 17 friends per user on average, with the heaviest users at 200 and 500.
+         */
+        public static Spec of(int users, int films) {
+            return new Spec(42, users, films, 200, 1.2, 500, 1.5);
+        }
+
+        public Spec withSeed(long seed) {
+            return new Spec(seed, users, films, maxLikesPerUser, likeExponent, maxFriendsPerUser, friendExponent);
+        }
+    }
+
+    public record Summary(long users, long films, long filmGenres, long likes, long friendships,
+                          Duration elapsed) {
+    }
+
+    public DatasetGenerator(DataSource dataSource, Spec spec) {
+        this(dataSource, spec, Runtime.getRuntime().availableProcessors());
+    }
+
+    public DatasetGenerator(DataSource dataSource, Spec spec, int threads) {
+        if (spec.users() < 2 || spec.films() < 1) {
+            throw new IllegalArgumentException("A dataset needs at least two users and one film");
+        }
+        this.dataSource = dataSource;
+        this.spec = spec;
+        this.threads = threads;
+        this.likeDegree = new ZipfDistribution(Math.min(spec.maxLikesPerUser(), spec.films()), spec.likeExponent());
+        this.filmPopularity = new ZipfDistribution(spec.films(), spec.likeExponent());
+        this.friendDegree = new ZipfDistribution(Math.min(spec.maxFriendsPerUser(), spec.users() - 1),
+                spec.friendExponent());
+        this.userPopularity = new ZipfDistribution(spec.users(), spec.friendExponent());
+        this.filmStride = coprimeStride(spec.films());
+        this.userStride = coprimeStride(spec.users());
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 3) {
+            System.err.println("Usage: DatasetGenerator <jdbc-url> <users> <films> [seed]");
+            System.exit(2);
+        }
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(args[0], "sa", "password");
+        Spec spec = Spec.of(Integer.parseInt(args[1]), Integer.parseInt(args[2]));
+        if (args.length > 3) {
+            spec = spec.withSeed(Long.parseLong(args[3]));
+        }
+        new DatasetGenerator(dataSource, spec).generate();
+    }
+
+    public Summary generate() {
+        long started = System.nanoTime();
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql"), new ClassPathResource("data.sql"))
+                .execute(dataSource);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            // films and users first: likes and friendships refer to both
+            List<long[]> counts = new ArrayList<>();
+            counts.addAll(inParallel(executor, spec.users(), this::writeUsers));
+            counts.addAll(inParallel(executor, spec.films(), this::writeFilms));
+            counts.addAll(inParallel(executor, spec.users(), this::writeEdges));
+            long[] total = new long[5];
+            for (long[] count : counts) {
+                Arrays.setAll(total, i -> total[i] + count[i]);
+            }
+            finish();
+            Summary summary = new Summary(total[0], total[1], total[2], total[3], total[4],
+                    Duration.ofNanos(System.nanoTime() - started));
+            log.info("Dataset generated: {}", summary);
+            return summary;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Writes the rows of ids {@code from..to}, returning counts of users, films, film genres, likes and
+     * friendships written.
+     */
+    @FunctionalInterface
+    private interface RangeWriter {
+        long[] write(Connection connection, long from, long to) throws SQLException;
+    }
+
+    private List<long[]> inParallel(ExecutorService executor, int ids, RangeWriter writer) {
+        List<Future<long[]>> ranges = new ArrayList<>();
+        for (long from = 1; from <= ids; from += RANGE_SIZE) {
+            long first = from;
+            long last = Math.min(ids, from + RANGE_SIZE - 1);
+            ranges.add(executor.submit(() -> {
+                try (Connection connection = dataSource.getConnection()) {
+                    connection.setAutoCommit(false);
+                    long[] written = writer.write(connection, first, last);
+                    connection.commit();
+                    return written;
+                }
+            }));
+        }
+        List<long[]> counts = new ArrayList<>(ranges.size());
+        try {
+            for (Future<long[]> range : ranges) {
+                counts.add(range.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Dataset generation interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to generate dataset", e.getCause());
+        }
+        return counts;
+    }
+
+    private long[] writeUsers(Connection connection, long from, long to) throws SQLException {
+        try (Batch users = new Batch(connection, INSERT_USER, null)) {
+            for (long userId = from; userId <= to; userId++) {
+                SplittableRandom random = random(USER_STREAM, userId);
+                users.add(userId, "user" + userId + "@filmorate.dev", "user" + userId, name(random),
+                        Date.valueOf(FIRST_BIRTHDAY.plusDays(random.nextInt(20_000))));
+            }
+            return new long[]{users.rows, 0, 0, 0, 0};
+        }
+    }
+
+    private long[] writeFilms(Connection connection, long from, long to) throws SQLException {
+        try (Batch films = new Batch(connection, INSERT_FILM, null);
+             Batch filmGenres = new Batch(connection, INSERT_FILM_GENRE, films)) {
+            for (long filmId = from; filmId <= to; filmId++) {
+                SplittableRandom random = random(FILM_STREAM, filmId);
+                String name = name(random);
+                films.add(filmId, name, "A film about " + name.toLowerCase(),
+                        Date.valueOf(FIRST_RELEASE.plusDays(random.nextInt(33_000))),
+                        80 + random.nextInt(100), 1 + random.nextInt(MPA_RATINGS));
+                // consecutive genres from a random first one
+                int genreCount = 1 + random.nextInt(3);
+                int firstGenre = random.nextInt(GENRES);
+                for (int i = 0; i < genreCount; i++) {
+                    filmGenres.add(filmId, 1 + (firstGenre + i) % GENRES);
+                }
+            }
+            return new long[]{0, films.rows, filmGenres.rows, 0, 0};
+        }
+    }
+
+    private long[] writeEdges(Connection connection, long from, long to) throws SQLException {
+        try (Batch likes = new Batch(connection, INSERT_LIKE, null);
+             Batch friendships = new Batch(connection, INSERT_FRIENDSHIP, null)) {
+            for (long userId = from; userId <= to; userId++) {
+                for (long filmId : draw(random(LIKE_STREAM, userId), likeDegree, filmPopularity, filmStride,
+                        spec.films(), 0)) {
+                    likes.add(filmId, userId);
+                }
+                for (long friendId : draw(random(FRIEND_STREAM, userId), friendDegree, userPopularity, userStride,
+                        spec.users(), userId)) {
+                    friendships.add(userId, friendId);
+                }
+            }
+            return new long[]{0, 0, 0, likes.rows, friendships.rows};
+        }
+    }
+
+    /**
+     * Distinct ids for one user: a count from {@code degree}, then ranks from {@code popularity} mapped onto
+     * ids. Heavy users of a small population may get fewer ids than drawn, as the popular ranks repeat.
+     */
+    private static long[] draw(SplittableRandom random, ZipfDistribution degree, ZipfDistribution popularity,
+                               long stride, int population, long excluded) {
+        int wanted = degree.sample(random);
+        long[] ids = new long[wanted];
+        int size = 0;
+        for (int attempt = 0; size < wanted && attempt < wanted * 4; attempt++) {
+            long id = rankToId(popularity.sample(random), stride, population);
+            if (id != excluded && !contains(ids, size, id)) {
+                ids[size++] = id;
+            }
+        }
+        return Arrays.copyOf(ids, size);
+    }
+
+    private static boolean contains(long[] ids, int size, long id) {
+        for (int i = 0; i < size; i++) {
+            if (ids[i] == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Scatters ranks over the id range, so celebrities are not simply the oldest users and films.
+     */
+    private static long rankToId(int rank, long stride, int population) {
+        return (rank - 1) * stride % population + 1;
+    }
+
+    private static long coprimeStride(int population) {
+        long stride = 1_000_003;
+        while (gcd(stride, population) != 1) {
+            stride += 2;
+        }
+        return stride;
+    }
+
+    private static long gcd(long a, long b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+
+    private SplittableRandom random(long stream, long id) {
+        return new SplittableRandom(mix(spec.seed() ^ mix(stream * 0x9E3779B97F4A7C15L + id)));
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static String name(SplittableRandom random) {
+        int words = 1 + random.nextInt(3);
+        StringBuilder name = new StringBuilder(WORDS[random.nextInt(WORDS.length)]);
+        for (int i = 1; i < words; i++) {
+            name.append(' ').append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return name.toString();
+    }
+
+    /**
+     * Like counters and identity columns as the application expects them after its own inserts.
+     */
+    private void finish() {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate(UPDATE_LIKES_COUNT);
+            statement.execute("ALTER TABLE users ALTER COLUMN user_id RESTART WITH " + (spec.users() + 1));
+            statement.execute("ALTER TABLE films ALTER COLUMN film_id RESTART WITH " + (spec.films() + 1));
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to finish dataset", e);
+        }
+    }
+
+    /**
+     * Rows of one insert statement, executed {@value BATCH_SIZE} at a time. Flushing a batch flushes the
+     * one it depends on first, so foreign keys always find their rows.
+     */
+    private static class Batch implements AutoCloseable {
+        private final PreparedStatement statement;
+        private final Batch dependsOn;
+        private int pending;
+        private long rows;
+
+        Batch(Connection connection, String sql, Batch dependsOn) throws SQLException {
+            this.statement = connection.prepareStatement(sql);
+            this.dependsOn = dependsOn;
+        }
+
+        void add(Object... values) throws SQLException {
+            for (int i = 0; i < values.length; i++) {
+                statement.setObject(i + 1, values[i]);
+            }
+            statement.addBatch();
+            rows++;
+            if (++pending == BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        void flush() throws SQLException {
+            if (dependsOn != null) {
+                dependsOn.flush();
+            }
+            if (pending > 0) {
+                statement.executeBatch();
+                pending = 0;
+            }
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try {
+                flush();
+            } finally {
+                statement.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package ru.yandex.practicum.filmorate.dataset;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DatasetGeneratorTest {
+    private static final String CHECKSUM = "SELECT " +
+            "(SELECT COALESCE(SUM(user_id * 31 + LENGTH(name) + DAY_OF_YEAR(birthday)), 0) FROM users), " +
+            "(SELECT COALESCE(SUM(film_id * 31 + duration + mpa_rating_id), 0) FROM films), " +
+            "(SELECT COALESCE(SUM(film_id * 7 + genre_id), 0) FROM film_genres), " +
+            "(SELECT COALESCE(SUM(film_id * 1000003 + user_id), 0) FROM film_likes), " +
+            "(SELECT COALESCE(SUM(user_id * 1000003 + friend_id), 0) FROM friendships)";
+
+    private final List<JdbcTemplate> databases = new ArrayList<>();
+
+    @AfterEach
+    void dropDatabases() {
+        databases.forEach(database -> database.execute("SHUTDOWN"));
+    }
+
+    @Test
+    void shouldGenerateTheSameDatasetWhateverTheParallelism() {
+        DatasetGenerator.Spec spec = DatasetGenerator.Spec.of(3_000, 2_000);
+        JdbcTemplate sequential = database("sequential");
+        JdbcTemplate parallel = database("parallel");
+
+        DatasetGenerator.Summary summary = new DatasetGenerator(sequential.getDataSource(), spec, 1).generate();
+        new DatasetGenerator(parallel.getDataSource(), spec, 4).generate();
+
+        assertThat(summary.users()).isEqualTo(3_000);
+        assertThat(summary.films()).isEqualTo(2_000);
+        assertThat(summary.likes()).isEqualTo(count(sequential, "film_likes"));
+        assertThat(summary.friendships()).isEqualTo(count(sequential, "friendships"));
+        assertThat(parallel.queryForList(CHECKSUM)).isEqualTo(sequential.queryForList(CHECKSUM));
+    }
+
+    @Test
+    void shouldGenerateAnotherDatasetWithAnotherSeed() {
+        JdbcTemplate first = database("first-seed");
+        JdbcTemplate second = database("second-seed");
+
+        new DatasetGenerator(first.getDataSource(), DatasetGenerator.Spec.of(500, 500)).generate();
+        new DatasetGenerator(second.getDataSource(), DatasetGenerator.Spec.of(500, 500).withSeed(7)).generate();
+
+        assertThat(second.queryForList(CHECKSUM)).isNotEqualTo(first.queryForList(CHECKSUM));
+    }
+
+    @Test
+    void shouldConcentrateLikesAndFriendsOnFewCelebrities() {
+        JdbcTemplate database = database("celebrities");
+
+        new DatasetGenerator(database.getDataSource(), DatasetGenerator.Spec.of(5_000, 5_000)).generate();
+
+        Long topLikes = database.queryForObject("SELECT MAX(likes_count) FROM films", Long.class);
+        Long medianLikes = database.queryForObject("SELECT MEDIAN(likes_count) FROM films", Long.class);
+        assertThat(topLikes).isGreaterThan(50 * Math.max(1, medianLikes));
+        assertThat(database.queryForObject("SELECT SUM(likes_count) FROM films", Long.class))
+                .isEqualTo(count(database, "film_likes"));
+        Long topFollowers = database.queryForObject(
+                "SELECT MAX(c) FROM (SELECT COUNT(*) c FROM friendships GROUP BY friend_id)", Long.class);
+        assertThat(topFollowers).isGreaterThan(1_000L);
+        assertThat(database.queryForObject("SELECT COUNT(*) FROM friendships WHERE user_id = friend_id",
+                Long.class)).isZero();
+    }
+
+    private JdbcTemplate database(String name) {
+        JdbcTemplate database = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:dataset-" + name + ";DB_CLOSE_DELAY=-1", "sa", "password"));
+        databases.add(database);
+        return database;
+    }
+
+    private static long count(JdbcTemplate database, String table) {
+        return database.queryForObject("SELECT COUNT(*) FROM " + table, Long.class);
+    }
+}
@@ -0,0 +1,55 @@
+package ru.yandex.practicum.filmorate.load;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.dataset.DatasetGenerator;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Starts the application on a generated dataset and drives the default endpoint mix at a constant
+ * arrival rate, logging p50/p99/p999 latency per endpoint. Run with {@code mvn test -Pbenchmark}; size the
+ * run with {@code -Dload.rate}, {@code -Dload.duration}, {@code -Dload.users} and {@code -Dload.films}.
+ */
+@Slf4j
+@Tag("benchmark")
+class EndpointLoadBenchmarkTest {
+    private static final String URL = "jdbc:h2:mem:endpoint-load;DB_CLOSE_DELAY=-1";
+
+    @Test
+    void measureLatencyPerEndpoint() {
+        int rate = Integer.getInteger("load.rate", 500);
+        Duration duration = Duration.parse(System.getProperty("load.duration", "PT30S"));
+        int users = Integer.getInteger("load.users", 10_000);
+        int films = Integer.getInteger("load.films", 10_000);
+        new DatasetGenerator(new DriverManagerDataSource(URL, "sa", "password"),
+                DatasetGenerator.Spec.of(users, films)).generate();
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(FilmorateApplication.class)
+                // arguments rather than default properties, which application.yml would override
+                .run("--server.port=0",
+                        "--spring.datasource.url=" + URL,
+                        "--filmorate.storage.repair-likes-count=false",
+                        "--logging.level.org.zalando.logbook=INFO")) {
+            int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            LoadGenerator generator = new LoadGenerator(URI.create("http://localhost:" + port),
+                    LoadGenerator.defaultMix(users, films));
+            generator.run(rate, Duration.ofSeconds(5));
+            List<LoadGenerator.Result> results = generator.run(rate, duration);
+
+            log.info("{} requests/s for {}:{}", rate, duration, LoadGenerator.report(results));
+            assertThat(results).allSatisfy(result -> {
+                assertThat(result.requests()).isPositive();
+                assertThat(result.errors()).isZero();
+            });
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package ru.yandex.practicum.filmorate.load;
+
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Open-model HTTP load generator: requests start at a constant arrival rate whatever the server's
+ * response times, each on a virtual thread of its own, with the endpoint picked by weight from a mix.
+ * Latency is measured from the moment a request was due rather than from when it was sent, so a server
+ * that falls behind shows it in the tail instead of silently receiving less load. Latencies go into one
+ * HdrHistogram per endpoint.
+ * <p>
+ * Run {@link #main} against a running application, e.g. {@code http://localhost:8080 500 PT60S 10000 10000}
+ * for 500 requests per second for a minute over 10000 users and films, after ten seconds of warm-up.
+ */
+@Slf4j
+public class LoadGenerator {
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final URI baseUri;
+    private final List<Endpoint> mix;
+    private final int totalWeight;
+
+    /**
+     * One kind of request in the mix, chosen with probability {@code weight} over the total weight;
+     * {@code path} builds a path for each request from a random source.
+     */
+    public record Endpoint(String name, int weight, String method, Function<ThreadLocalRandom, String> path) {
+    }
+
+    public record Result(String endpoint, long requests, long errors, double p50, double p99, double p999,
+                         double max) {
+    }
+
+    public LoadGenerator(URI baseUri, List<Endpoint> mix) {
+        this.baseUri = baseUri;
+        this.mix = List.copyOf(mix);
+        this.totalWeight = mix.stream().mapToInt(Endpoint::weight).sum();
+    }
+
+    /**
+     * The read-mostly mix of the busiest endpoints over a dataset of {@code users} users and {@code films}
+     * films, such as one from the dataset generator.
+     */
+    public static List<Endpoint> defaultMix(int users, int films) {
+        return List.of(
+                new Endpoint("GET /films/popular", 30, "GET", random -> "/films/popular?count=10"),
+                new Endpoint("GET /films/{id}", 30, "GET",
+                        random -> "/films/" + random.nextInt(1, films + 1)),
+                new Endpoint("PUT /films/{id}/like/{userId}", 10, "PUT",
+                        random -> "/films/" + random.nextInt(1, films + 1) + "/like/"
+                                + random.nextInt(1, users + 1)),
+                new Endpoint("GET /users/{id}/friends", 20, "GET",
+                        random -> "/users/" + random.nextInt(1, users + 1) + "/friends"),
+                new Endpoint("GET /users/{id}/friends/common/{otherId}", 10, "GET",
+                        random -> "/users/" + random.nextInt(1, users + 1) + "/friends/common/"
+                                + random.nextInt(1, users + 1)));
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 5) {
+            System.err.println("Usage: LoadGenerator <base-url> <requests-per-second> <duration> <users> <films>");
+            System.exit(2);
+        }
+        LoadGenerator generator = new LoadGenerator(URI.create(args[0]),
+                defaultMix(Integer.parseInt(args[3]), Integer.parseInt(args[4])));
+        int rate = Integer.parseInt(args[1]);
+        generator.run(rate, Duration.ofSeconds(10));
+        System.out.println(report(generator.run(rate, Duration.parse(args[2]))));
+    }
+
+    /**
+     * Sends {@code rate} requests per second for {@code duration} and waits for the last of them.
+     */
+    public List<Result> run(int rate, Duration duration) {
+        Map<Endpoint, ConcurrentHistogram> latencies = new LinkedHashMap<>();
+        Map<Endpoint, AtomicLong> errors = new LinkedHashMap<>();
+        for (Endpoint endpoint : mix) {
+            latencies.put(endpoint, new ConcurrentHistogram(SIGNIFICANT_DIGITS));
+            errors.put(endpoint, new AtomicLong());
+        }
+        long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        long requests = duration.toNanos() / interval;
+        // the executor is closed first, waiting for every request before the client shuts down
+        try (HttpClient client = HttpClient.newBuilder().connectTimeout(REQUEST_TIMEOUT).build();
+             ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            long start = System.nanoTime();
+            for (long i = 0; i < requests; i++) {
+                long due = start + i * interval;
+                for (long wait = due - System.nanoTime(); wait > 0; wait = due - System.nanoTime()) {
+                    LockSupport.parkNanos(wait);
+                }
+                Endpoint endpoint = pick();
+                HttpRequest request = HttpRequest.newBuilder(baseUri.resolve(endpoint.path()
+                                .apply(ThreadLocalRandom.current())))
+                        .method(endpoint.method(), HttpRequest.BodyPublishers.noBody())
+                        .timeout(REQUEST_TIMEOUT)
+                        .build();
+                executor.execute(() -> {
+                    if (send(client, request)) {
+                        latencies.get(endpoint).recordValue(System.nanoTime() - due);
+                    } else {
+                        errors.get(endpoint).incrementAndGet();
+                    }
+                });
+            }
+        }
+        List<Result> results = new ArrayList<>(mix.size());
+        for (Endpoint endpoint : mix) {
+            Histogram histogram = latencies.get(endpoint);
+            results.add(new Result(endpoint.name(), histogram.getTotalCount(), errors.get(endpoint).get(),
+                    millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(99)),
+                    millis(histogram.getValueAtPercentile(99.9)), millis(histogram.getMaxValue())));
+        }
+        return results;
+    }
+
+    public static String report(List<Result> results) {
+        StringBuilder report = new StringBuilder(String.format("%n%-45s %9s %7s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "errors", "p50 ms", "p99 ms", "p999 ms", "max ms"));
+        for (Result result : results) {
+            report.append(String.format("%-45s %9d %7d %9.2f %9.2f %9.2f %9.2f%n", result.endpoint(),
+                    result.requests(), result.errors(), result.p50(), result.p99(), result.p999(), result.max()));
+        }
+        return report.toString();
+    }
+
+    private Endpoint pick() {
+        int ticket = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Endpoint endpoint : mix) {
+            ticket -= endpoint.weight();
+            if (ticket < 0) {
+                return endpoint;
+            }
+        }
+        throw new IllegalStateException("Endpoint weights changed");
+    }
+
+    private static boolean send(HttpClient client, HttpRequest request) {
+        try {
+            int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+            return status >= 200 && status < 300;
+        } catch (IOException e) {
+            log.debug("Request {} failed", request.uri(), e);
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,67 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EntityVersionsTest {
+    private static final BooleanSupplier EXISTS = () -> true;
+    private static final BooleanSupplier MISSING = () -> false;
+
+    private final EntityVersions versions = new EntityVersions();
+
+    @Test
+    void shouldChangeOnlyAffectedFilmTag() {
+        String filmOne = versions.filmTag(1L, EXISTS);
+        String filmTwo = versions.filmTag(2L, EXISTS);
+        String films = versions.filmsTag();
+
+        versions.filmChanged(1L);
+
+        assertThat(versions.filmTag(1L, EXISTS)).isNotEqualTo(filmOne);
+        assertThat(versions.filmTag(2L, EXISTS)).isEqualTo(filmTwo);
+        assertThat(versions.filmsTag()).isNotEqualTo(films);
+    }
+
+    @Test
+    void shouldChangeEveryUserTagWhenAllUsersChange() {
+        versions.userChanged(1L);
+        String userOne = versions.userTag(1L, EXISTS);
+        String userTwo = versions.userTag(2L, EXISTS);
+
+        versions.allUsersChanged();
+
+        assertThat(versions.userTag(1L, EXISTS)).isNotEqualTo(userOne);
+        assertThat(versions.userTag(2L, EXISTS)).isNotEqualTo(userTwo);
+    }
+
+    @Test
+    void shouldIssueNoTagForMissingOrDeletedFilm() {
+        assertThat(versions.filmTag(1L, MISSING)).isNull();
+
+        versions.filmChanged(1L);
+        assertThat(versions.filmTag(1L, MISSING)).isNotNull();
+
+        versions.filmDeleted(1L);
+        assertThat(versions.filmTag(1L, EXISTS)).isNull();
+    }
+
+    @Test
+    void shouldChangeFilmTagsWhenReferenceDataChanges() {
+        versions.filmChanged(1L);
+        String film = versions.filmTag(1L, EXISTS);
+        String films = versions.filmsTag();
+
+        versions.referenceDataChanged();
+
+        assertThat(versions.filmTag(1L, EXISTS)).isNotEqualTo(film);
+        assertThat(versions.filmsTag()).isNotEqualTo(films);
+    }
+
+    @Test
+    void shouldProduceQuotedStrongTags() {
+        assertThat(versions.referenceDataTag()).startsWith("\"").endsWith("\"").doesNotStartWith("W/");
+    }
+}
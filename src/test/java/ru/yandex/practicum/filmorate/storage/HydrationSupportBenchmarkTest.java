@@ -0,0 +1,145 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import ru.yandex.practicum.filmorate.dataset.DatasetGenerator;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the former {@code IN (?, ?, ...)} hydration queries, whose text changes with every list size,
+ * with the fixed-shape joins against {@link HydrationSupport#ID_TABLE} on a generated dataset of {@value FILMS}
+ * films with Zipf distributed likes. The lowest ids are the most liked films, so every size hydrates the heaviest
+ * page it can. The joins are also timed on their own up to every film at once, which spans several
+ * {@value HydrationSupport#MAX_IDS_PER_QUERY}-id chunks; the cost per returned row should stay flat.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Slf4j
+@Tag("benchmark")
+class HydrationSupportBenchmarkTest {
+    private static final String LIKES = "SELECT t.film_id, t.user_id AS item_id FROM film_likes t";
+    private static final String GENRES = "SELECT t.film_id, t.genre_id AS item_id FROM film_genres t";
+    private static final String COUNT = "SELECT COUNT(*) FROM %s WHERE film_id BETWEEN 1 AND ?";
+    private static final String URL = "jdbc:h2:mem:hydration-benchmark;DB_CLOSE_DELAY=-1";
+    private static final int USERS = 10_000;
+    private static final int FILMS = 100_000;
+    private static final int ITERATIONS = 20;
+    private static final int LARGE_ITERATIONS = 3;
+
+    private static JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    static void generateDataset() {
+        DatasetGenerator.Summary summary = new DatasetGenerator(new DriverManagerDataSource(URL, "sa", "password"),
+                DatasetGenerator.Spec.of(USERS, FILMS)).generate();
+        // one connection for all queries, as a pool would hand out, so opening connections is not measured
+        jdbcTemplate = new JdbcTemplate(new SingleConnectionDataSource(URL, "sa", "password", true));
+        log.info("Hydrating from {} likes and {} film genres", summary.likes(), summary.filmGenres());
+        assertThat(summary.likes()).isPositive();
+        assertThat(summary.filmGenres()).isPositive();
+    }
+
+    @AfterAll
+    static void dropDataset() {
+        jdbcTemplate.execute("SHUTDOWN");
+        ((SingleConnectionDataSource) jdbcTemplate.getDataSource()).destroy();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 100, 1_000})
+    void compareInListWithArrayParameter(int size) {
+        // every iteration uses a list one id longer, as distinct page sizes do in production
+        long inListNanos = 0;
+        long arrayNanos = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            List<Long> ids = ids(size + i);
+            inListNanos += time(() -> {
+                queryInList(LIKES, ids);
+                queryInList(GENRES, ids);
+            });
+            arrayNanos += time(() -> {
+                queryArray(LIKES, ids);
+                queryArray(GENRES, ids);
+            });
+        }
+        log.info("ids={} IN-list={} us/hydration array join={} us/hydration", size,
+                inListNanos / ITERATIONS / 1_000, arrayNanos / ITERATIONS / 1_000);
+
+        List<Long> ids = ids(size);
+        assertThat(queryArray(LIKES, ids)).isEqualTo(queryInList(LIKES, ids));
+        assertThat(queryArray(GENRES, ids)).isEqualTo(queryInList(GENRES, ids));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1_000, 10_000, 50_000, FILMS})
+    void hydrateLargeIdLists(int size) {
+        List<Long> ids = ids(size);
+        long nanos = 0;
+        for (int i = 0; i < LARGE_ITERATIONS; i++) {
+            nanos += time(() -> {
+                queryArray(LIKES, ids);
+                queryArray(GENRES, ids);
+            });
+        }
+        Map<Long, Set<Long>> likes = queryArray(LIKES, ids);
+        Map<Long, Set<Long>> genres = queryArray(GENRES, ids);
+        long rows = rows(likes) + rows(genres);
+        log.info("ids={} rows={} array join={} ms/hydration, {} ns/row", size, rows,
+                nanos / LARGE_ITERATIONS / 1_000_000, nanos / LARGE_ITERATIONS / Math.max(1, rows));
+
+        assertThat(rows(likes)).isEqualTo(count("film_likes", size));
+        assertThat(rows(genres)).isEqualTo(count("film_genres", size));
+    }
+
+    private static List<Long> ids(int size) {
+        return LongStream.rangeClosed(1, size).boxed().collect(Collectors.toList());
+    }
+
+    private Map<Long, Set<Long>> queryInList(String query, List<Long> ids) {
+        String placeholders = String.join(",", Collections.nCopies(ids.size(), "?"));
+        Map<Long, Set<Long>> values = new HashMap<>();
+        jdbcTemplate.query(query + " WHERE t.film_id IN (" + placeholders + ")", rs -> {
+            values.computeIfAbsent(rs.getLong("film_id"), id -> new HashSet<>()).add(rs.getLong("item_id"));
+        }, ids.toArray());
+        return values;
+    }
+
+    private Map<Long, Set<Long>> queryArray(String query, List<Long> ids) {
+        Map<Long, Set<Long>> values = new HashMap<>();
+        HydrationSupport.queryByIds(jdbcTemplate, query + " JOIN " + HydrationSupport.ID_TABLE + " ON ids.id = t.film_id", ids, rs -> {
+            values.computeIfAbsent(rs.getLong("film_id"), id -> new HashSet<>()).add(rs.getLong("item_id"));
+        });
+        return values;
+    }
+
+    private long count(String table, int size) {
+        Long count = jdbcTemplate.queryForObject(String.format(COUNT, table), Long.class, size);
+        return count == null ? 0 : count;
+    }
+
+    private static long rows(Map<Long, Set<Long>> values) {
+        return values.values().stream().mapToLong(Set::size).sum();
+    }
+
+    private long time(Runnable action) {
+        long started = System.nanoTime();
+        action.run();
+        return System.nanoTime() - started;
+    }
+}
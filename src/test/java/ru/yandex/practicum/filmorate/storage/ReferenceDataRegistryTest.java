@@ -0,0 +1,82 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.storage.genre.GenreStorage;
+import ru.yandex.practicum.filmorate.storage.mpa.MpaStorage;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReferenceDataRegistryTest {
+    private final AtomicInteger genreLoads = new AtomicInteger();
+
+    @Test
+    void shouldReloadForUnknownIdsAtMostOncePerInterval() {
+        ReferenceDataRegistry registry = registry(Duration.ofHours(1));
+        registry.refresh();
+
+        for (int i = 0; i < 100; i++) {
+            assertThatThrownBy(() -> registry.genre(42)).isInstanceOf(NotFoundException.class);
+        }
+
+        assertThat(genreLoads).hasValue(1);
+        assertThat(registry.genre(1).getName()).isEqualTo("Comedy");
+    }
+
+    @Test
+    void shouldReloadForUnknownIdOnceTheIntervalHasPassed() {
+        ReferenceDataRegistry registry = registry(Duration.ZERO);
+        registry.refresh();
+
+        assertThatThrownBy(() -> registry.genre(42)).isInstanceOf(NotFoundException.class);
+
+        assertThat(genreLoads).hasValue(2);
+    }
+
+    @Test
+    void shouldRejectChangesToSharedValues() {
+        ReferenceDataRegistry registry = registry(Duration.ZERO);
+
+        Genre genre = registry.genre(1);
+        MpaRating rating = registry.mpa(1);
+
+        assertThatThrownBy(() -> genre.setName("Drama")).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> rating.setName("R")).isInstanceOf(UnsupportedOperationException.class);
+        assertThat(genre).isEqualTo(new Genre(1, "Comedy"));
+        assertThat(registry.genre(1).getName()).isEqualTo("Comedy");
+    }
+
+    private ReferenceDataRegistry registry(Duration minReloadInterval) {
+        GenreStorage genres = new GenreStorage() {
+            @Override
+            public List<Genre> findAll() {
+                genreLoads.incrementAndGet();
+                return List.of(new Genre(1, "Comedy"));
+            }
+
+            @Override
+            public Genre findById(int id) {
+                throw new UnsupportedOperationException();
+            }
+        };
+        MpaStorage ratings = new MpaStorage() {
+            @Override
+            public List<MpaRating> findAll() {
+                return List.of(new MpaRating(1, "G"));
+            }
+
+            @Override
+            public MpaRating findById(int id) {
+                throw new UnsupportedOperationException();
+            }
+        };
+        return new ReferenceDataRegistry(genres, ratings, new EntityVersions(), minReloadInterval);
+    }
+}
@@ -0,0 +1,58 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SortedLongRowsTest {
+
+    @Test
+    void shouldKeepRowSortedAcrossChunkSplitsAndRemovals() {
+        SortedLongRows rows = new SortedLongRows();
+        TreeSet<Long> expected = new TreeSet<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 20_000; i++) {
+            long value = random.nextInt(5_000);
+            if (random.nextInt(3) == 0) {
+                assertThat(rows.remove(1, value)).isEqualTo(expected.remove(value));
+            } else {
+                assertThat(rows.add(1, value)).isEqualTo(expected.add(value));
+            }
+        }
+
+        assertThat(rows.get(1)).containsExactly(expected.stream().mapToLong(Long::longValue).toArray());
+        assertThat(rows.rowSize(1)).isEqualTo(expected.size());
+        assertThat(rows.contains(1, expected.first())).isTrue();
+        assertThat(rows.contains(1, 5_000)).isFalse();
+    }
+
+    @Test
+    void shouldHandOutStableRowsWhileWritersChangeThem() {
+        SortedLongRows rows = new SortedLongRows();
+        for (long value = 0; value < 2_000; value++) {
+            rows.add(7, value);
+        }
+        long[] before = rows.get(7);
+
+        rows.remove(7, 0);
+        rows.add(7, 5_000);
+
+        assertThat(before).hasSize(2_000).startsWith(0L).endsWith(1_999L);
+        assertThat(rows.get(7)).hasSize(2_000).startsWith(1L).endsWith(5_000L);
+    }
+
+    @Test
+    void shouldDropRowWhenLastValueIsRemoved() {
+        SortedLongRows rows = new SortedLongRows();
+        rows.add(1, 10);
+
+        rows.remove(1, 10);
+
+        assertThat(rows.keys()).isEmpty();
+        assertThat(rows.get(1)).isEmpty();
+    }
+}
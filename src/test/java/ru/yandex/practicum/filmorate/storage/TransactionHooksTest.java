@@ -0,0 +1,104 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.film.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.user.FriendshipGraph;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TransactionHooksTest {
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void shouldUndoNewestFirstAndThenRunCompletions() {
+        List<String> calls = new ArrayList<>();
+
+        begin();
+        TransactionHooks.onRollback(() -> calls.add("undo first"));
+        TransactionHooks.afterCompletion(() -> calls.add("completed"));
+        TransactionHooks.onRollback(() -> calls.add("undo second"));
+        finish(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertThat(calls).containsExactly("undo second", "undo first", "completed");
+    }
+
+    @Test
+    void shouldRestorePopularityAfterSeveralChangesToOneFilm() {
+        FilmPopularityIndex index = new FilmPopularityIndex();
+        Film film = new Film();
+        film.setId(1L);
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        index.put(film, 3);
+
+        begin();
+        index.increment(1L, 1);
+        index.put(film, 10);
+        index.increment(1L, -2);
+        index.increment(2L, 1);
+        finish(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertThat(index.likes(1L)).isEqualTo(3);
+        assertThat(index.top(10)).containsExactly(1L);
+    }
+
+    @Test
+    void shouldRestoreFriendshipAfterAddAndRemoveOfOneEdge() {
+        FriendshipGraph graph = new FriendshipGraph();
+        graph.add(1, 3);
+
+        begin();
+        graph.add(1, 2);
+        graph.remove(1, 2);
+        graph.remove(1, 3);
+        graph.add(1, 3);
+        finish(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertThat(graph.friendsOf(1)).containsExactly(3L);
+        assertThat(graph.followersOf(2)).isEmpty();
+        assertThat(graph.followersOf(3)).containsExactly(1L);
+    }
+
+    @Test
+    void shouldRestoreSearchIndexAfterCreateAndRename() {
+        FilmSearchIndex searchIndex = new FilmSearchIndex(new FilmPopularityIndex());
+        searchIndex.put(1, "Gamma Ray");
+
+        begin();
+        searchIndex.put(2, "Alpha Centauri");
+        searchIndex.put(2, "Beta Centauri");
+        searchIndex.put(1, "Delta Force");
+        searchIndex.remove(1);
+        finish(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertThat(searchIndex.search("alpha", 10)).isEmpty();
+        assertThat(searchIndex.search("centauri", 10)).isEmpty();
+        assertThat(searchIndex.search("delta", 10)).isEmpty();
+        assertThat(searchIndex.search("gamma", 10)).containsExactly(1L);
+    }
+
+    private static void begin() {
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    private static void finish(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations, status);
+    }
+}
@@ -6,15 +6,25 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.MpaRating;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.EntityVersions;
+import ru.yandex.practicum.filmorate.storage.ReferenceDataRegistry;
+import ru.yandex.practicum.filmorate.storage.genre.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.mpa.MpaDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.FriendSuggestionIndex;
+import ru.yandex.practicum.filmorate.storage.user.FriendshipGraph;
 import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
 
 import java.time.LocalDate;
 import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -23,11 +33,19 @@ import static org.assertj.core.api.Assertions.assertThatThrownBy;
 @JdbcTest
 @AutoConfigureTestDatabase
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
-@Import({FilmDbStorage.class, UserDbStorage.class})
+@Import({FilmDbStorage.class, UserDbStorage.class, FilmPopularityIndex.class, ReferenceDataRegistry.class,
+        GenreDbStorage.class, MpaDbStorage.class, EntityVersions.class, FilmRecommendationIndex.class,
+        FriendshipGraph.class, FriendSuggestionIndex.class, FilmSearchIndex.class})
 class FilmDbStorageTest {
 
     private final FilmDbStorage filmStorage;
     private final UserDbStorage userStorage;
+    private final FilmPopularityIndex popularityIndex;
+    private final ReferenceDataRegistry referenceData;
+    private final EntityVersions versions;
+    private final FilmRecommendationIndex recommendationIndex;
+    private final FilmSearchIndex searchIndex;
+    private final JdbcTemplate jdbcTemplate;
 
     @Test
     void shouldCreateFilmWithGenresAndLikes() {
@@ -46,6 +64,26 @@ class FilmDbStorageTest {
                 .containsExactly(user.getId());
     }
 
+    @Test
+    void shouldCreateFilmsInBatch() {
+        User user = userStorage.create(buildUser("batch-user@example.com", "batchUser"));
+        Film first = buildFilm("Batch Film One", 1);
+        first.getGenres().add(new Genre(2, null));
+        first.getLikes().add(user.getId());
+        Film second = buildFilm("Batch Film Two", 3);
+
+        List<Film> created = filmStorage.createAll(List.of(first, second));
+
+        assertThat(created).extracting(Film::getId).doesNotContainNull();
+        assertThat(created.get(1).getId()).isGreaterThan(created.get(0).getId());
+        Film loaded = filmStorage.findById(first.getId());
+        assertThat(loaded.getGenres()).extracting(Genre::getId).containsExactly(2);
+        assertThat(loaded.getLikes()).containsExactly(user.getId());
+        assertThat(likesCount(first.getId())).isEqualTo(1);
+        assertThat(filmStorage.findById(second.getId()).getMpa().getId()).isEqualTo(3);
+        assertThat(popularityIndex.verify()).isZero();
+    }
+
     @Test
     void shouldUpdateFilmWithNewData() {
         User firstUser = userStorage.create(buildUser("film-update-user1@example.com", "filmUpdateUser1"));
@@ -73,6 +111,54 @@ class FilmDbStorageTest {
                 .containsExactlyInAnyOrder(firstUser.getId(), secondUser.getId());
     }
 
+    @Test
+    void shouldApplyOnlyChangedGenresAndLikesOnUpdate() {
+        User first = userStorage.create(buildUser("diff-user1@example.com", "diffUser1"));
+        User second = userStorage.create(buildUser("diff-user2@example.com", "diffUser2"));
+        User third = userStorage.create(buildUser("diff-user3@example.com", "diffUser3"));
+        Film film = buildFilm("Diffed Film", 1);
+        film.setGenres(Set.of(new Genre(1, null), new Genre(2, null)));
+        film.setLikes(Set.of(first.getId(), second.getId()));
+        film = filmStorage.create(film);
+
+        film.setGenres(Set.of(new Genre(2, null), new Genre(3, null)));
+        film.setLikes(Set.of(second.getId(), third.getId()));
+        filmStorage.update(film);
+
+        Film found = filmStorage.findById(film.getId());
+        assertThat(found.getGenres())
+                .extracting(Genre::getId)
+                .containsExactly(2, 3);
+        assertThat(found.getLikes()).containsExactlyInAnyOrder(second.getId(), third.getId());
+        assertThat(likesCount(film.getId())).isEqualTo(2);
+    }
+
+    @Test
+    void shouldKeepLikesWhenUpdateHasNone() {
+        User first = userStorage.create(buildUser("kept-like1@example.com", "keptLike1"));
+        User second = userStorage.create(buildUser("kept-like2@example.com", "keptLike2"));
+        Film film = buildFilm("Liked Film", 1);
+        film.setLikes(Set.of(first.getId(), second.getId()));
+        Long filmId = filmStorage.create(film).getId();
+
+        Film withoutLikes = buildFilm("Renamed Liked Film", 2);
+        withoutLikes.setId(filmId);
+        Film updated = filmStorage.update(withoutLikes);
+
+        assertThat(updated.getLikes()).containsExactlyInAnyOrder(first.getId(), second.getId());
+        assertThat(updated.getMpa().getName()).isEqualTo(referenceData.mpa(2).getName());
+        assertThat(likesCount(filmId)).isEqualTo(2);
+
+        Film emptyLikes = buildFilm("Renamed Liked Film", 2);
+        emptyLikes.setId(filmId);
+        emptyLikes.setLikes(Set.of());
+        filmStorage.update(emptyLikes);
+
+        assertThat(filmStorage.findById(filmId).getLikes()).isEmpty();
+        assertThat(likesCount(filmId)).isZero();
+        assertThat(popularityIndex.likes(filmId)).isZero();
+    }
+
     @Test
     void shouldFindAllFilms() {
         Film first = filmStorage.create(buildFilm("First Film", 1));
@@ -85,6 +171,48 @@ class FilmDbStorageTest {
                 .containsExactlyInAnyOrder(first.getId(), second.getId());
     }
 
+    @Test
+    void shouldPageFilmsByIdCursor() {
+        Film first = filmStorage.create(buildFilm("Paged Film One", 1));
+        Film second = filmStorage.create(buildFilm("Paged Film Two", 1));
+        Film third = filmStorage.create(buildFilm("Paged Film Three", 1));
+        FilmFilter filter = new FilmFilter();
+        filter.setAfter(first.getId());
+        filter.setLimit(1);
+
+        Collection<Film> page = filmStorage.findAll(filter);
+
+        assertThat(page)
+                .extracting(Film::getId)
+                .containsExactly(second.getId())
+                .doesNotContain(third.getId());
+    }
+
+    @Test
+    void shouldFilterFilmsByMpaGenreAndReleaseDate() {
+        Film matching = buildFilm("Filtered Match", 4);
+        matching.setReleaseDate(LocalDate.of(2010, 7, 16));
+        matching.getGenres().add(new Genre(2, null));
+        matching = filmStorage.create(matching);
+        Film wrongGenre = buildFilm("Filtered Wrong Genre", 4);
+        wrongGenre.setReleaseDate(LocalDate.of(2010, 7, 16));
+        filmStorage.create(wrongGenre);
+        Film tooOld = buildFilm("Filtered Too Old", 4);
+        tooOld.getGenres().add(new Genre(2, null));
+        filmStorage.create(tooOld);
+        FilmFilter filter = new FilmFilter();
+        filter.setMpaId(4);
+        filter.setGenreId(2);
+        filter.setReleaseFrom(LocalDate.of(2010, 1, 1));
+        filter.setReleaseTo(LocalDate.of(2010, 12, 31));
+
+        Collection<Film> films = filmStorage.findAll(filter);
+
+        assertThat(films)
+                .extracting(Film::getId)
+                .containsExactly(matching.getId());
+    }
+
     @Test
     void shouldFindFilmByIdWithAssociations() {
         User user = userStorage.create(buildUser("film-find-user@example.com", "filmFindUser"));
@@ -101,6 +229,51 @@ class FilmDbStorageTest {
         assertThat(found.getLikes()).containsExactly(user.getId());
     }
 
+    @Test
+    void shouldHydrateFilmTheSameWayWithSingleAndMultipleQueries() {
+        User user = userStorage.create(buildUser("hydration-user@example.com", "hydrationUser"));
+        Film film = buildFilm("Film Hydrated Both Ways", 2);
+        film.setGenres(Set.of(new Genre(6, null), new Genre(1, null)));
+        film.getLikes().add(user.getId());
+        Film created = filmStorage.create(film);
+        FilmDbStorage multiQueryStorage = new FilmDbStorage(jdbcTemplate, popularityIndex, referenceData, versions,
+                recommendationIndex, searchIndex, false);
+
+        Film singleQuery = filmStorage.findById(created.getId());
+        Film multiQuery = multiQueryStorage.findById(created.getId());
+
+        assertThat(singleQuery.getMpa()).isEqualTo(multiQuery.getMpa());
+        assertThat(singleQuery.getGenres()).containsExactlyElementsOf(multiQuery.getGenres());
+        assertThat(singleQuery.getGenres())
+                .extracting(Genre::getName)
+                .containsExactly("Комедия", "Боевик");
+        assertThat(singleQuery.getLikes()).isEqualTo(multiQuery.getLikes());
+    }
+
+    @Test
+    void shouldCheckFilmExistence() {
+        Film film = filmStorage.create(buildFilm("Existing Film", 1));
+
+        assertThat(filmStorage.exists(film.getId())).isTrue();
+        assertThat(filmStorage.exists(film.getId() + 1000)).isFalse();
+    }
+
+    @Test
+    void shouldShareReferenceDataInstances() {
+        Film first = buildFilm("Shared Reference One", 2);
+        first.getGenres().add(new Genre(3, null));
+        Film second = buildFilm("Shared Reference Two", 2);
+        second.getGenres().add(new Genre(3, null));
+        filmStorage.createAll(List.of(first, second));
+
+        Film loadedFirst = filmStorage.findById(first.getId());
+        Film loadedSecond = filmStorage.findById(second.getId());
+
+        assertThat(loadedFirst.getMpa()).isSameAs(loadedSecond.getMpa()).isSameAs(referenceData.mpa(2));
+        assertThat(loadedFirst.getMpa().getName()).isNotBlank();
+        assertThat(loadedFirst.getGenres().iterator().next()).isSameAs(referenceData.genre(3));
+    }
+
     @Test
     void shouldDeleteFilm() {
         Film film = filmStorage.create(buildFilm("Film To Delete", 1));
@@ -139,7 +312,7 @@ class FilmDbStorageTest {
         filmStorage.addLike(filmOne.getId(), userTwo.getId());
         filmStorage.addLike(filmTwo.getId(), userThree.getId());
 
-        Collection<Film> popular = filmStorage.getMostPopular(2);
+        Collection<Film> popular = filmStorage.getMostPopular(2, null, null);
 
         assertThat(popular)
                 .extracting(Film::getId)
@@ -147,13 +320,129 @@ class FilmDbStorageTest {
                 .doesNotContain(filmThree.getId());
     }
 
+    @Test
+    void shouldReturnMostPopularFilmsByGenreAndYear() {
+        User userOne = userStorage.create(buildUser("bucket-user1@example.com", "bucketUser1"));
+        User userTwo = userStorage.create(buildUser("bucket-user2@example.com", "bucketUser2"));
+        Film comedy = buildFilm("Bucket Comedy", 1);
+        comedy.setReleaseDate(LocalDate.of(1931, 3, 1));
+        comedy.getGenres().add(new Genre(1, null));
+        Film drama = buildFilm("Bucket Drama", 1);
+        drama.setReleaseDate(LocalDate.of(1931, 6, 1));
+        drama.getGenres().add(new Genre(2, null));
+        Film laterComedy = buildFilm("Bucket Later Comedy", 1);
+        laterComedy.setReleaseDate(LocalDate.of(1932, 1, 1));
+        laterComedy.getGenres().add(new Genre(1, null));
+        filmStorage.createAll(List.of(comedy, drama, laterComedy));
+
+        filmStorage.addLike(drama.getId(), userOne.getId());
+        filmStorage.addLike(drama.getId(), userTwo.getId());
+        filmStorage.addLike(laterComedy.getId(), userOne.getId());
+
+        assertThat(filmStorage.getMostPopular(10, null, 1931))
+                .extracting(Film::getId)
+                .containsExactly(drama.getId(), comedy.getId());
+        assertThat(filmStorage.getMostPopular(10, 1, 1931))
+                .extracting(Film::getId)
+                .containsExactly(comedy.getId());
+
+        Film storedDrama = filmStorage.findById(drama.getId());
+        storedDrama.setGenres(new LinkedHashSet<>(List.of(new Genre(1, null))));
+        filmStorage.update(storedDrama);
+
+        assertThat(filmStorage.getMostPopular(2, 1, null))
+                .extracting(Film::getId)
+                .containsExactly(drama.getId(), laterComedy.getId());
+        assertThat(filmStorage.getMostPopular(10, 2, 1931)).isEmpty();
+    }
+
+    @Test
+    void shouldKeepLikesCountInSyncWithLikes() {
+        User userOne = userStorage.create(buildUser("count-user1@example.com", "countUser1"));
+        User userTwo = userStorage.create(buildUser("count-user2@example.com", "countUser2"));
+        Film film = filmStorage.create(buildFilm("Counted Film", 1));
+
+        filmStorage.addLike(film.getId(), userOne.getId());
+        filmStorage.addLike(film.getId(), userOne.getId());
+        filmStorage.addLike(film.getId(), userTwo.getId());
+        assertThat(likesCount(film.getId())).isEqualTo(2);
+
+        filmStorage.removeLike(film.getId(), userOne.getId());
+        assertThat(likesCount(film.getId())).isEqualTo(1);
+
+        userStorage.delete(userTwo.getId());
+        assertThat(likesCount(film.getId())).isZero();
+    }
+
+    @Test
+    void shouldRepairDriftedLikesCount() {
+        User user = userStorage.create(buildUser("repair-user@example.com", "repairUser"));
+        Film film = filmStorage.create(buildFilm("Repaired Film", 1));
+        filmStorage.addLike(film.getId(), user.getId());
+        jdbcTemplate.update("UPDATE films SET likes_count = 42 WHERE film_id = ?", film.getId());
+
+        int repaired = filmStorage.repairLikesCount();
+
+        assertThat(repaired).isEqualTo(1);
+        assertThat(likesCount(film.getId())).isEqualTo(1);
+    }
+
+    @Test
+    void shouldKeepPopularityIndexInSyncWithDatabase() {
+        User userOne = userStorage.create(buildUser("index-user1@example.com", "indexUser1"));
+        User userTwo = userStorage.create(buildUser("index-user2@example.com", "indexUser2"));
+        Film filmOne = filmStorage.create(buildFilm("Indexed Film One", 1));
+        Film filmTwo = filmStorage.create(buildFilm("Indexed Film Two", 2));
+
+        filmStorage.addLike(filmTwo.getId(), userOne.getId());
+        filmStorage.addLike(filmTwo.getId(), userTwo.getId());
+        filmStorage.addLike(filmOne.getId(), userOne.getId());
+        filmStorage.removeLike(filmTwo.getId(), userTwo.getId());
+        filmStorage.delete(filmOne.getId());
+
+        assertThat(popularityIndex.verify()).isZero();
+        assertThat(popularityIndex.top(1)).containsExactly(filmTwo.getId());
+    }
+
+    @Test
+    void shouldSearchFilmsByNameRankingMatchesAndLikes() {
+        User user = userStorage.create(buildUser("search-user@example.com", "searchUser"));
+        Film inside = filmStorage.create(buildFilm("Antizyxwar", 1));
+        Film word = filmStorage.create(buildFilm("The Zyxwar", 1));
+        Film prefix = filmStorage.create(buildFilm("Zyxwar Galaxy", 1));
+        Film likedPrefix = filmStorage.create(buildFilm("Zyxwar Returns", 1));
+        Film exact = filmStorage.create(buildFilm("ZYXWAR", 1));
+        filmStorage.create(buildFilm("Zyx War", 1));
+        filmStorage.addLike(likedPrefix.getId(), user.getId());
+
+        assertThat(filmStorage.search("zyxwar", 10))
+                .extracting(Film::getId)
+                .containsExactly(exact.getId(), likedPrefix.getId(), prefix.getId(), word.getId(), inside.getId());
+
+        Film renamed = filmStorage.findById(prefix.getId());
+        renamed.setName("Galaxy Quest");
+        filmStorage.update(renamed);
+        filmStorage.delete(inside.getId());
+
+        assertThat(filmStorage.search("zyxwar", 10))
+                .extracting(Film::getId)
+                .containsExactly(exact.getId(), likedPrefix.getId(), word.getId());
+        assertThat(filmStorage.search("galaxy q", 10))
+                .extracting(Film::getId)
+                .containsExactly(prefix.getId());
+    }
+
     @Test
     void shouldReturnEmptyWhenCountNonPositive() {
-        Collection<Film> popular = filmStorage.getMostPopular(0);
+        Collection<Film> popular = filmStorage.getMostPopular(0, null, null);
 
         assertThat(popular).isEmpty();
     }
 
+    private long likesCount(Long filmId) {
+        return jdbcTemplate.queryForObject("SELECT likes_count FROM films WHERE film_id = ?", Long.class, filmId);
+    }
+
     private Film buildFilm(String name, int mpaId) {
         Film film = new Film();
         film.setName(name);
@@ -0,0 +1,85 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FilmPopularityIndexTest {
+    private static final String INSERT_FILM = "INSERT INTO films (film_id, name, release_date, duration, " +
+            "mpa_rating_id, likes_count) VALUES (?, 'Film', DATE '2000-01-01', 100, 1, ?)";
+    private static final String INSERT_USER = "INSERT INTO users (user_id, email, login) VALUES (?, ?, ?)";
+    private static final String INSERT_LIKE = "INSERT INTO film_likes (film_id, user_id) VALUES (?, ?)";
+
+    private JdbcTemplate jdbcTemplate;
+    private FilmPopularityIndex index;
+
+    @BeforeEach
+    void createDatabase() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:popularity-index;DB_CLOSE_DELAY=-1", "sa", "password");
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql"), new ClassPathResource("data.sql"))
+                .execute(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        for (long userId = 1; userId <= 3; userId++) {
+            jdbcTemplate.update(INSERT_USER, userId, "user" + userId + "@example.com", "user" + userId);
+        }
+        jdbcTemplate.update(INSERT_FILM, 1L, 2L);
+        jdbcTemplate.update(INSERT_LIKE, 1L, 1L);
+        jdbcTemplate.update(INSERT_LIKE, 1L, 2L);
+        index = new FilmPopularityIndex(jdbcTemplate);
+        index.rebuild();
+    }
+
+    @AfterEach
+    void dropDatabase() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    void shouldKeepLikeOfTransactionCommittedAfterRebuild() {
+        begin();
+        index.increment(1L, 1);
+        index.rebuild();
+        jdbcTemplate.update(INSERT_LIKE, 1L, 3L);
+        jdbcTemplate.update("UPDATE films SET likes_count = 3 WHERE film_id = 1");
+        finish(TransactionSynchronization.STATUS_COMMITTED);
+
+        assertThat(index.likes(1L)).isEqualTo(3);
+        assertThat(index.verify()).isZero();
+    }
+
+    @Test
+    void shouldUndoLikeOfTransactionRolledBackAfterRebuild() {
+        begin();
+        index.increment(1L, 1);
+        index.rebuild();
+        finish(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertThat(index.likes(1L)).isEqualTo(2);
+        assertThat(index.verify()).isZero();
+    }
+
+    private static void begin() {
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    private static void finish(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations, status);
+    }
+}
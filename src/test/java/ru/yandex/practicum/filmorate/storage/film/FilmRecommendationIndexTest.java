@@ -0,0 +1,106 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FilmRecommendationIndexTest {
+
+    private final FilmRecommendationIndex recommendationIndex = new FilmRecommendationIndex(2);
+
+    @AfterEach
+    void tearDown() {
+        recommendationIndex.shutdown();
+    }
+
+    @Test
+    void shouldRecommendFilmsLikedTogetherWithUsersFilms() {
+        recommendationIndex.likeAdded(1, 1);
+        recommendationIndex.likeAdded(2, 1);
+        recommendationIndex.likeAdded(1, 2);
+        recommendationIndex.likeAdded(2, 2);
+        recommendationIndex.likeAdded(3, 2);
+        recommendationIndex.likeAdded(1, 3);
+
+        recommendationIndex.refresh();
+
+        assertThat(recommendationIndex.recommend(3, 10)).containsExactly(2L, 3L);
+        assertThat(recommendationIndex.recommend(1, 10)).containsExactly(3L);
+        assertThat(recommendationIndex.recommend(3, 1)).containsExactly(2L);
+        assertThat(recommendationIndex.recommend(4, 10)).isEmpty();
+    }
+
+    @Test
+    void shouldPickUpLikeChangesOnRefresh() {
+        recommendationIndex.likeAdded(1, 1);
+        recommendationIndex.likeAdded(1, 2);
+        recommendationIndex.refresh();
+        assertThat(recommendationIndex.recommend(1, 10)).isEmpty();
+
+        recommendationIndex.likeAdded(2, 2);
+        assertThat(recommendationIndex.refresh()).isEqualTo(1);
+        assertThat(recommendationIndex.recommend(1, 10)).containsExactly(2L);
+
+        recommendationIndex.likeRemoved(2, 2);
+        recommendationIndex.refresh();
+        assertThat(recommendationIndex.recommend(1, 10)).isEmpty();
+    }
+
+    @Test
+    void shouldForgetDeletedFilmsAndUsers() {
+        recommendationIndex.likeAdded(1, 1);
+        recommendationIndex.likeAdded(1, 2);
+        recommendationIndex.likeAdded(2, 2);
+        recommendationIndex.likeAdded(3, 3);
+        recommendationIndex.likeAdded(1, 3);
+        recommendationIndex.refresh();
+        assertThat(recommendationIndex.recommend(1, 10)).containsExactlyInAnyOrder(2L, 3L);
+
+        recommendationIndex.filmRemoved(2);
+        recommendationIndex.userRemoved(3);
+        recommendationIndex.refresh();
+
+        assertThat(recommendationIndex.recommend(1, 10)).isEmpty();
+    }
+
+    @Test
+    void shouldDropStaleNeighbourWhenFilmsNoLongerShareUsers() {
+        recommendationIndex.likeAdded(1, 1);
+        recommendationIndex.likeAdded(2, 1);
+        recommendationIndex.likeAdded(2, 2);
+        recommendationIndex.refresh();
+        assertThat(recommendationIndex.recommend(2, 10)).containsExactly(1L);
+
+        recommendationIndex.likeRemoved(1, 1);
+        recommendationIndex.likeAdded(1, 3);
+        assertThat(recommendationIndex.refresh()).isEqualTo(1);
+
+        assertThat(recommendationIndex.recommend(2, 10)).isEmpty();
+    }
+
+    @Test
+    void shouldUndoChangesOfRolledBackTransaction() {
+        recommendationIndex.likeAdded(1, 1);
+        recommendationIndex.likeAdded(1, 2);
+        recommendationIndex.likeAdded(2, 2);
+        recommendationIndex.refresh();
+
+        TransactionSynchronizationManager.initSynchronization();
+        recommendationIndex.likeRemoved(2, 2);
+        recommendationIndex.likeAdded(2, 2);
+        recommendationIndex.userRemoved(2);
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations,
+                TransactionSynchronization.STATUS_ROLLED_BACK);
+        recommendationIndex.refresh();
+
+        assertThat(recommendationIndex.recommend(1, 10)).containsExactly(2L);
+    }
+}
@@ -0,0 +1,139 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.journal.StorageJournal;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InMemoryFilmStorageTest {
+
+    private final InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+
+    @Test
+    void shouldKeepStoredFilmsIsolatedFromCallers() {
+        Film created = filmStorage.create(buildFilm("Isolated"));
+        created.setName("Changed outside");
+
+        Film found = filmStorage.findById(created.getId());
+        found.getLikes().add(42L);
+
+        assertThat(filmStorage.findById(created.getId()).getName()).isEqualTo("Isolated");
+        assertThat(filmStorage.findById(created.getId()).getLikes()).isEmpty();
+    }
+
+    @Test
+    void shouldRankPopularFilmsByLikes() {
+        Film first = filmStorage.create(buildFilm("First"));
+        Film second = filmStorage.create(buildFilm("Second"));
+        Film comedy = buildFilm("Comedy");
+        comedy.setGenres(Set.of(new Genre(1, "Комедия")));
+        comedy = filmStorage.create(comedy);
+
+        filmStorage.addLike(second.getId(), 1L);
+        filmStorage.addLike(second.getId(), 2L);
+        filmStorage.addLike(comedy.getId(), 1L);
+        filmStorage.addLike(comedy.getId(), 1L);
+
+        assertThat(filmStorage.getMostPopular(10, null, null))
+                .extracting(Film::getId)
+                .containsExactly(second.getId(), comedy.getId(), first.getId());
+        assertThat(filmStorage.getMostPopular(10, 1, null))
+                .extracting(Film::getId)
+                .containsExactly(comedy.getId());
+        assertThat(filmStorage.findById(second.getId()).getLikes()).containsExactlyInAnyOrder(1L, 2L);
+
+        filmStorage.removeLike(second.getId(), 1L);
+        filmStorage.removeLike(second.getId(), 2L);
+        assertThatThrownBy(() -> filmStorage.removeLike(second.getId(), 2L)).isInstanceOf(NotFoundException.class);
+        assertThat(filmStorage.getMostPopular(1, null, null))
+                .extracting(Film::getId)
+                .containsExactly(comedy.getId());
+    }
+
+    @Test
+    void shouldCountConcurrentLikesExactlyOnce() {
+        Film film = filmStorage.create(buildFilm("Contended"));
+
+        LongStream.rangeClosed(1, 10_000).parallel().forEach(userId -> {
+            filmStorage.addLike(film.getId(), userId);
+            filmStorage.addLike(film.getId(), userId);
+        });
+
+        assertThat(filmStorage.findById(film.getId()).getLikes()).hasSize(10_000);
+        assertThat(filmStorage.getMostPopular(1, null, null))
+                .extracting(Film::getId)
+                .containsExactly(film.getId());
+    }
+
+    @Test
+    void shouldSearchAndForgetDeletedFilms() {
+        Film film = filmStorage.create(buildFilm("Memory Lane"));
+        filmStorage.addLike(film.getId(), 7L);
+
+        assertThat(filmStorage.search("lane", 10)).extracting(Film::getId).containsExactly(film.getId());
+
+        filmStorage.delete(film.getId());
+
+        assertThat(filmStorage.exists(film.getId())).isFalse();
+        assertThat(filmStorage.search("lane", 10)).isEmpty();
+        assertThat(filmStorage.getMostPopular(10, null, null)).isEmpty();
+        assertThatThrownBy(() -> filmStorage.delete(film.getId())).isInstanceOf(NotFoundException.class);
+    }
+
+    @Test
+    void shouldPageFilmsByIdCursor() {
+        List<Film> films = List.of(filmStorage.create(buildFilm("A")), filmStorage.create(buildFilm("B")),
+                filmStorage.create(buildFilm("C")));
+        FilmFilter filter = new FilmFilter();
+        filter.setAfter(films.get(0).getId());
+        filter.setLimit(1);
+
+        assertThat(filmStorage.findAll(filter)).extracting(Film::getId).containsExactly(films.get(1).getId());
+    }
+
+    @Test
+    void shouldRejectLikesOfMissingUsersOnCreateAndUpdate() {
+        InMemoryFilmStorage storage = new InMemoryFilmStorage();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage(storage, StorageJournal.disabled());
+        User user = new User();
+        user.setEmail("fan@example.com");
+        user.setLogin("fan");
+        long userId = userStorage.create(user).getId();
+        Film film = buildFilm("Liked by a stranger");
+        film.setLikes(Set.of(userId, 999L));
+
+        assertThatThrownBy(() -> storage.create(film))
+                .isInstanceOf(NotFoundException.class)
+                .hasMessageContaining("999");
+        assertThat(storage.findAll()).isEmpty();
+
+        Film created = storage.create(buildFilm("Liked by a fan"));
+        Film update = storage.findById(created.getId());
+        update.setLikes(Set.of(999L));
+        assertThatThrownBy(() -> storage.update(update)).isInstanceOf(NotFoundException.class);
+        assertThat(storage.findById(created.getId()).getLikes()).isEmpty();
+    }
+
+    private Film buildFilm(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription(name + " description");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        film.setMpa(new MpaRating(1, "G"));
+        return film;
+    }
+}
@@ -0,0 +1,42 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PostingListTest {
+
+    @Test
+    void shouldKeepIdsSortedThroughAppendsInsertsAndRemovals() {
+        PostingList list = PostingList.EMPTY
+                .add(5)
+                .add(300)
+                .add(1L << 40)
+                .add(2)
+                .add(300);
+
+        assertThat(list.size()).isEqualTo(4);
+        assertThat(list.toArray()).containsExactly(2, 5, 300, 1L << 40);
+
+        list = list.remove(5).remove(7);
+        assertThat(list.toArray()).containsExactly(2, 300, 1L << 40);
+        assertThat(list.remove(2).remove(300).remove(1L << 40)).isNull();
+    }
+
+    @Test
+    void shouldIntersectWithSortedIds() {
+        PostingList list = PostingList.of(new long[]{1, 3, 5, 7, 200, 1_000_000});
+
+        assertThat(list.retainAll(new long[]{0, 3, 4, 7, 1_000_000, 2_000_000})).containsExactly(3, 7, 1_000_000);
+        assertThat(list.retainAll(new long[0])).isEmpty();
+    }
+
+    @Test
+    void shouldRejectUnorderedAppendsWhileBuilding() {
+        PostingList.Builder builder = new PostingList.Builder();
+        builder.append(10);
+
+        assertThatThrownBy(() -> builder.append(10)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,174 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StorageJournalTest {
+
+    @TempDir
+    Path directory;
+
+    private StorageJournal journal;
+    private InMemoryFilmStorage filmStorage;
+    private InMemoryUserStorage userStorage;
+    private InMemoryPersistence persistence;
+
+    @AfterEach
+    void closeJournal() {
+        journal.close();
+    }
+
+    @Test
+    void shouldRestoreStoragesAfterRestart() {
+        start();
+        User first = userStorage.create(buildUser("first"));
+        User second = userStorage.create(buildUser("second"));
+        User deleted = userStorage.create(buildUser("deleted"));
+        userStorage.addFriend(first.getId(), second.getId());
+        userStorage.addFriend(first.getId(), deleted.getId());
+        Film film = buildFilm("Journaled");
+        film.setGenres(Set.of(new Genre(2, "Драма")));
+        film = filmStorage.create(film);
+        Film removed = filmStorage.create(buildFilm("Removed"));
+        filmStorage.addLike(film.getId(), first.getId());
+        filmStorage.addLike(film.getId(), second.getId());
+        filmStorage.addLike(film.getId(), deleted.getId());
+        filmStorage.removeLike(film.getId(), second.getId());
+        film.setName("Journaled and renamed");
+        film.setLikes(Set.of(first.getId(), deleted.getId()));
+        filmStorage.update(film);
+        filmStorage.delete(removed.getId());
+        userStorage.delete(deleted.getId());
+
+        restart();
+
+        assertThat(userStorage.findAll()).extracting(User::getLogin).containsExactly("first", "second");
+        assertThat(userStorage.findById(first.getId()).getFriends()).containsExactly(second.getId());
+        Film restored = filmStorage.findById(film.getId());
+        assertThat(restored.getName()).isEqualTo("Journaled and renamed");
+        assertThat(restored.getGenres()).extracting(Genre::getId).containsExactly(2);
+        assertThat(restored.getLikes()).containsExactly(first.getId());
+        assertThat(filmStorage.exists(removed.getId())).isFalse();
+        assertThat(filmStorage.getMostPopular(1, null, null)).extracting(Film::getId).containsExactly(film.getId());
+        assertThat(filmStorage.create(buildFilm("Next")).getId()).isEqualTo(removed.getId() + 1);
+    }
+
+    @Test
+    void shouldCutOffTornRecordAtTheEnd() throws IOException {
+        start();
+        User user = userStorage.create(buildUser("survivor"));
+        journal.close();
+        Files.write(directory.resolve("journal-0.log"), new byte[]{0, 0, 0, 42, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        restart();
+        userStorage.create(buildUser("after-crash"));
+        restart();
+
+        assertThat(userStorage.findAll()).extracting(User::getLogin).containsExactly("survivor", "after-crash");
+        assertThat(userStorage.findById(user.getId()).getEmail()).isEqualTo("survivor@example.com");
+    }
+
+    @Test
+    void shouldReplaySnapshotAndNewerSegmentsAfterCompaction() throws IOException {
+        start();
+        User user = userStorage.create(buildUser("compacted"));
+        User friend = userStorage.create(buildUser("friend"));
+        Film film = filmStorage.create(buildFilm("Compacted"));
+        filmStorage.addLike(film.getId(), user.getId());
+        filmStorage.addLike(film.getId(), friend.getId());
+        userStorage.addFriend(user.getId(), friend.getId());
+        persistence.compact();
+        Film later = filmStorage.create(buildFilm("Later"));
+        filmStorage.removeLike(film.getId(), friend.getId());
+        filmStorage.addLike(later.getId(), friend.getId());
+        userStorage.addFriend(friend.getId(), user.getId());
+
+        restart();
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files.map(file -> file.getFileName().toString()))
+                    .containsExactlyInAnyOrder("snapshot-1.bin", "journal-1.log");
+        }
+        assertThat(filmStorage.findById(film.getId()).getLikes()).containsExactly(user.getId());
+        assertThat(filmStorage.findById(later.getId()).getName()).isEqualTo("Later");
+        assertThat(filmStorage.findById(later.getId()).getLikes()).containsExactly(friend.getId());
+        assertThat(filmStorage.getMostPopular(2, null, null)).extracting(Film::getId)
+                .containsExactlyInAnyOrder(film.getId(), later.getId());
+        assertThat(userStorage.findById(user.getId()).getLogin()).isEqualTo("compacted");
+        assertThat(userStorage.findById(user.getId()).getFriends()).containsExactly(friend.getId());
+        assertThat(userStorage.findById(friend.getId()).getFriends()).containsExactly(user.getId());
+    }
+
+    @Test
+    void shouldNotRestoreChangesOfRolledBackTransaction() {
+        start();
+        User user = userStorage.create(buildUser("liker"));
+        Film film = filmStorage.create(buildFilm("Rolled back"));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            filmStorage.addLike(film.getId(), user.getId());
+            userStorage.addFriend(user.getId(), user.getId() + 1);
+        } finally {
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            TransactionSynchronizationManager.clearSynchronization();
+            synchronizations.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        }
+        restart();
+
+        assertThat(filmStorage.findById(film.getId()).getLikes()).isEmpty();
+        assertThat(userStorage.findById(user.getId()).getFriends()).isEmpty();
+    }
+
+    private void start() {
+        journal = new StorageJournal(directory.toString(), true);
+        filmStorage = new InMemoryFilmStorage(journal);
+        userStorage = new InMemoryUserStorage(filmStorage, journal);
+        persistence = new InMemoryPersistence(journal, filmStorage, userStorage);
+        persistence.restore();
+    }
+
+    private void restart() {
+        journal.close();
+        start();
+    }
+
+    private User buildUser(String login) {
+        User user = new User();
+        user.setEmail(login + "@example.com");
+        user.setLogin(login);
+        user.setName(login);
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        return user;
+    }
+
+    private Film buildFilm(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("Description of " + name);
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        film.setMpa(new MpaRating(1, "G"));
+        return film;
+    }
+}
@@ -0,0 +1,158 @@
+package ru.yandex.practicum.filmorate.storage.snapshot;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SnapshotWriterTest {
+
+    @Test
+    void shouldReadBackWhatWasWritten() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SnapshotWriter writer = new SnapshotWriter(out);
+        writer.mpa(new MpaRating(1, "G"));
+        writer.mpa(new MpaRating(3, "PG-13"));
+        writer.genre(new Genre(2, "Драма"));
+        writer.genre(new Genre(6, "Боевик"));
+        User user = buildUser(7, LocalDate.of(1990, 5, 17));
+        User unborn = buildUser(1_000_000_007L, null);
+        unborn.setName(null);
+        writer.user(user);
+        writer.user(unborn);
+        Film film = new Film();
+        film.setId(42L);
+        film.setName("Фильм");
+        film.setDescription("x".repeat(100_000));
+        film.setReleaseDate(LocalDate.of(1895, 12, 28));
+        film.setDuration(90);
+        film.setMpa(new MpaRating(3, null));
+        film.setGenres(new LinkedHashSet<>(List.of(new Genre(6, null), new Genre(2, null))));
+        writer.film(film);
+        writer.likes(42L, new long[]{7, 1_000_000_007L});
+        writer.friends(7L, new long[]{1_000_000_007L});
+        writer.finish();
+
+        RecordingSink sink = new RecordingSink();
+        new SnapshotReader(new ByteArrayInputStream(out.toByteArray())).read(sink);
+
+        assertThat(sink.ratings).extracting(MpaRating::getName).containsExactly("G", "PG-13");
+        assertThat(sink.genres).extracting(Genre::getId).containsExactly(2, 6);
+        assertThat(sink.users).hasSize(2);
+        assertThat(sink.users.get(0)).usingRecursiveComparison().isEqualTo(user);
+        assertThat(sink.users.get(1)).usingRecursiveComparison().isEqualTo(unborn);
+        Film read = sink.films.get(0);
+        assertThat(read.getDescription()).isEqualTo(film.getDescription());
+        assertThat(read.getReleaseDate()).isEqualTo(film.getReleaseDate());
+        assertThat(read.getMpa().getName()).isEqualTo("PG-13");
+        assertThat(read.getGenres()).extracting(Genre::getName).containsExactly("Боевик", "Драма");
+        assertThat(sink.rows).containsExactly("likes 42 [7, 1000000007]", "friends 7 [1000000007]");
+        assertThat(sink.finished).isTrue();
+    }
+
+    @Test
+    void shouldWriteIdsAsSmallDeltas() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SnapshotWriter writer = new SnapshotWriter(out);
+        long[] userIds = new long[1000];
+        Arrays.setAll(userIds, i -> 1_000_000 + i);
+        writer.likes(1L, userIds);
+        writer.finish();
+
+        // header, tag, film id, a two-byte count, the first id, one byte per later id, terminator and end
+        assertThat(out.size()).isEqualTo(5 + 1 + 1 + 2 + 3 + 999 + 1 + 1);
+    }
+
+    @Test
+    void shouldRejectIdsOutOfOrder() {
+        SnapshotWriter writer = new SnapshotWriter(new ByteArrayOutputStream());
+        writer.user(buildUser(2, null));
+
+        assertThatThrownBy(() -> writer.user(buildUser(1, null)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> writer.mpa(new MpaRating(1, "G")))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> writer.likes(1L, new long[]{3, 3}))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldFailOnTruncatedSnapshot() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SnapshotWriter writer = new SnapshotWriter(out);
+        writer.user(buildUser(1, LocalDate.of(2000, 1, 1)));
+        writer.finish();
+        byte[] truncated = Arrays.copyOf(out.toByteArray(), out.size() - 3);
+
+        assertThatThrownBy(() -> new SnapshotReader(new ByteArrayInputStream(truncated)).read(new RecordingSink()))
+                .isInstanceOf(EOFException.class);
+    }
+
+    private static User buildUser(long id, LocalDate birthday) {
+        User user = new User();
+        user.setId(id);
+        user.setEmail("user" + id + "@mail.ru");
+        user.setLogin("user" + id);
+        user.setName("User " + id);
+        user.setBirthday(birthday);
+        return user;
+    }
+
+    private static class RecordingSink implements SnapshotSink {
+        private final List<MpaRating> ratings = new ArrayList<>();
+        private final List<Genre> genres = new ArrayList<>();
+        private final List<User> users = new ArrayList<>();
+        private final List<Film> films = new ArrayList<>();
+        private final List<String> rows = new ArrayList<>();
+        private boolean finished;
+
+        @Override
+        public void mpa(MpaRating mpa) {
+            ratings.add(mpa);
+        }
+
+        @Override
+        public void genre(Genre genre) {
+            genres.add(genre);
+        }
+
+        @Override
+        public void user(User user) {
+            users.add(user);
+        }
+
+        @Override
+        public void film(Film film) {
+            films.add(film);
+        }
+
+        @Override
+        public void likes(long filmId, long[] userIds) {
+            rows.add("likes " + filmId + " " + Arrays.toString(userIds));
+        }
+
+        @Override
+        public void friends(long userId, long[] friendIds) {
+            rows.add("friends " + userId + " " + Arrays.toString(friendIds));
+        }
+
+        @Override
+        public void finish() {
+            finished = true;
+        }
+    }
+}
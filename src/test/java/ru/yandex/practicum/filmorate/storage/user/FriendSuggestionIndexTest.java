@@ -0,0 +1,57 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FriendSuggestionIndexTest {
+
+    private final FriendshipGraph friendshipGraph = new FriendshipGraph();
+    private final FriendSuggestionIndex suggestionIndex = new FriendSuggestionIndex(friendshipGraph, 2);
+
+    @AfterEach
+    void tearDown() {
+        suggestionIndex.shutdown();
+    }
+
+    @Test
+    void shouldRankFriendsOfFriendsByMutualFriends() {
+        friendshipGraph.add(1, 2);
+        friendshipGraph.add(1, 3);
+        friendshipGraph.add(2, 4);
+        friendshipGraph.add(3, 4);
+        friendshipGraph.add(2, 5);
+        friendshipGraph.add(3, 1);
+        friendshipGraph.add(2, 3);
+
+        assertThat(suggestionIndex.suggest(1, 10)).containsExactly(4L, 5L);
+        assertThat(suggestionIndex.suggest(1, 1)).containsExactly(4L);
+        assertThat(suggestionIndex.suggest(6, 10)).isEmpty();
+    }
+
+    @Test
+    void shouldSizeRankingByCandidatesRatherThanLimit() {
+        friendshipGraph.add(1, 2);
+        friendshipGraph.add(2, 3);
+
+        assertThat(suggestionIndex.suggest(1, Integer.MAX_VALUE)).containsExactly(3L);
+    }
+
+    @Test
+    void shouldDropCachedSuggestionsWhenFriendshipsChange() {
+        friendshipGraph.add(1, 2);
+        friendshipGraph.add(2, 3);
+        friendshipGraph.add(4, 1);
+        assertThat(suggestionIndex.suggest(1, 10)).containsExactly(3L);
+        assertThat(suggestionIndex.suggest(4, 10)).containsExactly(2L);
+
+        friendshipGraph.add(1, 5);
+        suggestionIndex.friendshipChanged(1);
+        friendshipGraph.add(5, 6);
+        suggestionIndex.friendshipChanged(5);
+
+        assertThat(suggestionIndex.suggest(1, 10)).containsExactly(3L, 6L);
+        assertThat(suggestionIndex.suggest(4, 10)).containsExactly(2L, 5L);
+    }
+}
@@ -0,0 +1,80 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the former self-join common-friends query with the in-memory adjacency intersection
+ * for two users with large, half-overlapping friend lists. Run with {@code mvn test -Pbenchmark}.
+ */
+@Slf4j
+@Tag("benchmark")
+@JdbcTest
+@AutoConfigureTestDatabase
+@Import(FriendshipGraph.class)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class FriendshipGraphBenchmarkTest {
+    private static final String SQL_COMMON_FRIENDS = "SELECT f1.friend_id FROM friendships f1 "
+            + "JOIN friendships f2 ON f1.friend_id = f2.friend_id "
+            + "WHERE f1.user_id = ? AND f2.user_id = ? ORDER BY f1.friend_id";
+    private static final int ITERATIONS = 20;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final FriendshipGraph friendshipGraph;
+
+    @ParameterizedTest
+    @ValueSource(ints = {1_000, 10_000, 50_000})
+    void compareSqlJoinWithAdjacencyIntersection(int friends) {
+        long owner = insertUsers(friends * 3 / 2 + 2);
+        long other = owner + 1;
+        List<Object[]> rows = new ArrayList<>();
+        for (long i = 0; i < friends; i++) {
+            rows.add(new Object[]{owner, owner + 2 + i});
+            rows.add(new Object[]{other, owner + 2 + friends / 2 + i});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO friendships (user_id, friend_id) VALUES (?, ?)", rows);
+        friendshipGraph.load();
+
+        long sqlNanos = 0;
+        long graphNanos = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            sqlNanos += time(() -> jdbcTemplate.queryForList(SQL_COMMON_FRIENDS, Long.class, owner, other));
+            graphNanos += time(() -> friendshipGraph.commonFriends(owner, other));
+        }
+
+        log.info("friends={} SQL join={} us/query adjacency={} us/query", friends,
+                sqlNanos / ITERATIONS / 1_000, graphNanos / ITERATIONS / 1_000);
+        List<Long> expected = jdbcTemplate.queryForList(SQL_COMMON_FRIENDS, Long.class, owner, other);
+        assertThat(friendshipGraph.commonFriends(owner, other)).containsExactly(
+                expected.stream().mapToLong(Long::longValue).toArray());
+    }
+
+    private long insertUsers(int count) {
+        long first = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(user_id), 0) + 1 FROM users", Long.class);
+        List<Object[]> rows = new ArrayList<>(count);
+        for (long id = first; id < first + count; id++) {
+            rows.add(new Object[]{id, "bench" + id + "@example.com", "bench" + id});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (user_id, email, login) VALUES (?, ?, ?)", rows);
+        return first;
+    }
+
+    private long time(Runnable action) {
+        long started = System.nanoTime();
+        action.run();
+        return System.nanoTime() - started;
+    }
+}
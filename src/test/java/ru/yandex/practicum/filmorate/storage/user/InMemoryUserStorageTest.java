@@ -0,0 +1,98 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InMemoryUserStorageTest {
+
+    private final InMemoryUserStorage userStorage = new InMemoryUserStorage();
+
+    @Test
+    void shouldAddRemoveAndIntersectFriends() {
+        User user = userStorage.create(buildUser("owner"));
+        User other = userStorage.create(buildUser("other"));
+        User common = userStorage.create(buildUser("common"));
+        User unique = userStorage.create(buildUser("unique"));
+
+        userStorage.addFriend(user.getId(), common.getId());
+        userStorage.addFriend(user.getId(), unique.getId());
+        userStorage.addFriend(other.getId(), common.getId());
+
+        assertThat(userStorage.getFriends(user.getId()))
+                .extracting(User::getId)
+                .containsExactly(common.getId(), unique.getId());
+        assertThat(userStorage.getCommonFriends(user.getId(), other.getId()))
+                .extracting(User::getId)
+                .containsExactly(common.getId());
+        assertThat(userStorage.findById(user.getId()).getFriends()).containsExactlyInAnyOrder(common.getId(),
+                unique.getId());
+
+        userStorage.removeFriend(user.getId(), unique.getId());
+        assertThat(userStorage.getFriends(user.getId())).extracting(User::getId).containsExactly(common.getId());
+    }
+
+    @Test
+    void shouldApplyFriendsGivenOnUpdate() {
+        User user = userStorage.create(buildUser("updated"));
+        User kept = userStorage.create(buildUser("kept"));
+        User dropped = userStorage.create(buildUser("dropped"));
+        userStorage.addFriend(user.getId(), kept.getId());
+        userStorage.addFriend(user.getId(), dropped.getId());
+
+        User update = userStorage.findById(user.getId());
+        update.setName("Renamed");
+        update.setFriends(Set.of(kept.getId()));
+        userStorage.update(update);
+
+        User found = userStorage.findById(user.getId());
+        assertThat(found.getName()).isEqualTo("Renamed");
+        assertThat(found.getFriends()).containsExactly(kept.getId());
+    }
+
+    @Test
+    void shouldDropFriendshipsOfDeletedUser() {
+        User user = userStorage.create(buildUser("stays"));
+        User deleted = userStorage.create(buildUser("goes"));
+        userStorage.addFriend(user.getId(), deleted.getId());
+        userStorage.addFriend(deleted.getId(), user.getId());
+
+        userStorage.delete(deleted.getId());
+
+        assertThat(userStorage.exists(deleted.getId())).isFalse();
+        assertThat(userStorage.findById(user.getId()).getFriends()).isEmpty();
+        assertThatThrownBy(() -> userStorage.findById(deleted.getId())).isInstanceOf(NotFoundException.class);
+    }
+
+    @Test
+    void shouldRejectMissingFriendsOnCreateAndUpdate() {
+        User user = userStorage.create(buildUser("existing"));
+        User withMissingFriend = buildUser("lonely");
+        withMissingFriend.setFriends(Set.of(user.getId(), 999L));
+
+        assertThatThrownBy(() -> userStorage.create(withMissingFriend))
+                .isInstanceOf(NotFoundException.class)
+                .hasMessageContaining("999");
+        assertThat(userStorage.findAll()).extracting(User::getId).containsExactly(user.getId());
+
+        User update = userStorage.findById(user.getId());
+        update.setFriends(Set.of(999L));
+        assertThatThrownBy(() -> userStorage.update(update)).isInstanceOf(NotFoundException.class);
+        assertThat(userStorage.findById(user.getId()).getFriends()).isEmpty();
+    }
+
+    private User buildUser(String login) {
+        User user = new User();
+        user.setEmail(login + "@example.com");
+        user.setLogin(login);
+        user.setName("Name of " + login);
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        return user;
+    }
+}
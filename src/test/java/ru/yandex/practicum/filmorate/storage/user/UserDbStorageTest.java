@@ -8,9 +8,14 @@ import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.Import;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.UserFilter;
+import ru.yandex.practicum.filmorate.storage.EntityVersions;
+import ru.yandex.practicum.filmorate.storage.film.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.film.FilmRecommendationIndex;
 
 import java.time.LocalDate;
 import java.util.Collection;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -18,7 +23,8 @@ import static org.assertj.core.api.Assertions.assertThatThrownBy;
 @JdbcTest
 @AutoConfigureTestDatabase
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
-@Import(UserDbStorage.class)
+@Import({UserDbStorage.class, FilmPopularityIndex.class, EntityVersions.class, FilmRecommendationIndex.class,
+        FriendshipGraph.class, FriendSuggestionIndex.class})
 class UserDbStorageTest {
 
     private final UserDbStorage userStorage;
@@ -59,6 +65,14 @@ class UserDbStorageTest {
                 .containsExactlyInAnyOrder(friendThree.getId(), friendTwo.getId());
     }
 
+    @Test
+    void shouldCheckUserExistence() {
+        User user = userStorage.create(buildUser("exists-user@example.com", "existsUser"));
+
+        assertThat(userStorage.exists(user.getId())).isTrue();
+        assertThat(userStorage.exists(user.getId() + 1000)).isFalse();
+    }
+
     @Test
     void shouldFindAllUsers() {
         User first = userStorage.create(buildUser("all-first@example.com", "allFirst"));
@@ -71,6 +85,26 @@ class UserDbStorageTest {
                 .containsExactlyInAnyOrder(first.getId(), second.getId());
     }
 
+    @Test
+    void shouldPageAndFilterUsersByBirthday() {
+        User older = buildUser("page-older@example.com", "pageOlder");
+        older.setBirthday(LocalDate.of(1980, 5, 5));
+        userStorage.create(older);
+        User first = userStorage.create(buildUser("page-first@example.com", "pageFirst"));
+        User second = userStorage.create(buildUser("page-second@example.com", "pageSecond"));
+        UserFilter filter = new UserFilter();
+        filter.setBirthdayFrom(LocalDate.of(1990, 1, 1));
+        filter.setBirthdayTo(LocalDate.of(1990, 1, 1));
+        filter.setLimit(1);
+
+        Collection<User> firstPage = userStorage.findAll(filter);
+        filter.setAfter(first.getId());
+        Collection<User> secondPage = userStorage.findAll(filter);
+
+        assertThat(firstPage).extracting(User::getId).containsExactly(first.getId());
+        assertThat(secondPage).extracting(User::getId).containsExactly(second.getId());
+    }
+
     @Test
     void shouldFindUserByIdWithFriends() {
         User owner = userStorage.create(buildUser("owner@example.com", "owner"));
@@ -127,6 +161,18 @@ class UserDbStorageTest {
                 .containsExactly(commonFriend.getId());
     }
 
+    @Test
+    void shouldFindUsersByIdsInRequestedOrder() {
+        User first = userStorage.create(buildUser("by-ids-first@example.com", "byIdsFirst"));
+        User second = userStorage.create(buildUser("by-ids-second@example.com", "byIdsSecond"));
+        userStorage.addFriend(second.getId(), first.getId());
+
+        List<User> found = userStorage.findByIds(List.of(second.getId(), Long.MAX_VALUE, first.getId()));
+
+        assertThat(found).extracting(User::getId).containsExactly(second.getId(), first.getId());
+        assertThat(found.get(0).getFriends()).containsExactly(first.getId());
+    }
+
     private User buildUser(String email, String login) {
         User user = new User();
         user.setEmail(email);